@@ -0,0 +1,166 @@
+package net.justempire.discordverificator;
+
+import net.justempire.discordverificator.api.DiscordVerificatorApi;
+import net.justempire.discordverificator.commands.InfoCommand;
+import net.justempire.discordverificator.commands.IpCommand;
+import net.justempire.discordverificator.commands.LinkCommand;
+import net.justempire.discordverificator.commands.MetricsCommand;
+import net.justempire.discordverificator.commands.RelinkCommand;
+import net.justempire.discordverificator.commands.ReloadCommand;
+import net.justempire.discordverificator.commands.StatsCommand;
+import net.justempire.discordverificator.commands.StorageCommand;
+import net.justempire.discordverificator.commands.UnlinkCommand;
+import net.justempire.discordverificator.discord.DiscordBot;
+import net.justempire.discordverificator.listeners.JoinListener;
+import net.justempire.discordverificator.reports.IpReport;
+import net.justempire.discordverificator.reports.MetricsReport;
+import net.justempire.discordverificator.reports.StatsReport;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.services.VerificatorBootstrap;
+import net.justempire.discordverificator.utils.BukkitPluginConfig;
+import net.justempire.discordverificator.utils.BukkitScheduler;
+import net.justempire.discordverificator.utils.BukkitUuidResolver;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import net.justempire.discordverificator.utils.Messages;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+public class DiscordVerificatorPlugin extends JavaPlugin {
+    private Logger logger;
+    private VerificatorBootstrap bootstrap;
+
+    // Flag to prevent double reloading
+    private boolean isReloading = false;
+
+    @Override
+    public void onEnable() {
+        // Creating a config if it doesn't exist
+        saveDefaultConfig();
+
+        // Setting up the logger
+        logger = this.getLogger();
+
+        // Setting up the services shared with the proxy plugin
+        UuidResolver uuidResolver = new BukkitUuidResolver();
+        bootstrap = new VerificatorBootstrap(new BukkitPluginConfig(this), new BukkitScheduler(this), uuidResolver, getDataFolder(), logger);
+        if (!bootstrap.start()) {
+            logger.severe("Disabling plugin.");
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+        UserManager userManager = bootstrap.getUserManager();
+        LinkCompletionIndex completionIndex = bootstrap.getCompletionIndex();
+
+        // Other plugins look links up through the API, loaded from the ServicesManager
+        getServer().getServicesManager().register(DiscordVerificatorApi.class, bootstrap.getApi(), this, ServicePriority.Normal);
+
+        // Setting up the messages
+        setupMessages();
+
+        // Setting up the bot
+        bootstrap.startBot();
+
+        // Setting up listeners
+        JoinListener joinListener = new JoinListener(bootstrap.getPreLoginVerifier());
+        getServer().getPluginManager().registerEvents(joinListener, this);
+
+        // Setting up commands
+        LinkCommand linkCommand = new LinkCommand(this, userManager, uuidResolver, completionIndex);
+        getCommand("link").setExecutor(linkCommand);
+        getCommand("link").setTabCompleter(linkCommand);
+
+        RelinkCommand relinkCommand = new RelinkCommand(this, userManager, uuidResolver, completionIndex);
+        getCommand("relink").setExecutor(relinkCommand);
+        getCommand("relink").setTabCompleter(relinkCommand);
+
+        UnlinkCommand unlinkCommand = new UnlinkCommand(this, userManager, completionIndex);
+        getCommand("unlink").setExecutor(unlinkCommand);
+        getCommand("unlink").setTabCompleter(unlinkCommand);
+
+        ReloadCommand reloadCommand = new ReloadCommand(this);
+        getCommand("dvreload").setExecutor(reloadCommand);
+
+        InfoCommand infoCommand = new InfoCommand(this, userManager, completionIndex);
+        getCommand("info").setExecutor(infoCommand);
+        getCommand("info").setTabCompleter(infoCommand);
+
+        StorageCommand storageCommand = new StorageCommand(this, bootstrap.getSqliteUserStore(), bootstrap.getUserStore());
+        getCommand("dvstorage").setExecutor(storageCommand);
+
+        IpCommand ipCommand = new IpCommand(this, new IpReport(userManager));
+        getCommand("dvip").setExecutor(ipCommand);
+
+        StatsCommand statsCommand = new StatsCommand(this, new StatsReport(bootstrap.getStatisticsService()));
+        getCommand("dvstats").setExecutor(statsCommand);
+
+        MetricsCommand metricsCommand = new MetricsCommand(new MetricsReport(bootstrap.getDatabaseService(), bootstrap.getBackupService(),
+                bootstrap.getPushPromptQueue(), bootstrap.getJoinFloodGuard(), bootstrap.getConsistencyVerifier()));
+        getCommand("dvmetrics").setExecutor(metricsCommand);
+
+        logger.info("Enabled successfully!");
+    }
+
+    @Override
+    public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+        if (bootstrap != null) bootstrap.shutdown();
+        logger.info("Shutting down!");
+    }
+
+    public DiscordBot getDiscordBot() {
+        return bootstrap.getBotConnection().getDiscordBot();
+    }
+
+    public void reload() {
+        if (isReloading) return;
+        isReloading = true;
+
+        logger.info("Reloading plugin...");
+
+        // Run reload logic asynchronously
+        getServer().getScheduler().runTaskAsynchronously(this, () -> {
+            // 1. Shutdown existing bot completely
+            bootstrap.getBotConnection().shutdown(10);
+
+            // 2. Reload config (Sync task required for Bukkit API safety)
+            getServer().getScheduler().runTask(this, () -> {
+                reloadConfig();
+                setupMessages();
+
+                // 3. Start new bot (Async inside startBot)
+                bootstrap.startBot();
+
+                isReloading = false;
+                logger.info("Reload complete!");
+            });
+        });
+    }
+
+    private void setupMessages() {
+        Map<String, String> messages = new HashMap<>();
+
+        // Getting the messages from the config
+        ConfigurationSection configSection = getConfig().getConfigurationSection("messages");
+        if (configSection != null) {
+            // Adding these messages to dictionary
+            for (Map.Entry<String, Object> pair : configSection.getValues(true).entrySet()) {
+                messages.put(pair.getKey(), pair.getValue().toString());
+            }
+        }
+        Messages.load(messages);
+
+        saveDefaultConfig();
+    }
+
+    // Returns a colorized message from the config by key
+    public static String getMessage(String key) {
+        return MessageColorizer.colorize(Messages.get(key));
+    }
+}
\ No newline at end of file
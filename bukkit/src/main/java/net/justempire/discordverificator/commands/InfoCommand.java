@@ -1,24 +1,32 @@
 package net.justempire.discordverificator.commands;
 
 import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
 import net.justempire.discordverificator.exceptions.UserNotFoundException;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
 import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.ErrorReporter;
 import net.justempire.discordverificator.utils.MessageColorizer;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
-public class InfoCommand implements CommandExecutor {
+public class InfoCommand implements CommandExecutor, TabCompleter {
     private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
     private final DiscordVerificatorPlugin plugin;
 
-    public InfoCommand(DiscordVerificatorPlugin plugin, UserManager userManager) {
+    public InfoCommand(DiscordVerificatorPlugin plugin, UserManager userManager, LinkCompletionIndex completionIndex) {
         this.plugin = plugin;
         this.userManager = userManager;
+        this.completionIndex = completionIndex;
     }
 
     @Override
@@ -48,12 +56,23 @@ public class InfoCommand implements CommandExecutor {
 
             } catch (UserNotFoundException e) {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("player-was-not-linked")));
+            } catch (StorageUnavailableException e) {
+                // Not knowing is different from not being linked
+                commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("database-unavailable")));
             } catch (Exception e) {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("error-occurred")));
-                e.printStackTrace();
+                ErrorReporter.report("Failed to run /info", e);
             }
         });
 
         return true;
     }
+
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.info")) return Collections.emptyList();
+
+        if (arguments.length == 1) return completionIndex.completeUsername(arguments[0]);
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package net.justempire.discordverificator.commands;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.reports.IpReport;
+import net.justempire.discordverificator.utils.IpAddresses;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+public class IpCommand implements CommandExecutor {
+    private final DiscordVerificatorPlugin plugin;
+    private final IpReport report;
+
+    public IpCommand(DiscordVerificatorPlugin plugin, IpReport report) {
+        this.plugin = plugin;
+        this.report = report;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.ip")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("not-enough-permissions")));
+            return true;
+        }
+
+        if (arguments.length < 1 || arguments.length > 2) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-ip-format")));
+            return true;
+        }
+
+        String query = arguments[0];
+        int page;
+        try {
+            IpAddresses.toKeyRange(query); // Validates the IP before going async
+            page = arguments.length == 2 ? Integer.parseInt(arguments[1]) : 1;
+            if (page < 1) throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-ip-format")));
+            return true;
+        }
+
+        int targetPage = page;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (String line : report.lines(query, targetPage)) commandSender.sendMessage(MessageColorizer.colorize(line));
+        });
+
+        return true;
+    }
+}
@@ -1,22 +1,34 @@
 package net.justempire.discordverificator.commands;
 
 import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
 import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
 import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.utils.ErrorReporter;
 import net.justempire.discordverificator.utils.MessageColorizer;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.jetbrains.annotations.NotNull;
 
-public class LinkCommand implements CommandExecutor {
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class LinkCommand implements CommandExecutor, TabCompleter {
     private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+    private final UuidResolver uuidResolver;
     private final DiscordVerificatorPlugin plugin;
 
-    public LinkCommand(DiscordVerificatorPlugin plugin, UserManager userManager) {
+    public LinkCommand(DiscordVerificatorPlugin plugin, UserManager userManager, UuidResolver uuidResolver, LinkCompletionIndex completionIndex) {
         this.plugin = plugin;
         this.userManager = userManager;
+        this.uuidResolver = uuidResolver;
+        this.completionIndex = completionIndex;
     }
 
     @Override
@@ -42,16 +54,27 @@ public class LinkCommand implements CommandExecutor {
         // Run database operation asynchronously
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
-                userManager.linkUser(discordUserId, playerName);
+                // Links are keyed by UUID; without one the link is claimed on the first join
+                UUID uuid = uuidResolver.resolveOrNull(playerName);
+                userManager.linkUser(discordUserId, uuid, playerName);
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("successfully-linked")));
             } catch (MinecraftUsernameAlreadyLinkedException e) {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("player-already-linked")));
             } catch (Exception e) {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("error-occurred")));
-                e.printStackTrace();
+                ErrorReporter.report("Failed to run /link", e);
             }
         });
 
         return true;
     }
+
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.link")) return Collections.emptyList();
+
+        // The player isn't linked yet, so the first argument is left to the default completion of online players
+        if (arguments.length == 2) return completionIndex.completeDiscordId(arguments[1]);
+        return arguments.length == 1 ? null : Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package net.justempire.discordverificator.commands;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.reports.MetricsReport;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+public class MetricsCommand implements CommandExecutor {
+    private final MetricsReport report;
+
+    public MetricsCommand(MetricsReport report) {
+        this.report = report;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.metrics")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("not-enough-permissions")));
+            return true;
+        }
+
+        for (String line : report.lines()) commandSender.sendMessage(MessageColorizer.colorize(line));
+
+        return true;
+    }
+}
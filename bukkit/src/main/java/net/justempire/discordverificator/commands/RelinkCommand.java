@@ -0,0 +1,77 @@
+package net.justempire.discordverificator.commands;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class RelinkCommand implements CommandExecutor, TabCompleter {
+    private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+    private final UuidResolver uuidResolver;
+    private final DiscordVerificatorPlugin plugin;
+
+    public RelinkCommand(DiscordVerificatorPlugin plugin, UserManager userManager, UuidResolver uuidResolver, LinkCompletionIndex completionIndex) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.uuidResolver = uuidResolver;
+        this.completionIndex = completionIndex;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.link")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("not-enough-permissions")));
+            return true;
+        }
+
+        if (arguments.length != 2) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-relink-format")));
+            return true;
+        }
+
+        String playerName = arguments[0];
+        String discordUserId = arguments[1];
+
+        if (discordUserId.length() < 17) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-user-id-format")));
+            return true;
+        }
+
+        // Run database operation asynchronously (the old link is replaced in the same transaction)
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                // Links are keyed by UUID; without one the link is claimed on the first join
+                UUID uuid = uuidResolver.resolveOrNull(playerName);
+                userManager.relinkUser(discordUserId, uuid, playerName);
+                commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("successfully-relinked")));
+            } catch (Exception e) {
+                commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("error-occurred")));
+                ErrorReporter.report("Failed to run /relink", e);
+            }
+        });
+
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.link")) return Collections.emptyList();
+
+        if (arguments.length == 1) return completionIndex.completeUsername(arguments[0]);
+        if (arguments.length == 2) return completionIndex.completeDiscordId(arguments[1]);
+        return Collections.emptyList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package net.justempire.discordverificator.commands;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.reports.StatsReport;
+import net.justempire.discordverificator.services.StatisticsService.Period;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+public class StatsCommand implements CommandExecutor {
+    private final StatsReport report;
+    private final DiscordVerificatorPlugin plugin;
+
+    public StatsCommand(DiscordVerificatorPlugin plugin, StatsReport report) {
+        this.plugin = plugin;
+        this.report = report;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.stats")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("not-enough-permissions")));
+            return true;
+        }
+
+        if (arguments.length > 2) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-stats-format")));
+            return true;
+        }
+
+        Period period = Period.DAY;
+        int offset = 0;
+        try {
+            if (arguments.length >= 1) period = Period.valueOf(arguments[0].toUpperCase());
+            if (arguments.length == 2) offset = Integer.parseInt(arguments[1]);
+            if (offset < 0) throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-stats-format")));
+            return true;
+        }
+
+        Period targetPeriod = period;
+        long bucketStart = period.bucketsAgo(offset);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (String line : report.lines(targetPeriod, bucketStart)) commandSender.sendMessage(MessageColorizer.colorize(line));
+        });
+
+        return true;
+    }
+}
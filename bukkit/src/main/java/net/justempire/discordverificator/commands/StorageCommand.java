@@ -0,0 +1,55 @@
+package net.justempire.discordverificator.commands;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.storage.SqliteUserStore;
+import net.justempire.discordverificator.storage.StorageDump;
+import net.justempire.discordverificator.storage.UserStore;
+import net.justempire.discordverificator.utils.MessageColorizer;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+// Copies the data of the journal engine back into database.db, so the plugin can be switched back to SQLite
+public class StorageCommand implements CommandExecutor {
+    private final DiscordVerificatorPlugin plugin;
+    private final SqliteUserStore sqliteUserStore;
+    private final UserStore activeUserStore;
+
+    public StorageCommand(DiscordVerificatorPlugin plugin, SqliteUserStore sqliteUserStore, UserStore activeUserStore) {
+        this.plugin = plugin;
+        this.sqliteUserStore = sqliteUserStore;
+        this.activeUserStore = activeUserStore;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.storage")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("not-enough-permissions")));
+            return true;
+        }
+
+        if (arguments.length != 1 || !arguments[0].equalsIgnoreCase("export")) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("invalid-storage-format")));
+            return true;
+        }
+
+        if (activeUserStore == sqliteUserStore) {
+            commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("storage-already-sqlite")));
+            return true;
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            StorageDump dump = activeUserStore.exportAll();
+            if (sqliteUserStore.importAll(dump, true)) {
+                commandSender.sendMessage(MessageColorizer.colorize(String.format(DiscordVerificatorPlugin.getMessage("storage-exported"),
+                        dump.users.size(), dump.links.size())));
+            } else {
+                commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("error-occurred")));
+            }
+        });
+
+        return true;
+    }
+}
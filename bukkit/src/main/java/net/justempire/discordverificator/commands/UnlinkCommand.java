@@ -1,22 +1,30 @@
 package net.justempire.discordverificator.commands;
 
 import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
 import net.justempire.discordverificator.services.UserManager;
 import net.justempire.discordverificator.exceptions.NotFoundException;
+import net.justempire.discordverificator.utils.ErrorReporter;
 import net.justempire.discordverificator.utils.MessageColorizer;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.jetbrains.annotations.NotNull;
 
-public class UnlinkCommand implements CommandExecutor {
+import java.util.Collections;
+import java.util.List;
+
+public class UnlinkCommand implements CommandExecutor, TabCompleter {
     private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
     private final DiscordVerificatorPlugin plugin;
 
-    public UnlinkCommand(DiscordVerificatorPlugin plugin, UserManager userManager) {
+    public UnlinkCommand(DiscordVerificatorPlugin plugin, UserManager userManager, LinkCompletionIndex completionIndex) {
         this.plugin = plugin;
         this.userManager = userManager;
+        this.completionIndex = completionIndex;
     }
 
     @Override
@@ -42,10 +50,18 @@ public class UnlinkCommand implements CommandExecutor {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("player-was-not-linked")));
             } catch (Exception e) {
                 commandSender.sendMessage(MessageColorizer.colorize(DiscordVerificatorPlugin.getMessage("error-occurred")));
-                e.printStackTrace();
+                ErrorReporter.report("Failed to run /unlink", e);
             }
         });
 
         return true;
     }
+
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String s, @NotNull String[] arguments) {
+        if (!commandSender.hasPermission("discordVerificator.unlink")) return Collections.emptyList();
+
+        if (arguments.length == 1) return completionIndex.completeUsername(arguments[0]);
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package net.justempire.discordverificator.listeners;
+
+import net.justempire.discordverificator.DiscordVerificatorPlugin;
+import net.justempire.discordverificator.models.PreLoginDecision;
+import net.justempire.discordverificator.services.PreLoginVerifier;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+public class JoinListener implements Listener {
+    private final PreLoginVerifier preLoginVerifier;
+
+    public JoinListener(PreLoginVerifier preLoginVerifier) {
+        this.preLoginVerifier = preLoginVerifier;
+    }
+
+    @EventHandler(priority = EventPriority.NORMAL)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        String playerName = event.getName();
+        String ipAddress = event.getAddress().getHostAddress();
+
+        PreLoginDecision decision = preLoginVerifier.verify(event.getUniqueId(), playerName, ipAddress);
+        if (decision.isAdmitted()) return;
+
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, decision.formatMessage(getMessage(decision.getMessageKey())));
+    }
+
+    private String getMessage(String key) {
+        return DiscordVerificatorPlugin.getMessage(key);
+    }
+}
@@ -0,0 +1,37 @@
+package net.justempire.discordverificator.utils;
+
+import org.bukkit.plugin.Plugin;
+
+// Always reads the plugin's current config, so the values after "/dvreload" are used
+public class BukkitPluginConfig implements PluginConfig {
+    private final Plugin plugin;
+
+    public BukkitPluginConfig(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getString(String path, String defaultValue) {
+        return plugin.getConfig().getString(path, defaultValue);
+    }
+
+    @Override
+    public long getLong(String path, long defaultValue) {
+        return plugin.getConfig().getLong(path, defaultValue);
+    }
+
+    @Override
+    public double getDouble(String path, double defaultValue) {
+        return plugin.getConfig().getDouble(path, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean defaultValue) {
+        return plugin.getConfig().getBoolean(path, defaultValue);
+    }
+
+    @Override
+    public int getInt(String path, int defaultValue) {
+        return plugin.getConfig().getInt(path, defaultValue);
+    }
+}
@@ -0,0 +1,27 @@
+package net.justempire.discordverificator.utils;
+
+import net.justempire.discordverificator.services.PlatformScheduler;
+import org.bukkit.plugin.Plugin;
+
+// Async tasks of the Bukkit scheduler, which counts in ticks of 50 ms
+public class BukkitScheduler implements PlatformScheduler {
+    private final Plugin plugin;
+
+    public BukkitScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public void repeatAsync(Runnable task, long delayMillis, long periodMillis) {
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, task, toTicks(delayMillis), toTicks(periodMillis));
+    }
+
+    private static long toTicks(long millis) {
+        return Math.max(1, Math.round(millis / 50.0));
+    }
+}
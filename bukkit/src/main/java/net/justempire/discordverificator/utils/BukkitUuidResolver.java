@@ -0,0 +1,24 @@
+package net.justempire.discordverificator.utils;
+
+import net.justempire.discordverificator.services.UuidResolver;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// Online players are resolved directly, absent ones through the server's profile lookup.
+// Offline-mode servers (also behind a proxy) can't be sure about absent players, so their links are claimed on join.
+public class BukkitUuidResolver implements UuidResolver {
+    @Override
+    @SuppressWarnings("deprecation")
+    public Optional<UUID> resolve(String minecraftUsername) {
+        Player online = Bukkit.getPlayerExact(minecraftUsername);
+        if (online != null) return Optional.of(online.getUniqueId());
+        if (!Bukkit.getOnlineMode()) return Optional.empty();
+
+        // Uses the user cache or asks Mojang; unknown names get a made-up offline UUID (version 3), which isn't trusted
+        UUID uuid = Bukkit.getOfflinePlayer(minecraftUsername).getUniqueId();
+        return uuid.version() == 4 ? Optional.of(uuid) : Optional.empty();
+    }
+}
@@ -0,0 +1,112 @@
+package net.justempire.discordverificator.loadtest;
+
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.exceptions.NoCodesFoundException;
+import net.justempire.discordverificator.exceptions.UserNotFoundException;
+import net.justempire.discordverificator.services.DatabaseService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.Uuids;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Compares allocation rate and latency of the throwing and the Optional-returning UserManager lookups
+// on a miss-heavy workload (unknown usernames, first-time code requests).
+// Run with: mvn -B -Pbenchmark verify [-Dbenchmark.iterations=200000]
+public class LookupAllocationBenchmark {
+    private static final int LINKED_PLAYERS = 1_000;
+
+    private final int iterations = Integer.getInteger("benchmark.iterations", 200_000);
+    private final String reportPath = System.getProperty("benchmark.report", "target/lookup-benchmark.json");
+
+    private final Logger logger = Logger.getLogger("DiscordVerificator-Benchmark");
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps results alive so the JIT can't drop the lookups
+    private long blackhole;
+
+    public static void main(String[] args) throws Exception {
+        new LookupAllocationBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Path dataFolder = Files.createTempDirectory("dv-benchmark");
+        DatabaseService databaseService = new DatabaseService(dataFolder.toString(), logger);
+        databaseService.initialize();
+        UserManager userManager = new UserManager(databaseService, dataFolder.resolve("users.json").toString(), logger);
+
+        for (int i = 0; i < LINKED_PLAYERS; i++) {
+            try {
+                userManager.linkUser(String.valueOf(100_000_000_000_000_000L + i), Uuids.offline("player" + i), "player" + i);
+            } catch (MinecraftUsernameAlreadyLinkedException ignored) { }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("iterations", iterations);
+
+        // Warming up both variants before measuring
+        int measured = iterations;
+        for (int round = 0; round < 2; round++) {
+            boolean warmup = round == 0;
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("usernameLookup.throwing", measure(() -> {
+                try {
+                    blackhole += userManager.getDiscordIdByMinecraftUsername("unknown" + blackhole % 1000).length();
+                } catch (UserNotFoundException e) {
+                    blackhole++;
+                }
+            }, warmup ? measured / 10 : measured));
+            results.put("usernameLookup.optional", measure(() -> {
+                blackhole += userManager.findDiscordIdByMinecraftUsername("unknown" + blackhole % 1000).map(String::length).orElse(1);
+            }, warmup ? measured / 10 : measured));
+            results.put("lastCodeLookup.throwing", measure(() -> {
+                try {
+                    blackhole += userManager.getSecondsSinceLastCode("100000000000000000", "10.0.0." + blackhole % 250);
+                } catch (NoCodesFoundException e) {
+                    blackhole++;
+                }
+            }, warmup ? measured / 10 : measured));
+            results.put("lastCodeLookup.optional", measure(() -> {
+                blackhole += userManager.findSecondsSinceLastCode("100000000000000000", "10.0.0." + blackhole % 250).orElse(1);
+            }, warmup ? measured / 10 : measured));
+            if (!warmup) report.put("results", results);
+        }
+
+        File reportFile = Reports.write(reportPath, report);
+        logger.info("Benchmark report written to " + reportFile.getAbsolutePath() + " (" + blackhole + ")");
+
+        userManager.onShutDown();
+        deleteRecursively(dataFolder);
+    }
+
+    private Map<String, Object> measure(Runnable lookup, int count) {
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+
+        for (int i = 0; i < count; i++) lookup.run();
+
+        long elapsed = System.nanoTime() - started;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bytesPerLookup", (double) allocated / count);
+        result.put("nanosPerLookup", (double) elapsed / count);
+        result.put("allocationMegabytesPerSecond", allocated / 1_048_576.0 / (elapsed / 1_000_000_000.0));
+        return result;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package net.justempire.discordverificator.loadtest;
+
+import net.justempire.discordverificator.discord.ConfirmationHandler;
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.listeners.JoinListener;
+import net.justempire.discordverificator.services.AllowedIpCache;
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.DatabaseService;
+import net.justempire.discordverificator.services.PreLoginVerifier;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.Uuids;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Offline load test: drives JoinListener with synthetic pre-login events from many threads and
+// redeems the issued codes through ConfirmationHandler, all against a temporary SQLite database.
+// Run with: mvn -B -Ploadtest verify [-Dloadtest.threads=16 -Dloadtest.duration=30 ...]
+public class PreLoginLoadTest {
+    private static final long[] HISTOGRAM_BOUNDS_MICROS = { 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000 };
+
+    private final int threads = Integer.getInteger("loadtest.threads", 16);
+    private final int confirmers = Integer.getInteger("loadtest.confirmers", 2);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+    private final int linkedPlayers = Integer.getInteger("loadtest.players", 5_000);
+    private final int unlinkedPercent = Integer.getInteger("loadtest.unlinked-percent", 20);
+    private final int ipsPerPlayer = Integer.getInteger("loadtest.ips-per-player", 3);
+    private final String reportPath = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+    private final Logger logger = Logger.getLogger("DiscordVerificator-LoadTest");
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, String> discordIdsByUsername = new ConcurrentHashMap<>();
+    private final BlockingQueue<IssuedCode> issuedCodes = new LinkedBlockingQueue<>();
+    private final Map<String, LongAdder> preLoginOutcomes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> confirmOutcomes = new ConcurrentHashMap<>();
+    private final List<LatencyRecorder> preLoginRecorders = new ArrayList<>();
+    private final List<LatencyRecorder> confirmRecorders = new ArrayList<>();
+    private final List<ThreadInfo> workerThreadInfos = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        new PreLoginLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        if (threadMXBean.isThreadContentionMonitoringSupported()) threadMXBean.setThreadContentionMonitoringEnabled(true);
+
+        Path dataFolder = Files.createTempDirectory("dv-loadtest");
+        DatabaseService databaseService = new DatabaseService(dataFolder.toString(), logger);
+        databaseService.initialize();
+
+        UserManager userManager = new UserManager(databaseService, dataFolder.resolve("users.json").toString(), logger);
+        StatisticsService statisticsService = new StatisticsService(databaseService, logger);
+        ConfirmationCodeService confirmationCodeService = new CapturingCodeService();
+        ConfirmationHandler confirmationHandler = new ConfirmationHandler(userManager, confirmationCodeService, statisticsService);
+        JoinListener joinListener = new JoinListener(new PreLoginVerifier(() -> true, userManager, confirmationCodeService, statisticsService,
+                PreLoginVerifier.UnavailablePolicy.KICK, new AllowedIpCache(10_000, 86_400_000), prompt -> false, null, null));
+
+        long seedStart = System.nanoTime();
+        seed(userManager);
+        long seedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart);
+        logger.info("Seeded " + linkedPlayers + " linked players in " + seedMillis + " ms");
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            preLoginRecorders.add(recorder);
+            workers.add(new Thread(() -> preLoginLoop(joinListener, recorder), "loadtest-prelogin-" + i));
+        }
+        for (int i = 0; i < confirmers; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            confirmRecorders.add(recorder);
+            workers.add(new Thread(() -> confirmLoop(confirmationHandler, recorder), "loadtest-confirm-" + i));
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        running = false;
+        for (Thread worker : workers) worker.join();
+        long elapsedNanos = System.nanoTime() - start;
+
+        statisticsService.flush();
+        writeReport(elapsedNanos, seedMillis);
+
+        userManager.onShutDown();
+        deleteRecursively(dataFolder);
+    }
+
+    private void seed(UserManager userManager) {
+        for (int i = 0; i < linkedPlayers; i++) {
+            String username = "player" + i;
+            String discordId = String.valueOf(100_000_000_000_000_000L + i);
+            try {
+                userManager.linkUser(discordId, Uuids.offline(username), username);
+            } catch (MinecraftUsernameAlreadyLinkedException ignored) { }
+            discordIdsByUsername.put(username, discordId);
+        }
+    }
+
+    private void preLoginLoop(JoinListener joinListener, LatencyRecorder recorder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            int player = random.nextInt(linkedPlayers);
+            String username = random.nextInt(100) < unlinkedPercent ? "bot" + random.nextInt(1_000_000) : "player" + player;
+            String ip = "10." + (player % 250) + "." + random.nextInt(ipsPerPlayer) + "." + (1 + player % 250);
+
+            AsyncPlayerPreLoginEvent event;
+            try {
+                event = createEvent(username, InetAddress.getByName(ip));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            long started = System.nanoTime();
+            joinListener.onPlayerPreLogin(event);
+            recorder.record(System.nanoTime() - started);
+
+            String outcome = event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED ? "admitted" : "kicked";
+            preLoginOutcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        }
+        captureThreadInfo();
+    }
+
+    private void confirmLoop(ConfirmationHandler confirmationHandler, LatencyRecorder recorder) {
+        while (running) {
+            IssuedCode issued;
+            try {
+                issued = issuedCodes.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (issued == null) continue;
+
+            String discordId = discordIdsByUsername.get(issued.username);
+
+            // The stubbed interaction just drops the reply embed
+            long started = System.nanoTime();
+            ConfirmationHandler.Outcome outcome = confirmationHandler.confirm(discordId, issued.code, embed -> { });
+            recorder.record(System.nanoTime() - started);
+
+            confirmOutcomes.computeIfAbsent(outcome.name().toLowerCase(), k -> new LongAdder()).increment();
+        }
+        captureThreadInfo();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static AsyncPlayerPreLoginEvent createEvent(String username, InetAddress address) {
+        return new AsyncPlayerPreLoginEvent(username, address, Uuids.offline(username));
+    }
+
+    private void captureThreadInfo() {
+        ThreadInfo info = threadMXBean.getThreadInfo(Thread.currentThread().getId());
+        synchronized (workerThreadInfos) { workerThreadInfos.add(info); }
+    }
+
+    private void writeReport(long elapsedNanos, long seedMillis) throws IOException {
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+        long[] preLogin = LatencyRecorder.merge(preLoginRecorders);
+        long[] confirm = LatencyRecorder.merge(confirmRecorders);
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("threads", threads);
+        settings.put("confirmers", confirmers);
+        settings.put("durationSeconds", durationSeconds);
+        settings.put("linkedPlayers", linkedPlayers);
+        settings.put("unlinkedPercent", unlinkedPercent);
+        settings.put("ipsPerPlayer", ipsPerPlayer);
+
+        Map<String, Object> preLoginSection = describeLatencies(preLogin, elapsedSeconds);
+        preLoginSection.put("outcomes", toCounts(preLoginOutcomes));
+
+        Map<String, Object> confirmSection = describeLatencies(confirm, elapsedSeconds);
+        confirmSection.put("outcomes", toCounts(confirmOutcomes));
+
+        long blockedCount = 0, blockedMillis = 0, waitedCount = 0, waitedMillis = 0;
+        for (ThreadInfo info : workerThreadInfos) {
+            if (info == null) continue;
+            blockedCount += info.getBlockedCount();
+            blockedMillis += Math.max(0, info.getBlockedTime());
+            waitedCount += info.getWaitedCount();
+            waitedMillis += Math.max(0, info.getWaitedTime());
+        }
+        Map<String, Object> contention = new LinkedHashMap<>();
+        contention.put("monitoringEnabled", threadMXBean.isThreadContentionMonitoringEnabled());
+        contention.put("blockedCount", blockedCount);
+        contention.put("blockedMillis", blockedMillis);
+        contention.put("waitedCount", waitedCount);
+        contention.put("waitedMillis", waitedMillis);
+        contention.put("blockedShareOfWallClock", blockedMillis / (elapsedSeconds * 1000.0 * Math.max(1, workerThreadInfos.size())));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("seedMillis", seedMillis);
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("preLogin", preLoginSection);
+        report.put("confirm", confirmSection);
+        report.put("dbContention", contention);
+
+        File reportFile = Reports.write(reportPath, report);
+
+        logger.info(String.format("Pre-login: %.0f ops/s, p50 %d us, p99 %d us. Report written to %s",
+                preLogin.length / elapsedSeconds, percentileMicros(preLogin, 50), percentileMicros(preLogin, 99), reportFile.getAbsolutePath()));
+    }
+
+    private static Map<String, Object> describeLatencies(long[] sorted, double elapsedSeconds) {
+        Map<String, Object> section = new LinkedHashMap<>();
+        section.put("operations", sorted.length);
+        section.put("throughputPerSecond", sorted.length / elapsedSeconds);
+
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        latencies.put("p50", percentileMicros(sorted, 50));
+        latencies.put("p90", percentileMicros(sorted, 90));
+        latencies.put("p99", percentileMicros(sorted, 99));
+        latencies.put("p999", percentileMicros(sorted, 99.9));
+        latencies.put("max", sorted.length == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+        section.put("latencyMicros", latencies);
+
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        long[] counts = new long[HISTOGRAM_BOUNDS_MICROS.length + 1];
+        for (long nanos : sorted) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = 0;
+            while (bucket < HISTOGRAM_BOUNDS_MICROS.length && micros > HISTOGRAM_BOUNDS_MICROS[bucket]) bucket++;
+            counts[bucket]++;
+        }
+        for (int i = 0; i < HISTOGRAM_BOUNDS_MICROS.length; i++) histogram.put("le_" + HISTOGRAM_BOUNDS_MICROS[i], counts[i]);
+        histogram.put("le_inf", counts[HISTOGRAM_BOUNDS_MICROS.length]);
+        section.put("histogramMicros", histogram);
+
+        return section;
+    }
+
+    private static long percentileMicros(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+
+    private static Map<String, Long> toCounts(Map<String, LongAdder> adders) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry : adders.entrySet()) counts.put(entry.getKey(), entry.getValue().sum());
+        return counts;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    // Remembers every issued code so the confirmer threads can redeem it
+    private class CapturingCodeService extends ConfirmationCodeService {
+        @Override
+        public String generateVerificationCode(String discordId, UUID uuid, String username, String ip) {
+            String code = super.generateVerificationCode(discordId, uuid, username, ip);
+            issuedCodes.offer(new IssuedCode(username, code));
+            return code;
+        }
+    }
+
+    private static final class IssuedCode {
+        private final String username;
+        private final String code;
+
+        private IssuedCode(String username, String code) {
+            this.username = username;
+            this.code = code;
+        }
+    }
+
+    // Single-writer latency buffer, merged once all threads are done
+    private static final class LatencyRecorder {
+        private long[] values = new long[1 << 16];
+        private int size;
+
+        private void record(long nanos) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        private static long[] merge(List<LatencyRecorder> recorders) {
+            int total = 0;
+            for (LatencyRecorder recorder : recorders) total += recorder.size;
+
+            long[] merged = new long[total];
+            int offset = 0;
+            for (LatencyRecorder recorder : recorders) {
+                System.arraycopy(recorder.values, 0, merged, offset, recorder.size);
+                offset += recorder.size;
+            }
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+}
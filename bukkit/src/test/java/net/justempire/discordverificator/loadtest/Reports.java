@@ -0,0 +1,20 @@
+package net.justempire.discordverificator.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+// The JSON reports of the load test and the benchmark
+final class Reports {
+    private Reports() { }
+
+    // The path is relative to the module directory, like target/
+    static File write(String path, Map<String, Object> report) throws IOException {
+        File reportFile = new File(path);
+        if (reportFile.getParentFile() != null) reportFile.getParentFile().mkdirs();
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+        return reportFile;
+    }
+}
@@ -0,0 +1,42 @@
+package net.justempire.discordverificator.api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Entry point for other plugins. On Bukkit it is registered with the ServicesManager:
+//   DiscordVerificatorApi api = Bukkit.getServicesManager().load(DiscordVerificatorApi.class);
+// On Velocity it is returned by DiscordVerificatorVelocity#getApi().
+//
+// Nothing here blocks the calling thread: answers are served from the plugin's cache when possible and
+// otherwise looked up on a worker thread. Futures complete exceptionally if the database can't be reached.
+// Methods are only added within a VERSION, never changed or removed.
+public interface DiscordVerificatorApi {
+    int VERSION = 1;
+
+    // The VERSION of the installed plugin, which may be newer than the one a consumer was compiled against
+    int getVersion();
+
+    // Discord ID the player is linked to. Links made by name before the plugin knew the UUID are
+    // only found after the player joined once, use findDiscordIdByUsername for those.
+    CompletableFuture<Optional<String>> findDiscordId(UUID playerUuid);
+
+    // Case-insensitive; if several links had this name, the one that joined last
+    CompletableFuture<Optional<String>> findDiscordIdByUsername(String minecraftUsername);
+
+    CompletableFuture<Boolean> isLinked(UUID playerUuid);
+
+    // Discord IDs of every linked player among the given ones, looked up together. Unlinked players are left out.
+    CompletableFuture<Map<UUID, String>> findDiscordIds(Collection<UUID> playerUuids);
+
+    // Minecraft usernames linked to the Discord profile, empty if there are none
+    CompletableFuture<List<String>> findUsernames(String discordId);
+
+    // The listener is called on the thread that made the change, never on the server thread. Keep it short.
+    void addListener(LinkChangeListener listener);
+
+    void removeListener(LinkChangeListener listener);
+}
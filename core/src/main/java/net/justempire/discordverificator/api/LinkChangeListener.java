@@ -0,0 +1,15 @@
+package net.justempire.discordverificator.api;
+
+// Changes made through this plugin (commands, Discord, joins). Only the needed methods have to be implemented.
+public interface LinkChangeListener {
+    default void onLinked(String minecraftUsername, String discordId) { }
+
+    // The Discord ID is null if it could not be looked up before the link was removed
+    default void onUnlinked(String minecraftUsername, String discordId) { }
+
+    // The player joined with a new name
+    default void onRenamed(String oldMinecraftUsername, String newMinecraftUsername, String discordId) { }
+
+    // The Discord user allowed joining from a new IP
+    default void onIpConfirmed(String discordId, String ipAddress) { }
+}
@@ -0,0 +1,108 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.justempire.discordverificator.exceptions.NotFoundException;
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.services.AccountOverviewCache;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// The "/accounts" and "/unlink-account" logic, letting linked players see and remove their own links
+public class AccountsHandler {
+    // Discord shows at most 25 autocomplete choices
+    private static final int MAX_CHOICES = 25;
+
+    private final UserManager userManager;
+    private final AccountOverviewCache overviewCache;
+
+    public AccountsHandler(UserManager userManager, AccountOverviewCache overviewCache) {
+        this.userManager = userManager;
+        this.overviewCache = overviewCache;
+    }
+
+    public void accounts(String discordId, Consumer<MessageEmbed> reply) {
+        Optional<AccountOverview> overview = overviewCache.get(discordId);
+        if (!overview.isPresent() || overview.get().getAccounts().isEmpty()) {
+            reply.accept(generateEmbed(getMessage("user-not-found"), getMessage("user-not-found-description"), 0xF63B2D));
+            return;
+        }
+
+        StringBuilder description = new StringBuilder();
+        List<AccountOverview.Account> accounts = overview.get().getAccounts();
+        for (int i = 0; i < accounts.size(); i++) {
+            AccountOverview.Account account = accounts.get(i);
+            // Discord renders the timestamp in the local time of the reader
+            String lastLogin = account.getLastLoginMillis() != 0
+                    ? String.format("<t:%d:R>", account.getLastLoginMillis() / 1000)
+                    : getMessage("never");
+            String line = String.format(getMessage("accounts-entry"), account.getMinecraftUsername(), lastLogin) + "\n";
+
+            // Stays within the embed limit, even for profiles with a lot of accounts
+            if (description.length() + line.length() > MessageEmbed.DESCRIPTION_MAX_LENGTH - 100) {
+                description.append(String.format(getMessage("accounts-more"), accounts.size() - i)).append("\n");
+                break;
+            }
+            description.append(line);
+        }
+
+        String ip = overview.get().getCurrentAllowedIp();
+        description.append("\n").append(ip == null || ip.isEmpty()
+                ? getMessage("accounts-no-allowed-ip")
+                : String.format(getMessage("accounts-allowed-ip"), ip));
+        reply.accept(generateEmbed(getMessage("accounts-title"), description.toString(), 0x5865F2));
+    }
+
+    public void unlinkAccount(String discordId, String minecraftUsername, Consumer<MessageEmbed> reply) {
+        if (minecraftUsername == null) {
+            reply.accept(generateEmbed(getMessage("invalid-usage"), getMessage("provide-username-please"), 0xF63B2D));
+            return;
+        }
+
+        try {
+            // Scoped to the profile in the store, the link may have just moved to another one.
+            // The cache entry is dropped by the unlink event.
+            userManager.unlinkUser(discordId, minecraftUsername);
+        } catch (NotFoundException e) {
+            reply.accept(generateEmbed(getMessage("error-occurred"),
+                    String.format(getMessage("not-your-linked-account"), minecraftUsername), 0xF63B2D));
+            return;
+        }
+
+        reply.accept(generateEmbed(getMessage("account-unlinked"),
+                String.format(getMessage("account-unlinked-description"), minecraftUsername), 0x9ACD32));
+    }
+
+    // Usernames of the profile starting with the typed text, for the autocompletion of "/unlink-account"
+    public List<String> completeUsername(String discordId, String prefix) {
+        Optional<AccountOverview> overview = overviewCache.get(discordId);
+        if (!overview.isPresent()) return Collections.emptyList();
+
+        String lowerPrefix = prefix.toLowerCase();
+        List<String> usernames = new ArrayList<>();
+        for (AccountOverview.Account account : overview.get().getAccounts()) {
+            if (usernames.size() >= MAX_CHOICES) break;
+            if (account.getMinecraftUsername().toLowerCase().startsWith(lowerPrefix)) usernames.add(account.getMinecraftUsername());
+        }
+        return usernames;
+    }
+
+    private MessageEmbed generateEmbed(String title, String description, int color) {
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setTitle(title);
+        builder.setDescription(description);
+        builder.setColor(color);
+
+        return builder.build();
+    }
+
+    private String getMessage(String key) {
+        return Messages.get(key);
+    }
+}
@@ -0,0 +1,123 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.OnlineStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Owns the JDA session of the bot, so every platform adapter starts and stops it the same way
+public class BotConnection {
+    private final Logger logger;
+
+    private volatile JDA currentJDA;
+    private volatile DiscordBot discordBot;
+    private volatile InteractionEndpoint endpoint;
+
+    public BotConnection(Logger logger) {
+        this.logger = logger;
+    }
+
+    // Blocks until the bot is ready, so it must be called asynchronously
+    public void connect(String token, DiscordBot bot) {
+        if (token == null || token.contains("DISCORD_BOT_TOKEN")) {
+            logger.warning("Please set a valid bot token in config.yml!");
+            return;
+        }
+
+        try {
+            // Ensure old instance is cleaned up if this is a retry
+            if (this.currentJDA != null) {
+                this.currentJDA.shutdownNow();
+            }
+
+            this.currentJDA = JDABuilder.createLight(token)
+                    .addEventListeners(bot)
+                    .setAutoReconnect(true)
+                    .setStatus(OnlineStatus.ONLINE)
+                    .build();
+
+            // Wait for the bot to be ready (safe because we are async)
+            this.currentJDA.awaitReady();
+            this.discordBot = bot;
+
+            logger.info("Discord Bot connected and ready!");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to connect to Discord! Check your token or internet connection.", e);
+        }
+    }
+
+    // Serves the interactions endpoint instead of a gateway session. Registers the commands over REST, so it must be called asynchronously.
+    public void serve(String token, InteractionEndpoint newEndpoint) {
+        if (token == null || token.contains("DISCORD_BOT_TOKEN")) {
+            logger.warning("Please set a valid bot token in config.yml!");
+            return;
+        }
+
+        DiscordRestClient restClient = new DiscordRestClient(token);
+        try {
+            newEndpoint.start(restClient);
+            this.endpoint = newEndpoint;
+        } catch (IllegalArgumentException e) {
+            logger.severe("Please set discord.http.public-key in config.yml to the public key of the application (64 hex characters)!");
+            return;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to start the Discord interactions endpoint!", e);
+            return;
+        }
+
+        // The endpoint already answers commands registered before, so this isn't fatal
+        try {
+            restClient.registerCommands(SlashCommands.all());
+            logger.info("Discord interactions endpoint ready!");
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to register the slash commands! Check your token or internet connection.", e);
+        }
+    }
+
+    // Shuts the bot down, forcing it if it takes longer than the timeout
+    public void shutdown(long timeoutSeconds) {
+        InteractionEndpoint runningEndpoint = endpoint;
+        if (runningEndpoint != null) {
+            runningEndpoint.stop();
+            endpoint = null;
+        }
+
+        JDA jda = currentJDA;
+        if (jda == null) return;
+
+        if (discordBot != null) jda.removeEventListener(discordBot);
+        jda.shutdown();
+        try {
+            if (!jda.awaitShutdown(timeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warning("JDA took too long to shutdown, forcing...");
+                jda.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            logger.warning("Interrupted while waiting for JDA to shutdown!");
+            jda.shutdownNow();
+            Thread.currentThread().interrupt(); // Restore interrupted status
+        }
+        currentJDA = null;
+        discordBot = null;
+    }
+
+    // Null while the bot is not connected
+    public JDA getJDA() {
+        return currentJDA;
+    }
+
+    public DiscordBot getDiscordBot() {
+        return discordBot;
+    }
+
+    public boolean isBotAvailable() {
+        InteractionEndpoint runningEndpoint = endpoint;
+        if (runningEndpoint != null && runningEndpoint.isRunning()) return true;
+
+        DiscordBot bot = discordBot;
+        return bot != null && bot.isBotEnabled();
+    }
+}
@@ -0,0 +1,135 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.justempire.discordverificator.exceptions.InvalidCodeException;
+import net.justempire.discordverificator.exceptions.UserNotFoundException;
+import net.justempire.discordverificator.jfr.ConfirmStageEvent;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.PendingCode;
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// The "/confirm" logic, independent of how the interaction arrived and how the reply is delivered
+public class ConfirmationHandler {
+    private final UserManager userManager;
+    private final ConfirmationCodeService confirmationCodeService;
+    private final StatisticsService statisticsService;
+
+    public ConfirmationHandler(UserManager userManager, ConfirmationCodeService confirmationCodeService, StatisticsService statisticsService) {
+        this.userManager = userManager;
+        this.confirmationCodeService = confirmationCodeService;
+        this.statisticsService = statisticsService;
+    }
+
+    public enum Outcome {
+        CONFIRMED,
+        DENIED,
+        NO_CODE_PROVIDED,
+        INVALID_CODE,
+        NOT_YOUR_ACCOUNT,
+        USER_NOT_FOUND
+    }
+
+    // Confirms the code on behalf of the Discord user and sends the resulting embed to the reply consumer
+    public Outcome confirm(String discordId, String code, Consumer<MessageEmbed> reply) {
+        // If code wasn't provided
+        if (code == null) {
+            reply.accept(generateEmbed(getMessage("invalid-usage"), getMessage("provide-code-please"), 0xF63B2D));
+            return Outcome.NO_CODE_PROVIDED;
+        }
+
+        // Trying to get code data
+        PendingCode codeData;
+        ConfirmStageEvent redeemStage = ConfirmStageEvent.start("redeem_code");
+        try {
+            codeData = confirmationCodeService.getDataByCodeAndRemove(code);
+            redeemStage.finish("valid");
+        } catch (InvalidCodeException e) {
+            redeemStage.finish("invalid");
+            reply.accept(generateEmbed(getMessage("invalid-code"), getMessage("invalid-code-description"), 0xF63B2D));
+            return Outcome.INVALID_CODE;
+        }
+
+        // Only the Discord user the code was issued for can redeem it
+        if (!codeData.getDiscordId().equals(discordId)) {
+            reply.accept(generateEmbed(getMessage("error-occurred"), getMessage("its-not-your-account"), 0xF63B2D));
+            return Outcome.NOT_YOUR_ACCOUNT;
+        }
+
+        // The link may have been removed or moved to someone else since the code was issued
+        ConfirmStageEvent lookupStage = ConfirmStageEvent.start("lookup_link");
+        Optional<LinkedPlayer> link = userManager.findLinkByUuid(codeData.getUuid());
+        lookupStage.finish(link.isPresent() ? "found" : "missing");
+        if (!link.isPresent()) {
+            // Send user the message if he was not found
+            reply.accept(generateEmbed(getMessage("user-not-found"), getMessage("user-not-found-description"), 0xF63B2D));
+            return Outcome.USER_NOT_FOUND;
+        }
+
+        if (!link.get().getDiscordId().equals(discordId)) {
+            reply.accept(generateEmbed(getMessage("error-occurred"), getMessage("its-not-your-account"), 0xF63B2D));
+            return Outcome.NOT_YOUR_ACCOUNT;
+        }
+
+        ConfirmStageEvent updateStage = ConfirmStageEvent.start("update_ip");
+        try {
+            // Confirming the code
+            userManager.updateIp(discordId, codeData.getIpAddress());
+            updateStage.finish("confirmed");
+            statisticsService.increment(StatisticsService.Counter.CODES_REDEEMED);
+            reply.accept(generateEmbed(
+                    getMessage("allowed"),
+                    String.format(getMessage("allowed-to-join-from-ip"), codeData.getIpAddress()),
+                    0x9ACD32));
+            return Outcome.CONFIRMED;
+        } catch (UserNotFoundException e) {
+            updateStage.finish("user_not_found");
+            // Send user the message if he was not found
+            reply.accept(generateEmbed(getMessage("user-not-found"), getMessage("user-not-found-description"), 0xF63B2D));
+            return Outcome.USER_NOT_FOUND;
+        }
+    }
+
+    // Discards the code of a join the Discord user didn't recognize, the player has to request a new one
+    public Outcome deny(String discordId, String code, Consumer<MessageEmbed> reply) {
+        PendingCode codeData;
+        try {
+            codeData = confirmationCodeService.getDataByCodeAndRemove(code);
+        } catch (InvalidCodeException e) {
+            reply.accept(generateEmbed(getMessage("invalid-code"), getMessage("invalid-code-description"), 0xF63B2D));
+            return Outcome.INVALID_CODE;
+        }
+
+        // Discarding needs no lookup, only the user the code was issued for may do it
+        if (!codeData.getDiscordId().equals(discordId)) {
+            reply.accept(generateEmbed(getMessage("error-occurred"), getMessage("its-not-your-account"), 0xF63B2D));
+            return Outcome.NOT_YOUR_ACCOUNT;
+        }
+
+        statisticsService.increment(StatisticsService.Counter.PUSH_DENIED);
+        reply.accept(generateEmbed(
+                getMessage("denied"),
+                String.format(getMessage("denied-join-from-ip"), codeData.getIpAddress()),
+                0xF63B2D));
+        return Outcome.DENIED;
+    }
+
+    private MessageEmbed generateEmbed(String title, String description, int color) {
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setTitle(title);
+        builder.setDescription(description);
+        builder.setColor(color);
+
+        return builder.build();
+    }
+
+    private String getMessage(String key) {
+        return Messages.get(key);
+    }
+}
@@ -0,0 +1,162 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.ShutdownEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.justempire.discordverificator.jfr.ConfirmStageEvent;
+import net.justempire.discordverificator.services.AccountOverviewCache;
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+public class DiscordBot extends ListenerAdapter {
+    // Runs blocking work off the JDA event thread (provided by the platform)
+    private final Executor asyncExecutor;
+    private final Logger logger;
+    private final ConfirmationHandler confirmationHandler;
+    private final AccountsHandler accountsHandler;
+
+    private volatile boolean botEnabled = false;
+
+    public DiscordBot(Executor asyncExecutor, Logger logger, UserManager repository, ConfirmationCodeService confirmationCodeService,
+                      StatisticsService statisticsService, AccountOverviewCache accountOverviewCache) {
+        this.asyncExecutor = asyncExecutor;
+        this.logger = logger;
+        this.confirmationHandler = new ConfirmationHandler(repository, confirmationCodeService, statisticsService);
+        this.accountsHandler = new AccountsHandler(repository, accountOverviewCache);
+    }
+
+    @Override
+    public void onShutdown(@NotNull ShutdownEvent event) {
+        logger.info("Shutting down the bot!");
+        botEnabled = false;
+    }
+
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        event.getJDA().updateCommands().addCommands(SlashCommands.all()).complete();
+
+        botEnabled = true;
+        logger.info("Bot started!");
+    }
+
+    public boolean isBotEnabled() { return botEnabled; }
+
+    @Override
+    public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+        // If command is "confirm"
+        if (event.getName().equals("confirm")) onConfirmSlashCommand(event);
+        else if (event.getName().equals("accounts")) onAccountsSlashCommand(event);
+        else if (event.getName().equals("unlink-account")) onUnlinkAccountSlashCommand(event);
+    }
+
+    private void onConfirmSlashCommand(@NotNull SlashCommandInteractionEvent event) {
+        event.deferReply(true).queue();
+
+        // Measures how long the interaction waits for a worker thread
+        ConfirmStageEvent queued = ConfirmStageEvent.start("queued");
+        asyncExecutor.execute(() -> {
+            queued.finish("started");
+            try {
+                // Getting ID of sender
+                String discordId = event.getUser().getId();
+
+                // Getting the code from command arguments (options)
+                OptionMapping code = event.getOption("code");
+
+                // Use hook instead of reply
+                confirmationHandler.confirm(discordId, code == null ? null : code.getAsString(),
+                        embed -> event.getHook().sendMessageEmbeds(embed).queue());
+            } catch (Exception e) {
+                // Catch unexpected errors to prevent silent failures
+                ErrorReporter.report("Failed to handle /confirm", e);
+                event.getHook().sendMessage("An internal error occurred.").queue();
+            }
+        });
+    }
+
+    private void onAccountsSlashCommand(@NotNull SlashCommandInteractionEvent event) {
+        // Only the user sees the reply, it contains their IP
+        event.deferReply(true).queue();
+
+        asyncExecutor.execute(() -> {
+            try {
+                accountsHandler.accounts(event.getUser().getId(), embed -> event.getHook().sendMessageEmbeds(embed).queue());
+            } catch (Exception e) {
+                // Catch unexpected errors to prevent silent failures
+                ErrorReporter.report("Failed to handle /accounts", e);
+                event.getHook().sendMessage("An internal error occurred.").queue();
+            }
+        });
+    }
+
+    private void onUnlinkAccountSlashCommand(@NotNull SlashCommandInteractionEvent event) {
+        event.deferReply(true).queue();
+
+        asyncExecutor.execute(() -> {
+            try {
+                OptionMapping username = event.getOption("username");
+                accountsHandler.unlinkAccount(event.getUser().getId(), username == null ? null : username.getAsString(),
+                        embed -> event.getHook().sendMessageEmbeds(embed).queue());
+            } catch (Exception e) {
+                // Catch unexpected errors to prevent silent failures
+                ErrorReporter.report("Failed to handle /unlink-account", e);
+                event.getHook().sendMessage("An internal error occurred.").queue();
+            }
+        });
+    }
+
+    @Override
+    public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
+        if (!event.getName().equals("unlink-account") || !event.getFocusedOption().getName().equals("username")) return;
+
+        // Usually answered from the cached overview; the first keystroke may query the store
+        asyncExecutor.execute(() -> {
+            try {
+                event.replyChoiceStrings(accountsHandler.completeUsername(event.getUser().getId(), event.getFocusedOption().getValue())).queue();
+            } catch (Exception e) {
+                ErrorReporter.report("Failed to autocomplete /unlink-account", e);
+            }
+        });
+    }
+
+    @Override
+    public void onButtonInteraction(@NotNull ButtonInteractionEvent event) {
+        // Buttons of the prompts sent by JdaPromptSender, the code follows the prefix
+        String componentId = event.getComponentId();
+        boolean approve = componentId.startsWith(JdaPromptSender.APPROVE_PREFIX);
+        if (!approve && !componentId.startsWith(JdaPromptSender.DENY_PREFIX)) return;
+
+        String code = componentId.substring(approve ? JdaPromptSender.APPROVE_PREFIX.length() : JdaPromptSender.DENY_PREFIX.length());
+        event.deferEdit().queue();
+
+        asyncExecutor.execute(() -> {
+            try {
+                String discordId = event.getUser().getId();
+
+                // The prompt is replaced with the result, so its buttons can't be pressed twice
+                if (approve) {
+                    confirmationHandler.confirm(discordId, code,
+                            embed -> event.getHook().editOriginalEmbeds(embed).setComponents(Collections.emptyList()).queue());
+                } else {
+                    confirmationHandler.deny(discordId, code,
+                            embed -> event.getHook().editOriginalEmbeds(embed).setComponents(Collections.emptyList()).queue());
+                }
+            } catch (Exception e) {
+                // Catch unexpected errors to prevent silent failures
+                ErrorReporter.report("Failed to handle a push prompt button", e);
+                event.getHook().sendMessage("An internal error occurred.").queue();
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package net.justempire.discordverificator.discord;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+// The few REST calls the HTTP interactions mode needs, since it has no JDA session to make them
+public class DiscordRestClient {
+    private static final String API_URL = "https://discord.com/api/v10";
+    private static final String USER_AGENT = "DiscordBot (https://github.com/MrQuackDuck/DiscordVerificator, 1)";
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String token;
+
+    public DiscordRestClient(String token) {
+        this.token = token;
+    }
+
+    // Replaces the global commands of the application with the given ones and returns the application ID
+    public String registerCommands(List<? extends CommandData> commands) throws IOException {
+        String applicationId = request("GET", "/applications/@me", "/applications/@me", null, true).path("id").asText(null);
+        if (applicationId == null) throw new IOException("Discord returned no application ID");
+
+        ArrayNode body = mapper.createArrayNode();
+        for (CommandData command : commands) body.add(mapper.readTree(command.toData().toJson()));
+        request("PUT", "/applications/" + applicationId + "/commands", "/applications/{id}/commands", body, true);
+        return applicationId;
+    }
+
+    // After a deferred response the first followup replaces the "thinking" state; authorized by the interaction token
+    public void sendFollowup(String applicationId, String interactionToken, JsonNode message) throws IOException {
+        request("POST", "/webhooks/" + applicationId + "/" + interactionToken, "/webhooks/{id}/{token}", message, false);
+    }
+
+    // The route is the path without secrets, for error messages
+    private JsonNode request(String method, String path, String route, JsonNode body, boolean authorize) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(API_URL + path).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            if (authorize) connection.setRequestProperty("Authorization", "Bot " + token);
+
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    mapper.writeValue(out, body);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            if (status >= 300) throw new IOException(String.format("%s %s returned HTTP %d", method, route, status));
+            try (InputStream in = connection.getInputStream()) {
+                return status == 204 ? mapper.createObjectNode() : mapper.readTree(in);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
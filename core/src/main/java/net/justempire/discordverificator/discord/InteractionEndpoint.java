@@ -0,0 +1,361 @@
+package net.justempire.discordverificator.discord;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.justempire.discordverificator.jfr.ConfirmStageEvent;
+import net.justempire.discordverificator.services.AccountOverviewCache;
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.ErrorReporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+// Receives the interactions over Discord's "Interactions Endpoint URL" instead of a gateway session.
+// The reply is the response to the request, so commands that finish in time need no further REST call.
+public class InteractionEndpoint {
+    // Discord fails the interaction if there is no response within 3 seconds
+    private static final long INLINE_REPLY_MILLIS = 2500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // A client that doesn't send the body within this time is disconnected, so it can't keep a thread waiting
+    private static final long READ_TIMEOUT_MILLIS = 2000;
+    // Requests and commands waiting for a thread, anything beyond is refused instead of piling up
+    private static final int QUEUED_PER_THREAD = 8;
+
+    private static final int PING = 1;
+    private static final int APPLICATION_COMMAND = 2;
+    private static final int APPLICATION_COMMAND_AUTOCOMPLETE = 4;
+
+    private static final int PONG = 1;
+    private static final int CHANNEL_MESSAGE_WITH_SOURCE = 4;
+    private static final int DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE = 5;
+    private static final int APPLICATION_COMMAND_AUTOCOMPLETE_RESULT = 8;
+    private static final int EPHEMERAL = 64;
+
+    private final int threads;
+    private final Logger logger;
+    private final ConfirmationHandler confirmationHandler;
+    private final AccountsHandler accountsHandler;
+    private final InetSocketAddress address;
+    private final String path;
+    private final String publicKeyHex;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile InteractionSignatureVerifier verifier;
+    private volatile DiscordRestClient restClient;
+    private HttpServer server;
+    // Internet-facing, so they are the endpoint's own and never the platform's shared threads
+    private ThreadPoolExecutor requestExecutor;
+    private ThreadPoolExecutor commandExecutor;
+    private ScheduledThreadPoolExecutor timer;
+
+    // Requests are read and commands are run on separate pools of the given size
+    public InteractionEndpoint(int threads, Logger logger, UserManager repository, ConfirmationCodeService confirmationCodeService,
+                               StatisticsService statisticsService, AccountOverviewCache accountOverviewCache,
+                               String bindAddress, int port, String path, String publicKeyHex) {
+        this.threads = Math.max(1, threads);
+        this.logger = logger;
+        this.confirmationHandler = new ConfirmationHandler(repository, confirmationCodeService, statisticsService);
+        this.accountsHandler = new AccountsHandler(repository, accountOverviewCache);
+        this.address = new InetSocketAddress(bindAddress, port);
+        this.path = path;
+        this.publicKeyHex = publicKeyHex;
+    }
+
+    // The REST client sends the replies of commands that didn't finish in time.
+    // Throws IllegalArgumentException if the public key isn't 64 hex characters.
+    public synchronized void start(DiscordRestClient client) throws IOException, GeneralSecurityException {
+        if (server != null) return;
+
+        verifier = new InteractionSignatureVerifier(publicKeyHex);
+        restClient = client;
+        server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        requestExecutor = boundedExecutor("DiscordVerificator-Interactions", threads);
+        commandExecutor = boundedExecutor("DiscordVerificator-InteractionCommands", threads);
+        timer = new ScheduledThreadPoolExecutor(1, daemonThreads("DiscordVerificator-InteractionTimer"));
+        timer.setRemoveOnCancelPolicy(true);
+        // A request the pool refuses gets its connection closed by the server
+        server.setExecutor(requestExecutor);
+        server.start();
+
+        logger.info(String.format("Listening for Discord interactions on %s:%d%s", address.getHostString(), getPort(), path));
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+
+        // Gives the requests being answered a second to finish
+        server.stop(1);
+        server = null;
+        // Commands still running send their followups, the timer runs the deadlines already scheduled
+        requestExecutor.shutdown();
+        commandExecutor.shutdown();
+        timer.shutdown();
+    }
+
+    public synchronized boolean isRunning() { return server != null; }
+
+    // The bound port, differs from the configured one if that was 0
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : address.getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // Commands answer later, the exchange is closed once their response was sent
+        boolean answered = true;
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendText(exchange, 405, "Only POST is supported");
+                return;
+            }
+
+            byte[] body = readBody(exchange);
+            if (body == null) {
+                sendText(exchange, 413, "Request body too large");
+                return;
+            }
+
+            // Discord sends requests with invalid signatures on purpose and expects them to be rejected
+            Headers headers = exchange.getRequestHeaders();
+            if (!verifier.verify(headers.getFirst("X-Signature-Ed25519"), headers.getFirst("X-Signature-Timestamp"), body)) {
+                sendText(exchange, 401, "Invalid request signature");
+                return;
+            }
+
+            JsonNode interaction;
+            try {
+                interaction = mapper.readTree(body);
+            } catch (IOException e) {
+                sendText(exchange, 400, "Malformed interaction");
+                return;
+            }
+
+            CompletableFuture<ObjectNode> response = respond(interaction);
+            if (response == null) {
+                sendText(exchange, 400, "Unsupported interaction");
+                return;
+            }
+            answered = false;
+            response.thenAccept(result -> sendResponse(exchange, result));
+        } catch (SocketTimeoutException e) {
+            // The connection was closed by the read timeout, nothing can be sent anymore
+        } catch (Exception e) {
+            // Catch unexpected errors to prevent silent failures
+            ErrorReporter.report("Failed to handle an interaction request", e);
+            sendText(exchange, 500, "Internal error");
+        } finally {
+            if (answered) exchange.close();
+        }
+    }
+
+    private void sendResponse(HttpExchange exchange, ObjectNode response) {
+        try {
+            send(exchange, 200, "application/json", mapper.writeValueAsBytes(response));
+        } catch (IOException e) {
+            ErrorReporter.report("Failed to send the response to an interaction", e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Null if the interaction isn't one this plugin handles
+    private CompletableFuture<ObjectNode> respond(JsonNode interaction) {
+        int type = interaction.path("type").asInt();
+        if (type == PING) return CompletableFuture.completedFuture(mapper.createObjectNode().put("type", PONG));
+
+        // "member" is set in guilds, "user" in direct messages
+        String discordId = interaction.path("member").path("user").path("id").asText(null);
+        if (discordId == null) discordId = interaction.path("user").path("id").asText(null);
+        if (discordId == null) return null;
+
+        JsonNode data = interaction.path("data");
+        String name = data.path("name").asText();
+        if (type == APPLICATION_COMMAND) {
+            String userId = discordId;
+            switch (name) {
+                case "confirm":
+                    // Measures how long the interaction waits for a worker thread, like the gateway mode
+                    ConfirmStageEvent queued = ConfirmStageEvent.start("queued");
+                    return reply(interaction, "/confirm", reply -> {
+                        queued.finish("started");
+                        confirmationHandler.confirm(userId, option(data, "code"), reply);
+                    });
+                case "accounts":
+                    return reply(interaction, "/accounts", reply -> accountsHandler.accounts(userId, reply));
+                case "unlink-account":
+                    return reply(interaction, "/unlink-account",
+                            reply -> accountsHandler.unlinkAccount(userId, option(data, "username"), reply));
+                default:
+                    return null;
+            }
+        }
+
+        if (type == APPLICATION_COMMAND_AUTOCOMPLETE && name.equals("unlink-account")) {
+            String prefix = "";
+            for (JsonNode option : data.path("options")) {
+                if (option.path("focused").asBoolean()) prefix = option.path("value").asText("");
+            }
+
+            ArrayNode choices = mapper.createArrayNode();
+            for (String username : accountsHandler.completeUsername(discordId, prefix)) {
+                choices.addObject().put("name", username).put("value", username);
+            }
+            ObjectNode response = mapper.createObjectNode().put("type", APPLICATION_COMMAND_AUTOCOMPLETE_RESULT);
+            response.putObject("data").set("choices", choices);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        return null;
+    }
+
+    // Replies inline if the command finishes in time, otherwise defers and sends the reply as a followup once it does.
+    // No thread waits for the command, the deadline is kept by the timer.
+    private CompletableFuture<ObjectNode> reply(JsonNode interaction, String commandName, Consumer<Consumer<MessageEmbed>> command) {
+        CompletableFuture<MessageEmbed> result = new CompletableFuture<>();
+        try {
+            commandExecutor.execute(() -> {
+                try {
+                    command.accept(result::complete);
+                    // Every handler replies, this only guards against one that doesn't
+                    result.completeExceptionally(new IllegalStateException(commandName + " sent no reply"));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too many commands are already waiting
+            return CompletableFuture.completedFuture(messageResponse(CHANNEL_MESSAGE_WITH_SOURCE, null));
+        }
+
+        CompletableFuture<ObjectNode> response = new CompletableFuture<>();
+        ObjectNode deferred = mapper.createObjectNode().put("type", DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE);
+        deferred.putObject("data").put("flags", EPHEMERAL);
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            if (!response.complete(deferred)) return;
+
+            String applicationId = interaction.path("application_id").asText();
+            String token = interaction.path("token").asText();
+            result.whenComplete((embed, error) -> sendFollowup(commandName, applicationId, token, embed, error));
+        }, INLINE_REPLY_MILLIS, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((embed, error) -> {
+            if (!response.complete(messageResponse(CHANNEL_MESSAGE_WITH_SOURCE, error == null ? embed : null))) return;
+
+            deadline.cancel(false);
+            if (error != null) ErrorReporter.report("Failed to handle " + commandName, error);
+        });
+        return response;
+    }
+
+    private void sendFollowup(String commandName, String applicationId, String token, MessageEmbed embed, Throwable error) {
+        if (error != null) ErrorReporter.report("Failed to handle " + commandName, error);
+        try {
+            restClient.sendFollowup(applicationId, token, messageResponse(0, error == null ? embed : null).path("data"));
+        } catch (IOException e) {
+            ErrorReporter.report("Failed to send the reply to " + commandName, e);
+        }
+    }
+
+    // An ephemeral message with the embed, or the generic error text if it is null
+    private ObjectNode messageResponse(int type, MessageEmbed embed) {
+        ObjectNode response = mapper.createObjectNode().put("type", type);
+        ObjectNode data = response.putObject("data").put("flags", EPHEMERAL);
+        if (embed == null) {
+            data.put("content", "An internal error occurred.");
+            return response;
+        }
+
+        ObjectNode embedNode = data.putArray("embeds").addObject();
+        if (embed.getTitle() != null) embedNode.put("title", embed.getTitle());
+        if (embed.getDescription() != null) embedNode.put("description", embed.getDescription());
+        embedNode.put("color", embed.getColorRaw());
+        return response;
+    }
+
+    // Null if the option wasn't given
+    private static String option(JsonNode data, String name) {
+        for (JsonNode option : data.path("options")) {
+            if (option.path("name").asText().equals(name)) return option.path("value").asText(null);
+        }
+        return null;
+    }
+
+    // Null if the body is larger than the limit
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        // Closing the exchange before the response started closes the connection, which ends the blocked read
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            timedOut.set(true);
+            exchange.close();
+        }, READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY_BYTES) return null;
+                body.write(buffer, 0, read);
+            }
+            return body.toByteArray();
+        } catch (IOException e) {
+            if (timedOut.get()) throw new SocketTimeoutException("The request body wasn't received in time");
+            throw e;
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    // Fixed threads and a bounded queue, execute() throws RejectedExecutionException once it is full
+    private static ThreadPoolExecutor boundedExecutor(String name, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_PER_THREAD), daemonThreads(name));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
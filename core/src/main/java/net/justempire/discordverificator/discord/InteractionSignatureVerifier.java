@@ -0,0 +1,67 @@
+package net.justempire.discordverificator.discord;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+// Checks the Ed25519 signature Discord puts on every request to the interactions endpoint.
+// The signed message is the X-Signature-Timestamp header followed by the raw body.
+// Requests with a timestamp too far from now are refused as well, so a captured request can't be replayed later.
+// Uses the Ed25519 provider of the JDK (Java 15+).
+public class InteractionSignatureVerifier {
+    // DER header of an X.509 Ed25519 public key, followed by the 32 raw key bytes from the developer portal
+    private static final byte[] X509_PREFIX = hexToBytes("302a300506032b6570032100");
+    // How far the timestamp (Unix seconds) may be from the clock of this server, in either direction
+    private static final long MAX_TIMESTAMP_SKEW_SECONDS = 5;
+
+    private final PublicKey publicKey;
+
+    // Throws IllegalArgumentException if the key isn't 64 hex characters, or GeneralSecurityException if the JDK has no Ed25519
+    public InteractionSignatureVerifier(String publicKeyHex) throws GeneralSecurityException {
+        byte[] rawKey = hexToBytes(publicKeyHex.trim());
+        if (rawKey.length != 32) throw new IllegalArgumentException("An Ed25519 public key has 32 bytes");
+
+        byte[] encoded = new byte[X509_PREFIX.length + rawKey.length];
+        System.arraycopy(X509_PREFIX, 0, encoded, 0, X509_PREFIX.length);
+        System.arraycopy(rawKey, 0, encoded, X509_PREFIX.length, rawKey.length);
+        this.publicKey = KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    public boolean verify(String signatureHex, String timestamp, byte[] body) {
+        if (signatureHex == null || timestamp == null || signatureHex.length() != 128) return false;
+        if (!isRecent(timestamp, System.currentTimeMillis() / 1000)) return false;
+        try {
+            // Signature instances aren't thread-safe, and creating one is cheap next to verifying
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initVerify(publicKey);
+            signature.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            signature.update(body);
+            return signature.verify(hexToBytes(signatureHex));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isRecent(String timestamp, long nowSeconds) {
+        try {
+            return Math.abs(nowSeconds - Long.parseLong(timestamp)) <= MAX_TIMESTAMP_SKEW_SECONDS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static byte[] hexToBytes(String hex) {
+        if (hex.length() % 2 != 0) throw new IllegalArgumentException("Odd number of hex characters");
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) throw new IllegalArgumentException("Not a hex character");
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,48 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.components.actionrow.ActionRow;
+import net.dv8tion.jda.api.components.buttons.Button;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.justempire.discordverificator.models.PushPrompt;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Sends prompts as direct messages with approve and deny buttons
+public class JdaPromptSender implements PromptSender {
+    public static final String APPROVE_PREFIX = "dv-approve:";
+    public static final String DENY_PREFIX = "dv-deny:";
+
+    private final Supplier<JDA> jda;
+
+    public JdaPromptSender(Supplier<JDA> jda) {
+        this.jda = jda;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(PushPrompt prompt) {
+        JDA currentJDA = jda.get();
+        if (currentJDA == null) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("The bot is not connected"));
+            return future;
+        }
+
+        EmbedBuilder builder = new EmbedBuilder();
+        builder.setTitle(Messages.get("push-title"));
+        builder.setDescription(String.format(Messages.get("push-description"), prompt.getMinecraftUsername(), prompt.getIpAddress()));
+        builder.setColor(0xF5A623);
+        MessageEmbed embed = builder.build();
+
+        // Opening the DM channel by ID skips fetching the user first
+        return currentJDA.openPrivateChannelById(prompt.getDiscordId())
+                .flatMap(channel -> channel.sendMessageEmbeds(embed).addComponents(ActionRow.of(
+                        Button.success(APPROVE_PREFIX + prompt.getCode(), Messages.get("push-approve")),
+                        Button.danger(DENY_PREFIX + prompt.getCode(), Messages.get("push-deny")))))
+                .submit()
+                .thenAccept(message -> { });
+    }
+}
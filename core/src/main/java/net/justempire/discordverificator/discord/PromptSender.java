@@ -0,0 +1,10 @@
+package net.justempire.discordverificator.discord;
+
+import net.justempire.discordverificator.models.PushPrompt;
+
+import java.util.concurrent.CompletableFuture;
+
+// Delivers a single prompt to Discord; kept as an interface so the queue can be driven without a bot
+public interface PromptSender {
+    CompletableFuture<Void> send(PushPrompt prompt);
+}
@@ -0,0 +1,158 @@
+package net.justempire.discordverificator.discord;
+
+import net.justempire.discordverificator.models.PushPrompt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Outbound prompts waiting for Discord. Sends are paced below Discord's rate limits instead of relying on 429 retries,
+// a newer prompt for the same account replaces the pending one and prompts nobody saw in time are dropped.
+// dispatch() has to be called periodically by the platform.
+public class PushPromptQueue {
+    // Sends stay in a window a little longer than Discord keeps them, since our clock and Discord's don't see them at the same time
+    private static final long WINDOW_MARGIN_MILLIS = 250;
+
+    private final PromptSender sender;
+    private final Logger logger;
+    private final long maxAgeMillis;
+    private final int maxPending;
+    private final int perUserLimit;
+    private final long perUserWindowMillis;
+    private final RateLimiter globalLimiter;
+
+    // Insertion ordered, so the oldest account is served first
+    private final Map<String, PushPrompt> pending = new LinkedHashMap<>();
+    // Every DM channel is its own route on Discord's side
+    private final Map<String, RateLimiter> userLimiters = new HashMap<>();
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder droppedStale = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public PushPromptQueue(PromptSender sender, Logger logger, int globalPerSecond, int perUserLimit, long perUserWindowMillis,
+                           long maxAgeMillis, int maxPending) {
+        this.sender = sender;
+        this.logger = logger;
+        this.globalLimiter = new RateLimiter(Math.max(1, globalPerSecond), 1000);
+        this.perUserLimit = Math.max(1, perUserLimit);
+        this.perUserWindowMillis = perUserWindowMillis;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxPending = maxPending;
+    }
+
+    // Returns false if the prompt can't be queued, in which case the player should confirm with the code instead
+    public synchronized boolean offer(PushPrompt prompt) {
+        if (pending.put(prompt.getDiscordId(), prompt) != null) {
+            coalesced.increment();
+            return true;
+        }
+
+        if (pending.size() > maxPending) {
+            pending.remove(prompt.getDiscordId());
+            rejected.increment();
+            return false;
+        }
+
+        queued.increment();
+        return true;
+    }
+
+    // Sends as many pending prompts as the rate limits allow right now
+    public void dispatch() {
+        long now = System.currentTimeMillis();
+        for (PushPrompt prompt : takeSendable(now)) {
+            sender.send(prompt).whenComplete((result, e) -> {
+                if (e == null) {
+                    sent.increment();
+                    return;
+                }
+                failed.increment();
+                logger.warning(String.format("Could not send the join prompt of %s to Discord user %s: %s",
+                        prompt.getMinecraftUsername(), prompt.getDiscordId(), e.getMessage()));
+            });
+        }
+    }
+
+    private synchronized List<PushPrompt> takeSendable(long now) {
+        List<PushPrompt> sendable = new ArrayList<>();
+        Iterator<PushPrompt> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            PushPrompt prompt = iterator.next();
+            if (now - prompt.getCreatedAtMillis() > maxAgeMillis) {
+                iterator.remove();
+                droppedStale.increment();
+                continue;
+            }
+
+            RateLimiter userLimiter = userLimiters.computeIfAbsent(prompt.getDiscordId(),
+                    id -> new RateLimiter(perUserLimit, perUserWindowMillis));
+            // Prompts of a throttled account wait without holding up the others
+            if (!userLimiter.canAcquire(now)) continue;
+            if (!globalLimiter.tryAcquire(now)) break;
+
+            userLimiter.tryAcquire(now);
+            iterator.remove();
+            sendable.add(prompt);
+        }
+
+        // Limiters without recent sends carry no state worth keeping
+        userLimiters.values().removeIf(limiter -> limiter.isIdle(now));
+        return sendable;
+    }
+
+    public synchronized int getPendingCount() { return pending.size(); }
+
+    public long getQueued() { return queued.sum(); }
+
+    public long getCoalesced() { return coalesced.sum(); }
+
+    public long getRejected() { return rejected.sum(); }
+
+    public long getDroppedStale() { return droppedStale.sum(); }
+
+    public long getSent() { return sent.sum(); }
+
+    public long getFailed() { return failed.sum(); }
+
+    // Sliding window log: at most "limit" sends in any window, which is how Discord counts them
+    private static class RateLimiter {
+        private final int limit;
+        private final long windowMillis;
+        private final ArrayDeque<Long> sentAtMillis = new ArrayDeque<>();
+
+        private RateLimiter(int limit, long windowMillis) {
+            this.limit = limit;
+            this.windowMillis = windowMillis + WINDOW_MARGIN_MILLIS;
+        }
+
+        private void expire(long now) {
+            while (!sentAtMillis.isEmpty() && now - sentAtMillis.peekFirst() >= windowMillis) sentAtMillis.pollFirst();
+        }
+
+        private boolean canAcquire(long now) {
+            expire(now);
+            return sentAtMillis.size() < limit;
+        }
+
+        private boolean tryAcquire(long now) {
+            if (!canAcquire(now)) return false;
+            sentAtMillis.addLast(now);
+            return true;
+        }
+
+        private boolean isIdle(long now) {
+            expire(now);
+            return sentAtMillis.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package net.justempire.discordverificator.discord;
+
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.util.Arrays;
+import java.util.List;
+
+// The slash commands of the bot, registered through the gateway session (DiscordBot) or over REST (InteractionEndpoint)
+final class SlashCommands {
+    private SlashCommands() { }
+
+    static List<SlashCommandData> all() {
+        SlashCommandData confirmData = Commands.slash("confirm", Messages.get("confirm-command"));
+        confirmData.addOption(OptionType.STRING, "code", Messages.get("verification-code-you-got"));
+
+        SlashCommandData accountsData = Commands.slash("accounts", Messages.get("accounts-command"));
+
+        SlashCommandData unlinkAccountData = Commands.slash("unlink-account", Messages.get("unlink-account-command"));
+        unlinkAccountData.addOption(OptionType.STRING, "username", Messages.get("username-to-unlink"), true, true);
+
+        return Arrays.asList(confirmData, accountsData, unlinkAccountData);
+    }
+}
@@ -0,0 +1,8 @@
+package net.justempire.discordverificator.exceptions;
+
+// The user store couldn't answer in time (locked or unreachable database), so a lookup has no reliable result
+public class StorageUnavailableException extends RuntimeException {
+    public StorageUnavailableException(Throwable cause) {
+        super(cause);
+    }
+}
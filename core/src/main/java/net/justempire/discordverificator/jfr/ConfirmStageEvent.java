@@ -0,0 +1,36 @@
+package net.justempire.discordverificator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One stage of a Discord "/confirm" (waiting for a thread, redeeming the code, looking up the link, allowing the IP)
+@Name("discordverificator.ConfirmStage")
+@Label("Confirm Stage")
+@Category({ "DiscordVerificator", "Discord" })
+@Description("A stage of handling the /confirm command")
+@StackTrace(false)
+public class ConfirmStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Result")
+    String result;
+
+    public static ConfirmStageEvent start(String stage) {
+        ConfirmStageEvent event = new ConfirmStageEvent();
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    public void finish(String result) {
+        end();
+        if (!shouldCommit()) return;
+        this.result = result;
+        commit();
+    }
+}
@@ -0,0 +1,63 @@
+package net.justempire.discordverificator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+// Duration and outcome of a single pre-login check. Only recorded while a JFR recording is running.
+@Name("discordverificator.PreLoginDecision")
+@Label("Pre-Login Decision")
+@Category({ "DiscordVerificator", "Pre-Login" })
+@Description("Whether a joining player was admitted, and why not")
+@StackTrace(false)
+public class PreLoginDecisionEvent extends Event {
+    // New on every start, so a hash can't be looked up in a table of known usernames or matched across restarts
+    private static final byte[] SALT = new byte[16];
+
+    static {
+        new SecureRandom().nextBytes(SALT);
+    }
+
+    @Label("Outcome")
+    String outcome;
+
+    // The username itself isn't recorded, so recordings can be shared.
+    // Equal within one run, so the joins of one player can still be followed.
+    @Label("Username Hash")
+    long usernameHash;
+
+    public static PreLoginDecisionEvent start() {
+        PreLoginDecisionEvent event = new PreLoginDecisionEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String outcome, String username) {
+        end();
+        if (!shouldCommit()) return;
+        this.outcome = outcome;
+        this.usernameHash = hash(username.toLowerCase());
+        commit();
+    }
+
+    // The first 8 bytes of the salted SHA-256
+    private static long hash(String username) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SALT);
+            return ByteBuffer.wrap(digest.digest(username.getBytes(StandardCharsets.UTF_8))).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
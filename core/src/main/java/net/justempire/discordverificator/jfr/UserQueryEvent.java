@@ -0,0 +1,37 @@
+package net.justempire.discordverificator.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A UserManager operation, so JDBC (or journal) frames in a profile can be attributed to it
+@Name("discordverificator.UserQuery")
+@Label("User Query")
+@Category({ "DiscordVerificator", "Storage" })
+@Description("A single UserManager operation")
+@StackTrace(false)
+public class UserQueryEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    @Description("Rows found or changed")
+    int rows;
+
+    public static UserQueryEvent start(String operation) {
+        UserQueryEvent event = new UserQueryEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void finish(int rows) {
+        end();
+        if (!shouldCommit()) return;
+        this.rows = rows;
+        commit();
+    }
+}
@@ -0,0 +1,42 @@
+package net.justempire.discordverificator.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Everything "/accounts" shows about a Discord profile, read with a single query.
+// Immutable, so one instance can be cached and shared between threads.
+public final class AccountOverview {
+    private final String discordId;
+    private final String currentAllowedIp;
+    private final List<Account> accounts;
+
+    public AccountOverview(String discordId, String currentAllowedIp, List<Account> accounts) {
+        this.discordId = discordId;
+        this.currentAllowedIp = currentAllowedIp;
+        this.accounts = Collections.unmodifiableList(new ArrayList<>(accounts));
+    }
+
+    public String getDiscordId() { return discordId; }
+
+    // Null or empty if no IP was confirmed yet
+    public String getCurrentAllowedIp() { return currentAllowedIp; }
+
+    // In case-insensitive order of the username
+    public List<Account> getAccounts() { return accounts; }
+
+    public static final class Account {
+        private final String minecraftUsername;
+        private final long lastLoginMillis;
+
+        public Account(String minecraftUsername, long lastLoginMillis) {
+            this.minecraftUsername = minecraftUsername;
+            this.lastLoginMillis = lastLoginMillis;
+        }
+
+        public String getMinecraftUsername() { return minecraftUsername; }
+
+        // 0 if the player never joined since the link was made
+        public long getLastLoginMillis() { return lastLoginMillis; }
+    }
+}
@@ -0,0 +1,36 @@
+package net.justempire.discordverificator.models;
+
+import java.time.Instant;
+import java.util.List;
+
+// A Discord profile that used an IP, as returned by the reverse IP index
+public class IpIndexEntry {
+    private final String ipAddress;
+    private final String discordId;
+    private final List<String> minecraftUsernames;
+    private final boolean everAllowed;
+    private final int codesRequested;
+    private final Instant lastSeen;
+
+    public IpIndexEntry(String ipAddress, String discordId, List<String> minecraftUsernames, boolean everAllowed, int codesRequested, Instant lastSeen) {
+        this.ipAddress = ipAddress;
+        this.discordId = discordId;
+        this.minecraftUsernames = minecraftUsernames;
+        this.everAllowed = everAllowed;
+        this.codesRequested = codesRequested;
+        this.lastSeen = lastSeen;
+    }
+
+    public String getIpAddress() { return ipAddress; }
+
+    public String getDiscordId() { return discordId; }
+
+    public List<String> getMinecraftUsernames() { return minecraftUsernames; }
+
+    // Whether the profile was allowed to join from this IP at some point
+    public boolean isEverAllowed() { return everAllowed; }
+
+    public int getCodesRequested() { return codesRequested; }
+
+    public Instant getLastSeen() { return lastSeen; }
+}
@@ -0,0 +1,22 @@
+package net.justempire.discordverificator.models;
+
+import java.util.UUID;
+
+// A Minecraft account linked to a Discord profile. The username is only the last one seen for the UUID.
+public class LinkedPlayer {
+    private final UUID uuid;
+    private final String minecraftUsername;
+    private final String discordId;
+
+    public LinkedPlayer(UUID uuid, String minecraftUsername, String discordId) {
+        this.uuid = uuid;
+        this.minecraftUsername = minecraftUsername;
+        this.discordId = discordId;
+    }
+
+    public UUID getUuid() { return uuid; }
+
+    public String getMinecraftUsername() { return minecraftUsername; }
+
+    public String getDiscordId() { return discordId; }
+}
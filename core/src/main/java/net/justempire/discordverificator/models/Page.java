@@ -0,0 +1,19 @@
+package net.justempire.discordverificator.models;
+
+import java.util.List;
+
+// A page of a listing, and where the next page starts. Only the store that returned the cursor understands it.
+public class Page<T> {
+    private final List<T> items;
+    private final String cursor;
+
+    public Page(List<T> items, String cursor) {
+        this.items = items;
+        this.cursor = cursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    // Pass this to get the page after this one (null if the page is empty and nothing came before)
+    public String getCursor() { return cursor; }
+}
@@ -0,0 +1,27 @@
+package net.justempire.discordverificator.models;
+
+import java.util.UUID;
+
+// What a verification code was issued for: the join of a linked player from a new IP
+public class PendingCode {
+    // The link the code was issued for, the code can only be redeemed by the same Discord user
+    private final String discordId;
+    private final UUID uuid;
+    private final String minecraftUsername;
+    private final String ipAddress;
+
+    public PendingCode(String discordId, UUID uuid, String minecraftUsername, String ipAddress) {
+        this.discordId = discordId;
+        this.uuid = uuid;
+        this.minecraftUsername = minecraftUsername;
+        this.ipAddress = ipAddress;
+    }
+
+    public String getDiscordId() { return discordId; }
+
+    public UUID getUuid() { return uuid; }
+
+    public String getMinecraftUsername() { return minecraftUsername; }
+
+    public String getIpAddress() { return ipAddress; }
+}
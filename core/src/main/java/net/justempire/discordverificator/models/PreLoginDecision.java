@@ -0,0 +1,49 @@
+package net.justempire.discordverificator.models;
+
+// Result of the pre-login check, rendered into a kick message by the platform adapter
+public class PreLoginDecision {
+    public enum Outcome {
+        ADMITTED,
+        // Admitted by the IP remembered before the database became unavailable
+        ADMITTED_FROM_CACHE,
+        NOT_LINKED,
+        BOT_NOT_WORKING,
+        THROTTLED,
+        CODE_REQUIRED,
+        DATABASE_UNAVAILABLE,
+        // Too many attempts from the IP or its network, decided before any lookup
+        FLOODED
+    }
+
+    private static final PreLoginDecision ADMITTED = new PreLoginDecision(Outcome.ADMITTED, null);
+    private static final PreLoginDecision ADMITTED_FROM_CACHE = new PreLoginDecision(Outcome.ADMITTED_FROM_CACHE, null);
+
+    private final Outcome outcome;
+    private final String messageKey;
+    private final Object[] messageArguments;
+
+    private PreLoginDecision(Outcome outcome, String messageKey, Object... messageArguments) {
+        this.outcome = outcome;
+        this.messageKey = messageKey;
+        this.messageArguments = messageArguments;
+    }
+
+    public static PreLoginDecision admitted() { return ADMITTED; }
+
+    public static PreLoginDecision admittedFromCache() { return ADMITTED_FROM_CACHE; }
+
+    public static PreLoginDecision kick(Outcome outcome, String messageKey, Object... messageArguments) {
+        return new PreLoginDecision(outcome, messageKey, messageArguments);
+    }
+
+    public boolean isAdmitted() { return outcome == Outcome.ADMITTED || outcome == Outcome.ADMITTED_FROM_CACHE; }
+
+    public Outcome getOutcome() { return outcome; }
+
+    public String getMessageKey() { return messageKey; }
+
+    // Fills the message template (already taken from the config by the caller) with the arguments
+    public String formatMessage(String template) {
+        return String.format(template, messageArguments);
+    }
+}
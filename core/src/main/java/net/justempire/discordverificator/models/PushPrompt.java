@@ -0,0 +1,29 @@
+package net.justempire.discordverificator.models;
+
+// A request sent to the linked Discord user to approve or deny a join from a new IP
+public class PushPrompt {
+    private final String discordId;
+    private final String minecraftUsername;
+    private final String ipAddress;
+    private final String code;
+    private final long createdAtMillis;
+
+    public PushPrompt(String discordId, String minecraftUsername, String ipAddress, String code, long createdAtMillis) {
+        this.discordId = discordId;
+        this.minecraftUsername = minecraftUsername;
+        this.ipAddress = ipAddress;
+        this.code = code;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    public String getDiscordId() { return discordId; }
+
+    public String getMinecraftUsername() { return minecraftUsername; }
+
+    public String getIpAddress() { return ipAddress; }
+
+    // The same code the player got in the kick message, so typing /confirm still works
+    public String getCode() { return code; }
+
+    public long getCreatedAtMillis() { return createdAtMillis; }
+}
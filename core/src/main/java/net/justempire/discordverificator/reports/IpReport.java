@@ -0,0 +1,46 @@
+package net.justempire.discordverificator.reports;
+
+import net.justempire.discordverificator.models.IpIndexEntry;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// The "/dvip" output as lines from the messages, colorized by the platform
+public class IpReport {
+    private static final int PAGE_SIZE = 8;
+    private static final DateTimeFormatter SEEN_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm 'UTC'").withZone(ZoneOffset.UTC);
+
+    private final UserManager userManager;
+
+    public IpReport(UserManager userManager) {
+        this.userManager = userManager;
+    }
+
+    // The query has to be a valid IP or CIDR range. Reads the database, should be called asynchronously.
+    public List<String> lines(String query, int page) {
+        List<String> lines = new ArrayList<>();
+        int total = userManager.countAccountsByIp(query);
+        if (total == 0) {
+            lines.add(String.format(Messages.get("ip-no-accounts-found"), query));
+            return lines;
+        }
+
+        int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+        List<IpIndexEntry> entries = userManager.findAccountsByIp(query, (page - 1) * PAGE_SIZE, PAGE_SIZE);
+
+        lines.add(Messages.get("separator"));
+        lines.add(String.format(Messages.get("ip-title"), query, page, pages, total));
+        for (IpIndexEntry entry : entries) {
+            String usernames = entry.getMinecraftUsernames().isEmpty() ? Messages.get("ip-no-linked-players") : String.join(", ", entry.getMinecraftUsernames());
+            lines.add(String.format(Messages.get("ip-entry"), entry.getIpAddress(), entry.getDiscordId(), usernames));
+            lines.add(String.format(Messages.get("ip-entry-details"),
+                    Messages.get(entry.isEverAllowed() ? "ip-allowed" : "ip-never-allowed"), entry.getCodesRequested(), SEEN_FORMAT.format(entry.getLastSeen())));
+        }
+        lines.add(Messages.get("separator"));
+        return lines;
+    }
+}
@@ -0,0 +1,100 @@
+package net.justempire.discordverificator.reports;
+
+import net.justempire.discordverificator.discord.PushPromptQueue;
+import net.justempire.discordverificator.services.BackupMetrics;
+import net.justempire.discordverificator.services.CircuitBreaker;
+import net.justempire.discordverificator.services.ConsistencyVerifier;
+import net.justempire.discordverificator.services.DatabaseBackupService;
+import net.justempire.discordverificator.services.DatabaseService;
+import net.justempire.discordverificator.services.JoinFloodGuard;
+import net.justempire.discordverificator.services.TransactionMetrics;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// The "/dvmetrics" output as lines with "&" color codes, colorized by the platform
+public class MetricsReport {
+    private final DatabaseService databaseService;
+    private final DatabaseBackupService backupService;
+    // Null if push verification is disabled
+    private final PushPromptQueue pushPromptQueue;
+    // Null if flood protection is disabled
+    private final JoinFloodGuard joinFloodGuard;
+    // Null if the consistency check is disabled
+    private final ConsistencyVerifier consistencyVerifier;
+
+    public MetricsReport(DatabaseService databaseService, DatabaseBackupService backupService, PushPromptQueue pushPromptQueue,
+                         JoinFloodGuard joinFloodGuard, ConsistencyVerifier consistencyVerifier) {
+        this.databaseService = databaseService;
+        this.backupService = backupService;
+        this.pushPromptQueue = pushPromptQueue;
+        this.joinFloodGuard = joinFloodGuard;
+        this.consistencyVerifier = consistencyVerifier;
+    }
+
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        TransactionMetrics transactions = databaseService.getTransactionMetrics();
+
+        lines.add(Messages.get("separator"));
+        lines.add("&6&l DiscordVerificator metrics");
+        lines.add(String.format("&7 Transactions: &f%d committed, %d rolled back",
+                transactions.getCommits(), transactions.getRollbacks()));
+        lines.add(String.format("&7 Statements per transaction: &favg %.1f, max %d",
+                transactions.getAverageStatements(), transactions.getMaxStatements()));
+        lines.add(String.format("&7 Commit latency: &favg %.2f ms, max %.2f ms",
+                transactions.getAverageCommitMillis(), transactions.getMaxCommitMillis()));
+
+        CircuitBreaker breaker = databaseService.getCircuitBreaker();
+        lines.add(String.format("&7 Circuit breaker: &f%s, tripped %d times",
+                breaker.getState(), breaker.getTrips()));
+        lines.add(String.format("&7 Database calls: &f%d made, %d failed, %d slow, %d rejected",
+                breaker.getCalls(), breaker.getFailures(), breaker.getSlowCalls(), breaker.getRejected()));
+
+        BackupMetrics backups = backupService.getMetrics();
+        lines.add(String.format("&7 Backups: &f%d made, %d failed",
+                backups.getBackups(), backups.getFailures()));
+        if (backups.getLastBackupAtMillis() > 0) {
+            long minutesAgo = (System.currentTimeMillis() - backups.getLastBackupAtMillis()) / 60_000;
+            lines.add(String.format("&7 Last backup: &f%d min ago, %d ms, %d KB (max %d ms)",
+                    minutesAgo, backups.getLastDurationMillis(), backups.getLastSizeBytes() / 1024, backups.getMaxDurationMillis()));
+        }
+
+        if (joinFloodGuard != null) {
+            lines.add(String.format("&7 Flood protection: &f%d attempts blocked, %d IP and %d network blocks, %d active",
+                    joinFloodGuard.getBlockedAttempts(), joinFloodGuard.getIpBlocks(), joinFloodGuard.getPrefixBlocks(), joinFloodGuard.getActiveBlockCount()));
+        }
+        if (pushPromptQueue != null) {
+            lines.add(String.format("&7 Push prompts: &f%d queued, %d coalesced, %d sent, %d failed",
+                    pushPromptQueue.getQueued(), pushPromptQueue.getCoalesced(), pushPromptQueue.getSent(), pushPromptQueue.getFailed()));
+            lines.add(String.format("&7 Push prompts dropped: &f%d stale, %d over capacity, %d pending",
+                    pushPromptQueue.getDroppedStale(), pushPromptQueue.getRejected(), pushPromptQueue.getPendingCount()));
+        }
+
+        if (consistencyVerifier != null) {
+            lines.add(String.format("&7 Consistency: &f%d decisions checked, %d contradicted, %d superseded, %d dropped",
+                    consistencyVerifier.getSamplesChecked(), consistencyVerifier.getContradictedDecisions(),
+                    consistencyVerifier.getSupersededDecisions(), consistencyVerifier.getSamplesDropped()));
+            lines.add(String.format("&7 Consistency sweep: &f%d links, %d passes",
+                    consistencyVerifier.getLinksSwept(), consistencyVerifier.getSweepPasses()));
+            lines.add(String.format("&7 Repaired: &f%d allowed IPs, %d API entries, %d overviews, %d completions",
+                    consistencyVerifier.getRepairs(ConsistencyVerifier.State.ALLOWED_IP_CACHE),
+                    consistencyVerifier.getRepairs(ConsistencyVerifier.State.API_CACHE),
+                    consistencyVerifier.getRepairs(ConsistencyVerifier.State.ACCOUNT_OVERVIEW_CACHE),
+                    consistencyVerifier.getRepairs(ConsistencyVerifier.State.COMPLETION_INDEX)));
+        }
+
+        // The most frequent kinds of errors since the start
+        Map<String, Long> errorCounts = ErrorReporter.getCounts();
+        lines.add(String.format("&7 Errors: &f%d reported, %d kinds",
+                ErrorReporter.getTotal(), errorCounts.size()));
+        errorCounts.entrySet().stream().limit(3).forEach(entry ->
+                lines.add(String.format("&7   %s: &f%d", entry.getKey(), entry.getValue())));
+        lines.add(Messages.get("separator"));
+
+        return lines;
+    }
+}
@@ -0,0 +1,45 @@
+package net.justempire.discordverificator.reports;
+
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.StatisticsService.Counter;
+import net.justempire.discordverificator.services.StatisticsService.Period;
+import net.justempire.discordverificator.utils.Messages;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// The "/dvstats" output as lines from the messages, colorized by the platform
+public class StatsReport {
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm 'UTC'").withZone(ZoneOffset.UTC);
+
+    private final StatisticsService statisticsService;
+
+    public StatsReport(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    // Reads the database, should be called asynchronously
+    public List<String> lines(Period period, long bucketStart) {
+        Map<Counter, Long> counters = statisticsService.getCounters(period, bucketStart);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(Messages.get("separator"));
+        lines.add(String.format(Messages.get("stats-title"), period.name().toLowerCase(), BUCKET_FORMAT.format(Instant.ofEpochSecond(bucketStart))));
+        lines.add(String.format(Messages.get("stats-codes-issued"), counters.get(Counter.CODES_ISSUED)));
+        lines.add(String.format(Messages.get("stats-codes-redeemed"), counters.get(Counter.CODES_REDEEMED)));
+        lines.add(String.format(Messages.get("stats-joins-admitted"), counters.get(Counter.JOINS_ADMITTED)));
+        lines.add(String.format(Messages.get("stats-joins-admitted-from-cache"), counters.get(Counter.JOINS_ADMITTED_FROM_CACHE)));
+        lines.add(String.format(Messages.get("stats-kicks-not-linked"), counters.get(Counter.KICK_NOT_LINKED)));
+        lines.add(String.format(Messages.get("stats-kicks-bot-not-working"), counters.get(Counter.KICK_BOT_NOT_WORKING)));
+        lines.add(String.format(Messages.get("stats-kicks-throttled"), counters.get(Counter.KICK_THROTTLED)));
+        lines.add(String.format(Messages.get("stats-kicks-database-unavailable"), counters.get(Counter.KICK_DATABASE_UNAVAILABLE)));
+        lines.add(String.format(Messages.get("stats-kicks-flooded"), counters.get(Counter.KICK_FLOODED)));
+        lines.add(String.format(Messages.get("stats-push-denied"), counters.get(Counter.PUSH_DENIED)));
+        lines.add(Messages.get("separator"));
+        return lines;
+    }
+}
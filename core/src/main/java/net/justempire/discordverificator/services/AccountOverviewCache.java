@@ -0,0 +1,115 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.models.User;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+// Account overviews of the Discord users that recently used "/accounts", so repeated commands and autocompletion don't query the store.
+// Entries are dropped when a link or the allowed IP of the profile changes, and otherwise expire after a short time
+// (login times aren't tracked as changes, and other servers sharing the database don't notify this one).
+public class AccountOverviewCache implements LinkListener {
+    private static final int MAX_ENTRIES = 1000;
+    private static final long TTL_MILLIS = 30_000;
+
+    private final UserManager userManager;
+
+    // Discord ID -> overview, or null for a profile that doesn't exist
+    private final Map<String, CachedOverview> cache = new LinkedHashMap<String, CachedOverview>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedOverview> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // Bumped by every change, so a load that raced with one doesn't cache what it read before it
+    private long generation;
+
+    public AccountOverviewCache(UserManager userManager) {
+        this.userManager = userManager;
+    }
+
+    // Must be called asynchronously, a miss queries the store
+    public Optional<AccountOverview> get(String discordId) {
+        long readGeneration;
+        synchronized (this) {
+            CachedOverview cached = cache.get(discordId);
+            if (cached != null && System.currentTimeMillis() - cached.cachedAtMillis <= TTL_MILLIS) {
+                return Optional.ofNullable(cached.overview);
+            }
+            readGeneration = generation;
+        }
+
+        Optional<AccountOverview> overview = userManager.findAccountOverview(discordId);
+        synchronized (this) {
+            if (readGeneration == generation) cache.put(discordId, new CachedOverview(overview.orElse(null), System.currentTimeMillis()));
+        }
+        return overview;
+    }
+
+    public synchronized void invalidate(String discordId) {
+        generation++;
+        cache.remove(discordId);
+    }
+
+    // Drops the cached overview if its accounts or IP disagree with the stored user (null if it has no links).
+    // Returns true if a stale entry was dropped.
+    public synchronized boolean repair(String discordId, User user) {
+        CachedOverview cached = cache.get(discordId);
+        if (cached == null) return false;
+        if (matches(cached.overview, user)) return false;
+
+        invalidate(discordId);
+        return true;
+    }
+
+    private static boolean matches(AccountOverview overview, User user) {
+        if (overview == null || overview.getAccounts().isEmpty()) return user == null || user.linkedMinecraftUsernames.isEmpty();
+        if (user == null || !Objects.equals(emptyToNull(overview.getCurrentAllowedIp()), emptyToNull(user.getCurrentAllowedIp()))) return false;
+
+        Set<String> cachedUsernames = new HashSet<>();
+        for (AccountOverview.Account account : overview.getAccounts()) cachedUsernames.add(account.getMinecraftUsername().toLowerCase());
+        Set<String> storedUsernames = new HashSet<>();
+        for (String username : user.linkedMinecraftUsernames) storedUsernames.add(username.toLowerCase());
+        return cachedUsernames.equals(storedUsernames);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void onLinked(String minecraftUsername, String discordId) {
+        invalidate(discordId);
+    }
+
+    @Override
+    public synchronized void onUnlinked(String minecraftUsername, String discordId) {
+        // The profile isn't known if the link disappeared before it could be looked up
+        if (discordId != null) {
+            invalidate(discordId);
+            return;
+        }
+        generation++;
+        cache.clear();
+    }
+
+    @Override
+    public void onIpConfirmed(String discordId, String ipAddress) {
+        invalidate(discordId);
+    }
+
+    private static final class CachedOverview {
+        private final AccountOverview overview;
+        private final long cachedAtMillis;
+
+        private CachedOverview(AccountOverview overview, long cachedAtMillis) {
+            this.overview = overview;
+            this.cachedAtMillis = cachedAtMillis;
+        }
+    }
+}
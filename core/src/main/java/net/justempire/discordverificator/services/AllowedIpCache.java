@@ -0,0 +1,63 @@
+package net.justempire.discordverificator.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Remembers the IP each player was last admitted from, so joins can still be decided while the database is unavailable
+public class AllowedIpCache {
+    private final long ttlMillis;
+    private final Map<UUID, Entry> entries;
+
+    public AllowedIpCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        // Least recently admitted players are dropped first
+        this.entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized void remember(UUID uuid, String ip) {
+        entries.put(uuid, new Entry(ip, System.currentTimeMillis()));
+    }
+
+    public synchronized boolean isAllowed(UUID uuid, String ip) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) return false;
+        if (System.currentTimeMillis() - entry.admittedAtMillis > ttlMillis) {
+            entries.remove(uuid);
+            return false;
+        }
+        return entry.ip.equals(ip);
+    }
+
+    public synchronized List<UUID> getUuids() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    // Drops the remembered IP if it isn't the allowed one any more (null if the player isn't linked).
+    // Returns true if a stale entry was dropped.
+    public synchronized boolean repair(UUID uuid, String allowedIp) {
+        Entry entry = entries.get(uuid);
+        if (entry == null || entry.ip.equals(allowedIp)) return false;
+
+        entries.remove(uuid);
+        // Expired entries are never used, so they weren't wrong
+        return System.currentTimeMillis() - entry.admittedAtMillis <= ttlMillis;
+    }
+
+    private static class Entry {
+        private final String ip;
+        private final long admittedAtMillis;
+
+        private Entry(String ip, long admittedAtMillis) {
+            this.ip = ip;
+            this.admittedAtMillis = admittedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package net.justempire.discordverificator.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Duration and size of the snapshots made by DatabaseBackupService
+public class BackupMetrics {
+    private final LongAdder backups = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastDurationMillis = new AtomicLong();
+    private final AtomicLong maxDurationMillis = new AtomicLong();
+    private final AtomicLong lastSizeBytes = new AtomicLong();
+    private final AtomicLong lastBackupAtMillis = new AtomicLong();
+
+    void recordBackup(long durationMillis, long sizeBytes) {
+        backups.increment();
+        lastDurationMillis.set(durationMillis);
+        maxDurationMillis.accumulateAndGet(durationMillis, Math::max);
+        lastSizeBytes.set(sizeBytes);
+        lastBackupAtMillis.set(System.currentTimeMillis());
+    }
+
+    void recordFailure() { failures.increment(); }
+
+    public long getBackups() { return backups.sum(); }
+
+    public long getFailures() { return failures.sum(); }
+
+    public long getLastDurationMillis() { return lastDurationMillis.get(); }
+
+    public long getMaxDurationMillis() { return maxDurationMillis.get(); }
+
+    public long getLastSizeBytes() { return lastSizeBytes.get(); }
+
+    // Returns 0 if no backup was made yet
+    public long getLastBackupAtMillis() { return lastBackupAtMillis.get(); }
+}
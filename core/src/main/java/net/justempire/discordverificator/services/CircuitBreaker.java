@@ -0,0 +1,101 @@
+package net.justempire.discordverificator.services;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Stops sending calls to the database after repeated slow or failed calls, so callers fail fast instead of piling up.
+// After the open period a single trial call is let through: its success closes the breaker, its failure opens it again.
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final Logger logger;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder trips = new LongAdder();
+
+    public CircuitBreaker(Logger logger, int failureThreshold, long slowCallMillis, long openMillis) {
+        this.logger = logger;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallNanos = slowCallMillis * 1_000_000;
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    // Returns false if the call must not be made; otherwise the caller has to report it with onSuccess or onFailure
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+            rejected.increment();
+            return false;
+        }
+
+        if (state == State.HALF_OPEN) trialInFlight = true;
+        calls.increment();
+        return true;
+    }
+
+    // The database answered; a slow answer still counts towards tripping
+    public void onSuccess(long elapsedNanos) {
+        if (elapsedNanos >= slowCallNanos) {
+            slowCalls.increment();
+            recordFailure();
+            return;
+        }
+
+        synchronized (this) {
+            if (state != State.CLOSED) logger.info("The database is responding again, closing the circuit breaker.");
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            state = State.CLOSED;
+        }
+    }
+
+    // The database timed out, was busy or could not be reached
+    public void onFailure() {
+        failures.increment();
+        recordFailure();
+    }
+
+    private synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                trips.increment();
+                logger.warning(String.format("The database is unavailable after %d slow or failed queries, failing fast for %d seconds.",
+                        consecutiveFailures, openNanos / 1_000_000_000));
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() { return state; }
+
+    public long getCalls() { return calls.sum(); }
+
+    public long getFailures() { return failures.sum(); }
+
+    public long getSlowCalls() { return slowCalls.sum(); }
+
+    public long getRejected() { return rejected.sum(); }
+
+    public long getTrips() { return trips.sum(); }
+}
@@ -0,0 +1,18 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.PendingCode;
+
+import java.util.Optional;
+
+// Storage for pending verification codes (codes are always passed in lower case).
+// put and redeem throw StorageUnavailableException if the store can't be reached.
+public interface CodeStore {
+    // Returns false if another pending code has the same value, the caller then has to pick another code
+    boolean put(String code, PendingCode data, long expiresAtMillis);
+
+    // Removes the code and returns its data in one atomic step, so a code can only be redeemed once
+    Optional<PendingCode> redeem(String code, long nowMillis);
+
+    // Returns the amount of removed codes
+    int removeExpired(long nowMillis);
+}
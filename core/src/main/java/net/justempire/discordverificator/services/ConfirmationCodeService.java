@@ -0,0 +1,43 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.exceptions.InvalidCodeException;
+import net.justempire.discordverificator.models.PendingCode;
+import net.justempire.discordverificator.utils.VerificationCodeGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class ConfirmationCodeService {
+    private static final long DEFAULT_TTL_SECONDS = 600;
+    // Codes are short, so a new one can be taken by another pending code
+    private static final int MAX_CODE_ATTEMPTS = 10;
+
+    private final CodeStore codeStore;
+    private final long ttlMillis;
+
+    public ConfirmationCodeService() { this(new InMemoryCodeStore(), DEFAULT_TTL_SECONDS); }
+
+    public ConfirmationCodeService(CodeStore codeStore, long ttlSeconds) {
+        this.codeStore = codeStore;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    // Returns code. The code belongs to the link of the given Discord user and player UUID.
+    public String generateVerificationCode(String discordId, UUID uuid, String username, String ip) {
+        PendingCode data = new PendingCode(discordId, uuid, username, ip);
+        for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+            String code = VerificationCodeGenerator.generateVerificationCode();
+            if (codeStore.put(code.toLowerCase(), data, System.currentTimeMillis() + ttlMillis)) return code;
+        }
+        throw new IllegalStateException("No free verification code found in " + MAX_CODE_ATTEMPTS + " attempts");
+    }
+
+    public PendingCode getDataByCodeAndRemove(String code) throws InvalidCodeException {
+        return codeStore.redeem(code.toLowerCase(), System.currentTimeMillis()).orElseThrow(InvalidCodeException::new);
+    }
+
+    // Removes codes that weren't redeemed in time
+    public int removeExpiredCodes() {
+        return codeStore.removeExpired(System.currentTimeMillis());
+    }
+}
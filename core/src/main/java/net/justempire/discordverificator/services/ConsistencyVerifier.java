@@ -0,0 +1,295 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.models.PreLoginDecision.Outcome;
+import net.justempire.discordverificator.models.User;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Compares what is kept in memory next to the user store with the stored rows, off the join thread.
+// A sample of the join decisions is re-read shortly after it was served, and a sweep walks every link page by page
+// every few hours.
+// In-memory state that disagrees with the store is repaired (dropped, or added to the completion index) and counted.
+public class ConsistencyVerifier implements LinkListener {
+    private static final int MAX_PENDING_SAMPLES = 1000;
+    private static final int MAX_TRACKED_CHANGES = 10_000;
+
+    // The in-memory state that is checked
+    public enum State {
+        ALLOWED_IP_CACHE,
+        API_CACHE,
+        ACCOUNT_OVERVIEW_CACHE,
+        COMPLETION_INDEX
+    }
+
+    private final UserManager userManager;
+    private final Logger logger;
+    private final AllowedIpCache allowedIpCache;
+    private final VerificatorApiService apiService;
+    private final AccountOverviewCache accountOverviewCache;
+    private final LinkCompletionIndex completionIndex;
+    private final double sampleRate;
+    private final int sweepBatchSize;
+    private final long sweepIntervalMillis;
+
+    private final BlockingQueue<ServedDecision> samples = new ArrayBlockingQueue<>(MAX_PENDING_SAMPLES);
+    // Players with a remembered IP still to be checked in this pass, the walk over the links can't reach unlinked ones
+    private final Deque<UUID> rememberedToCheck = new ArrayDeque<>();
+    // When a link or IP was last changed through UserManager, by "u:" + lowercase username and "d:" + Discord ID.
+    // A row that changed after it was read is expected to differ, that isn't counted as a divergence.
+    private final Map<String, Long> changedAtMillis = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_TRACKED_CHANGES;
+        }
+    };
+
+    private final Map<State, LongAdder> repairs = new EnumMap<>(State.class);
+    private final LongAdder samplesChecked = new LongAdder();
+    private final LongAdder samplesDropped = new LongAdder();
+    private final LongAdder contradictedDecisions = new LongAdder();
+    private final LongAdder supersededDecisions = new LongAdder();
+    private final LongAdder linksSwept = new LongAdder();
+    private final LongAdder sweepPasses = new LongAdder();
+
+    // Last username swept, the next run continues after it
+    private String sweepCursor;
+    private boolean passInProgress;
+    private long nextPassAtMillis;
+    private int passLinks;
+    private long repairsAtPassStart;
+
+    public ConsistencyVerifier(UserManager userManager, Logger logger, AllowedIpCache allowedIpCache, VerificatorApiService apiService,
+                               AccountOverviewCache accountOverviewCache, LinkCompletionIndex completionIndex,
+                               double sampleRate, int sweepBatchSize, long sweepIntervalMillis) {
+        this.userManager = userManager;
+        this.logger = logger;
+        this.allowedIpCache = allowedIpCache;
+        this.apiService = apiService;
+        this.accountOverviewCache = accountOverviewCache;
+        this.completionIndex = completionIndex;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        // Not right away, the server is busy enough while starting
+        this.nextPassAtMillis = System.currentTimeMillis() + sweepIntervalMillis;
+        for (State state : State.values()) repairs.put(state, new LongAdder());
+    }
+
+    // Called on the join thread, so it only queues the decision. Only decisions made from the link and IP are sampled.
+    public void sample(UUID uuid, String playerName, String ipAddress, Outcome outcome, long decidedAtMillis) {
+        if (outcome != Outcome.ADMITTED && outcome != Outcome.ADMITTED_FROM_CACHE && outcome != Outcome.NOT_LINKED) return;
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+
+        if (!samples.offer(new ServedDecision(uuid, playerName, ipAddress, outcome, decidedAtMillis))) samplesDropped.increment();
+    }
+
+    // Re-reads the rows behind the queued decisions, called periodically by the platform
+    public void verifySamples() {
+        ServedDecision served;
+        while ((served = samples.poll()) != null) {
+            try {
+                verify(served);
+            } catch (StorageUnavailableException e) {
+                // Checked on the next run, once the store answers again
+                if (!samples.offer(served)) samplesDropped.increment();
+                return;
+            }
+        }
+    }
+
+    // Checks the next page of links and their users, and a batch of the players with a remembered IP,
+    // so a full pass takes (links / batch size) runs. Runs between passes do nothing.
+    public synchronized void sweep() {
+        if (!passInProgress) {
+            if (System.currentTimeMillis() < nextPassAtMillis) return;
+            rememberedToCheck.addAll(allowedIpCache.getUuids());
+            passInProgress = true;
+        }
+
+        long readAtMillis = System.currentTimeMillis();
+        List<LinkedPlayer> page;
+        String nextCursor;
+        try {
+            List<UUID> remembered = new ArrayList<>();
+            while (remembered.size() < sweepBatchSize && !rememberedToCheck.isEmpty()) remembered.add(rememberedToCheck.poll());
+            if (!remembered.isEmpty()) {
+                Map<UUID, LinkedPlayer> links = userManager.findLinksByUuids(remembered);
+                for (UUID uuid : remembered) {
+                    if (!links.containsKey(uuid)) repair(uuid, null, null, null, readAtMillis);
+                }
+            }
+
+            Page<LinkedPlayer> next = userManager.findLinksAfter(sweepCursor, sweepBatchSize);
+            page = next.getItems();
+            nextCursor = next.getCursor();
+            // Accounts of the same Discord user share one read
+            Map<String, Optional<User>> users = new HashMap<>();
+            for (LinkedPlayer link : page) {
+                Optional<User> user = users.computeIfAbsent(link.getDiscordId(), userManager::findFullUserByDiscordId);
+                repair(link.getUuid(), link.getMinecraftUsername(), link, user.orElse(null), readAtMillis);
+            }
+        } catch (StorageUnavailableException e) {
+            // Retried from the same cursor on the next run
+            return;
+        }
+
+        linksSwept.add(page.size());
+        passLinks += page.size();
+        if (page.size() == sweepBatchSize || !rememberedToCheck.isEmpty()) {
+            // An empty page means the links are done and only remembered IPs are left
+            sweepCursor = nextCursor;
+            return;
+        }
+
+        sweepPasses.increment();
+        long repaired = getRepairs() - repairsAtPassStart;
+        if (repaired > 0) {
+            logger.warning(String.format("%d in-memory entries disagreed with the database and were repaired since the last consistency sweep over %d links.",
+                    repaired, passLinks));
+        }
+        sweepCursor = null;
+        passInProgress = false;
+        nextPassAtMillis = System.currentTimeMillis() + sweepIntervalMillis;
+        passLinks = 0;
+        repairsAtPassStart = getRepairs();
+    }
+
+    private void verify(ServedDecision served) {
+        long readAtMillis = System.currentTimeMillis();
+        Optional<LinkedPlayer> link = userManager.findLinkByUuid(served.uuid);
+        Optional<User> user = link.isPresent() ? userManager.findFullUserByDiscordId(link.get().getDiscordId()) : Optional.empty();
+        String allowedIp = user.map(User::getCurrentAllowedIp).orElse(null);
+        samplesChecked.increment();
+
+        boolean holds = served.outcome == Outcome.NOT_LINKED
+                // A link by name would have been claimed by the join, a link of another player with the name doesn't matter
+                ? !link.isPresent() && !userManager.hasUnclaimedLink(served.playerName)
+                : served.ipAddress.equals(allowedIp);
+        if (!holds) {
+            String discordId = link.map(LinkedPlayer::getDiscordId).orElse(null);
+            if (changedSince(served.playerName, discordId, served.decidedAtMillis)) {
+                supersededDecisions.increment();
+            } else {
+                contradictedDecisions.increment();
+                logger.warning(String.format("The join of %s from %s was decided as %s, but the database says: %s",
+                        served.playerName, served.ipAddress, served.outcome,
+                        !link.isPresent() ? "not linked" : "linked to " + discordId + ", allowed IP " + allowedIp));
+            }
+        }
+
+        repair(served.uuid, served.playerName, link.orElse(null), user.orElse(null), readAtMillis);
+    }
+
+    // The link and user are null if the player isn't linked, the username is null if it isn't known either
+    private void repair(UUID uuid, String minecraftUsername, LinkedPlayer link, User user, long readAtMillis) {
+        // Changed after the read, so the read is the stale side; the state follows the change by itself
+        if (changedSince(minecraftUsername, link == null ? null : link.getDiscordId(), readAtMillis)) return;
+
+        // Links made by name have no UUID yet
+        if (uuid != null) {
+            count(State.ALLOWED_IP_CACHE, allowedIpCache.repair(uuid, user == null ? null : user.getCurrentAllowedIp()));
+            count(State.API_CACHE, apiService.repair(uuid, link));
+        }
+        if (link != null) {
+            count(State.COMPLETION_INDEX, completionIndex.repair(link.getMinecraftUsername(), link.getDiscordId()));
+            count(State.ACCOUNT_OVERVIEW_CACHE, accountOverviewCache.repair(link.getDiscordId(), user));
+        }
+    }
+
+    private void count(State state, boolean repaired) {
+        if (repaired) repairs.get(state).increment();
+    }
+
+    private boolean changedSince(String minecraftUsername, String discordId, long sinceMillis) {
+        synchronized (changedAtMillis) {
+            Long usernameChange = minecraftUsername == null ? null : changedAtMillis.get("u:" + minecraftUsername.toLowerCase());
+            Long discordIdChange = discordId == null ? null : changedAtMillis.get("d:" + discordId);
+            return (usernameChange != null && usernameChange >= sinceMillis) || (discordIdChange != null && discordIdChange >= sinceMillis);
+        }
+    }
+
+    private void markChanged(String minecraftUsername, String discordId) {
+        long now = System.currentTimeMillis();
+        synchronized (changedAtMillis) {
+            if (minecraftUsername != null) changedAtMillis.put("u:" + minecraftUsername.toLowerCase(), now);
+            if (discordId != null) changedAtMillis.put("d:" + discordId, now);
+        }
+    }
+
+    @Override
+    public void onLinked(String minecraftUsername, String discordId) {
+        markChanged(minecraftUsername, discordId);
+    }
+
+    @Override
+    public void onUnlinked(String minecraftUsername, String discordId) {
+        markChanged(minecraftUsername, discordId);
+    }
+
+    @Override
+    public void onRenamed(String oldMinecraftUsername, String newMinecraftUsername, String discordId) {
+        markChanged(oldMinecraftUsername, discordId);
+        markChanged(newMinecraftUsername, null);
+    }
+
+    @Override
+    public void onIpConfirmed(String discordId, String ipAddress) {
+        markChanged(null, discordId);
+    }
+
+    public long getSamplesChecked() { return samplesChecked.sum(); }
+
+    // Not checked because the queue was full
+    public long getSamplesDropped() { return samplesDropped.sum(); }
+
+    // Served decisions the store disagrees with, without a change through this plugin since
+    public long getContradictedDecisions() { return contradictedDecisions.sum(); }
+
+    // Served decisions that differ from the store because the link or IP changed since
+    public long getSupersededDecisions() { return supersededDecisions.sum(); }
+
+    public long getLinksSwept() { return linksSwept.sum(); }
+
+    public long getSweepPasses() { return sweepPasses.sum(); }
+
+    public long getRepairs(State state) { return repairs.get(state).sum(); }
+
+    public long getRepairs() {
+        long total = 0;
+        for (LongAdder count : repairs.values()) total += count.sum();
+        return total;
+    }
+
+    private static final class ServedDecision {
+        private final UUID uuid;
+        private final String playerName;
+        private final String ipAddress;
+        private final Outcome outcome;
+        private final long decidedAtMillis;
+
+        private ServedDecision(UUID uuid, String playerName, String ipAddress, Outcome outcome, long decidedAtMillis) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.ipAddress = ipAddress;
+            this.outcome = outcome;
+            this.decidedAtMillis = decidedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package net.justempire.discordverificator.services;
+
+import org.sqlite.SQLiteConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Makes consistent snapshots of the database while the server is running. SQLite's online backup API
+// copies a few pages per step on its own connection and sleeps between steps, so the join path and
+// the bot only ever wait for a single step.
+public class DatabaseBackupService {
+    private static final String PREFIX = "database-";
+    private static final String SUFFIX = ".db";
+
+    private final DatabaseService databaseService;
+    private final File backupFolder;
+    private final Logger logger;
+    private final int retention;
+    private final int pagesPerStep;
+    private final int stepSleepMillis;
+
+    private final BackupMetrics metrics = new BackupMetrics();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DatabaseBackupService(DatabaseService databaseService, File backupFolder, Logger logger,
+                                 int retention, int pagesPerStep, int stepSleepMillis) {
+        this.databaseService = databaseService;
+        this.backupFolder = backupFolder;
+        this.logger = logger;
+        this.retention = Math.max(1, retention);
+        this.pagesPerStep = Math.max(1, pagesPerStep);
+        this.stepSleepMillis = Math.max(0, stepSleepMillis);
+    }
+
+    // Makes a new snapshot and removes the ones exceeding the retention. Should be called asynchronously.
+    public void backup() {
+        // A slow backup shouldn't overlap with the next scheduled one
+        if (!running.compareAndSet(false, true)) return;
+
+        long start = System.currentTimeMillis();
+        String name = PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(start)) + SUFFIX;
+        File target = new File(backupFolder, name);
+        File partial = new File(backupFolder, name + ".part");
+
+        try {
+            if (!backupFolder.exists() && !backupFolder.mkdirs()) throw new IOException("Could not create " + backupFolder);
+
+            AtomicInteger pageCount = new AtomicInteger();
+            try (Connection connection = databaseService.openDedicatedConnection()) {
+                SQLiteConnection sqliteConnection = connection.unwrap(SQLiteConnection.class);
+                int result = sqliteConnection.getDatabase().backup("main", partial.getAbsolutePath(),
+                        (remaining, pages) -> pageCount.set(pages), stepSleepMillis, 20, pagesPerStep);
+                if (result != 0) throw new SQLException("Backup failed with SQLite code " + result);
+            }
+
+            // Only complete snapshots get the final name
+            Files.move(partial.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            long duration = System.currentTimeMillis() - start;
+            metrics.recordBackup(duration, target.length());
+            logger.info(String.format("Database backup %s made in %d ms (%d pages, %d KB)",
+                    name, duration, pageCount.get(), target.length() / 1024));
+
+            removeOldBackups();
+        } catch (SQLException | IOException e) {
+            metrics.recordFailure();
+            logger.warning("Database backup failed: " + e.getMessage());
+            if (partial.exists() && !partial.delete()) logger.warning("Could not delete " + partial);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public BackupMetrics getMetrics() { return metrics; }
+
+    private void removeOldBackups() {
+        File[] backups = backupFolder.listFiles((dir, file) -> file.startsWith(PREFIX) && file.endsWith(SUFFIX));
+        if (backups == null || backups.length <= retention) return;
+
+        // Timestamped names sort from oldest to newest
+        Arrays.sort(backups, Comparator.comparing(File::getName));
+        for (int i = 0; i < backups.length - retention; i++) {
+            if (!backups[i].delete()) logger.warning("Could not delete old backup " + backups[i].getName());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package net.justempire.discordverificator.services;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+// Keeps the database healthy (planner statistics, WAL size, free pages) without getting in the way of joins.
+// Every run measures the join rate since the previous run and does less work the busier the server is.
+public class DatabaseMaintenanceService {
+    // ANALYZE rebuilds the statistics of every index, so it doesn't have to run more often than this
+    private static final long ANALYZE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    // Pages given back per incremental_vacuum statement, so every statement stays short
+    private static final int VACUUM_CHUNK_PAGES = 128;
+
+    private final DatabaseService databaseService;
+    private final LongSupplier joinCounter;
+    private final Logger logger;
+    private final double busyJoinsPerMinute;
+    private final long timeBudgetMillis;
+    private final int maxVacuumPages;
+    // Whether a database file without incremental auto_vacuum may be rebuilt once with a full VACUUM
+    private final boolean convertToIncrementalVacuum;
+
+    private long lastRunAtMillis = System.currentTimeMillis();
+    private long lastJoinCount;
+    private long lastAnalyzeAtMillis;
+
+    public DatabaseMaintenanceService(DatabaseService databaseService, LongSupplier joinCounter, Logger logger,
+                                      double busyJoinsPerMinute, long timeBudgetMillis, int maxVacuumPages,
+                                      boolean convertToIncrementalVacuum) {
+        this.databaseService = databaseService;
+        this.joinCounter = joinCounter;
+        this.logger = logger;
+        this.busyJoinsPerMinute = busyJoinsPerMinute;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxVacuumPages = maxVacuumPages;
+        this.convertToIncrementalVacuum = convertToIncrementalVacuum;
+        this.lastJoinCount = joinCounter.getAsLong();
+    }
+
+    // Should be called asynchronously and never from two threads at once
+    public synchronized void run() {
+        long now = System.currentTimeMillis();
+        long joins = joinCounter.getAsLong();
+        double minutes = Math.max(1, now - lastRunAtMillis) / 60_000.0;
+        double joinsPerMinute = (joins - lastJoinCount) / minutes;
+        lastRunAtMillis = now;
+        lastJoinCount = joins;
+
+        // 1.0 when the server is idle, 0.0 when it's at (or above) the busy threshold
+        double idleness = Math.max(0, 1 - joinsPerMinute / busyJoinsPerMinute);
+        long deadline = now + timeBudgetMillis;
+
+        try (Connection connection = databaseService.openDedicatedConnection();
+             Statement stmt = connection.createStatement()) {
+            // Don't wait long for locks held by the join path
+            stmt.execute("PRAGMA busy_timeout=" + Math.max(100, timeBudgetMillis / 4));
+
+            if (idleness == 0) {
+                // A passive checkpoint never waits for readers or writers
+                checkpoint(stmt, "PASSIVE");
+                logger.info(String.format("Database maintenance: %.1f joins/min, only a passive checkpoint was run", joinsPerMinute));
+                return;
+            }
+
+            // Only analyzes tables whose statistics are likely out of date, sampling a limited amount of rows
+            stmt.execute("PRAGMA analysis_limit=400");
+            runStep("optimize", () -> stmt.execute("PRAGMA optimize"));
+
+            if (now - lastAnalyzeAtMillis >= ANALYZE_INTERVAL_MILLIS && System.currentTimeMillis() < deadline) {
+                stmt.execute("PRAGMA analysis_limit=0");
+                runStep("analyze", () -> stmt.execute("ANALYZE"));
+                lastAnalyzeAtMillis = now;
+            }
+
+            if (queryLong(stmt, "PRAGMA auto_vacuum") != 2) {
+                // Incremental vacuum does nothing until the file was converted
+                if (convertToIncrementalVacuum && idleness == 1) convertToIncrementalVacuum(stmt);
+            } else if (System.currentTimeMillis() < deadline) {
+                incrementalVacuum(stmt, (int) (maxVacuumPages * idleness), deadline);
+            }
+
+            if (System.currentTimeMillis() < deadline) {
+                // Resets the WAL file so it doesn't keep growing
+                checkpoint(stmt, "TRUNCATE");
+            }
+        } catch (SQLException e) {
+            logger.warning("Database maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private void incrementalVacuum(Statement stmt, int pageBudget, long deadline) throws SQLException {
+        long start = System.nanoTime();
+        long freeBefore = queryLong(stmt, "PRAGMA freelist_count");
+
+        long free = freeBefore;
+        long budget = pageBudget;
+        while (budget > 0 && free > 0 && System.currentTimeMillis() < deadline) {
+            int chunk = (int) Math.min(VACUUM_CHUNK_PAGES, Math.min(budget, free));
+            // The pragma frees one page per row it steps through, so every row has to be read.
+            // It returns no rows at all if the database isn't in incremental auto_vacuum mode.
+            if (stmt.execute("PRAGMA incremental_vacuum(" + chunk + ")")) {
+                try (ResultSet rs = stmt.getResultSet()) {
+                    while (rs.next()) { }
+                }
+            }
+
+            long freeNow = queryLong(stmt, "PRAGMA freelist_count");
+            if (freeNow >= free) break; // Nothing was given back
+            budget -= free - freeNow;
+            free = freeNow;
+        }
+
+        logger.info(String.format("Database maintenance: incremental_vacuum took %d ms, reclaimed %d pages (%d still free)",
+                elapsedMillis(start), freeBefore - free, free));
+    }
+
+    // Rebuilds the whole file and blocks every write while it runs, so it's only done on a run without joins
+    private void convertToIncrementalVacuum(Statement stmt) throws SQLException {
+        long pages = queryLong(stmt, "PRAGMA page_count");
+        long pageSize = queryLong(stmt, "PRAGMA page_size");
+        logger.info(String.format("Database maintenance: converting the database (%d KB) to incremental vacuum, this happens only once...",
+                pages * pageSize / 1024));
+
+        stmt.execute("PRAGMA auto_vacuum=INCREMENTAL");
+        runStep("vacuum", () -> stmt.execute("VACUUM"));
+    }
+
+    private void checkpoint(Statement stmt, String mode) throws SQLException {
+        long start = System.nanoTime();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            // Columns: busy, pages in the WAL, pages written back to the database
+            if (rs.next()) {
+                logger.info(String.format("Database maintenance: %s checkpoint took %d ms, %d of %d WAL pages written back",
+                        mode.toLowerCase(), elapsedMillis(start), rs.getInt(3), rs.getInt(2)));
+            }
+        }
+    }
+
+    private void runStep(String name, SqlStep step) throws SQLException {
+        long start = System.nanoTime();
+        step.run();
+        logger.info(String.format("Database maintenance: %s took %d ms", name, elapsedMillis(start)));
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @FunctionalInterface
+    private interface SqlStep {
+        void run() throws SQLException;
+    }
+}
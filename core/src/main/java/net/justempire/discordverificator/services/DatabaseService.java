@@ -0,0 +1,365 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.utils.ErrorReporter;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class DatabaseService {
+    // Default of database.query-timeout-millis
+    public static final long DEFAULT_QUERY_TIMEOUT_MILLIS = 2000;
+
+    // Links are keyed by the 16-byte player UUID (NULL until a link made by name is claimed),
+    // the username is only the last one seen
+    private static final String LINKS_COLUMNS =
+            "uuid BLOB UNIQUE, " +
+            "minecraft_username TEXT NOT NULL COLLATE NOCASE, " +
+            "discord_id TEXT NOT NULL, " +
+            "last_login TIMESTAMP, " +
+            "FOREIGN KEY(discord_id) REFERENCES users(discord_id) ON DELETE CASCADE";
+
+    private final String url;
+    private final File databaseFile;
+    private final Logger logger;
+    private Connection connection;
+
+    // Serializes use of the connection, so statements of other threads never end up inside an open transaction
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TransactionMetrics transactionMetrics = new TransactionMetrics();
+    private UnitOfWork activeTransaction;
+
+    // Every call has to get the connection and finish within this time
+    private final long queryTimeoutMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    public DatabaseService(String dataFolder, Logger logger) {
+        this(dataFolder, logger, DEFAULT_QUERY_TIMEOUT_MILLIS, new CircuitBreaker(logger, 5, 1000, 30_000));
+    }
+
+    public DatabaseService(String dataFolder, Logger logger, long queryTimeoutMillis, CircuitBreaker circuitBreaker) {
+        this.logger = logger;
+        this.queryTimeoutMillis = queryTimeoutMillis;
+        this.circuitBreaker = circuitBreaker;
+        // SQLite file location
+        this.databaseFile = new File(dataFolder, "database.db");
+        this.url = "jdbc:sqlite:" + databaseFile.getPath();
+
+        try {
+            // Load driver explicitely to ensure it's available
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            logger.log(Level.SEVERE, "SQLite JDBC Driver not found!", e);
+        }
+    }
+
+    public void initialize() throws SQLException {
+        getConnection(); // Ensure connection is established
+        configure();
+        createTables();
+    }
+
+    // WAL lets readers (pre-login) and the backup/maintenance connections work next to a writer,
+    // and incremental auto_vacuum lets DatabaseMaintenanceService give free pages back in small steps
+    private void configure() throws SQLException {
+        try (Statement stmt = getConnection().createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+
+            try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                if (rs.next() && rs.getInt(1) == 2) return; // Already incremental
+            }
+            // Applies to a new file right away. An existing file only switches after a full VACUUM,
+            // which DatabaseMaintenanceService runs if maintenance.convert-to-incremental-vacuum is enabled.
+            stmt.execute("PRAGMA auto_vacuum=INCREMENTAL");
+        }
+    }
+
+    public synchronized Connection getConnection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DriverManager.getConnection(url);
+            // A locked file makes statements wait at most for the query timeout instead of the driver default
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout = " + queryTimeoutMillis);
+            }
+        }
+        return connection;
+    }
+
+    // Runs the work on the connection in autocommit mode (or inside the transaction the current thread has open)
+    public <T> T execute(UnitOfWork.Work<T> work) throws SQLException {
+        return guarded(() -> {
+            if (activeTransaction != null) return work.execute(activeTransaction);
+            return work.execute(new UnitOfWork(getConnection(), queryTimeoutMillis));
+        });
+    }
+
+    // Runs the work as a single transaction: everything is committed together or rolled back on failure
+    public <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException {
+        return guarded(() -> {
+            // Nested calls join the outer transaction
+            if (activeTransaction != null) return work.execute(activeTransaction);
+
+            Connection connection = getConnection();
+            UnitOfWork unitOfWork = new UnitOfWork(connection, queryTimeoutMillis);
+            connection.setAutoCommit(false);
+            activeTransaction = unitOfWork;
+            try {
+                T result = work.execute(unitOfWork);
+
+                long commitStart = System.nanoTime();
+                connection.commit();
+                transactionMetrics.recordCommit(unitOfWork.getStatementCount(), System.nanoTime() - commitStart);
+
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                rollback(connection);
+                throw e;
+            } finally {
+                activeTransaction = null;
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    // Takes the connection lock within the query timeout and reports the call to the circuit breaker.
+    // Calls nested in another call of the same thread are covered by the outer one.
+    private <T> T guarded(SqlCall<T> call) throws SQLException {
+        if (lock.isHeldByCurrentThread()) return call.run();
+
+        if (!circuitBreaker.tryAcquire()) {
+            throw new SQLTransientConnectionException("The database is unavailable, the circuit breaker is open");
+        }
+
+        long start = System.nanoTime();
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(queryTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (!locked) throw new SQLTimeoutException("Timed out waiting " + queryTimeoutMillis + " ms for the database connection");
+
+            T result = call.run();
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onFailure();
+            throw new SQLTimeoutException("Interrupted while waiting for the database connection", e);
+        } catch (SQLException e) {
+            if (isUnavailable(e)) circuitBreaker.onFailure();
+            else circuitBreaker.onSuccess(System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            throw e;
+        } finally {
+            if (locked) lock.unlock();
+        }
+    }
+
+    // Timeouts and busy, locked or broken files mean the database couldn't answer.
+    // Other errors (constraint violations, bad SQL) are answers and don't trip the breaker.
+    private static boolean isUnavailable(SQLException e) {
+        if (e instanceof SQLTimeoutException) return true;
+        switch (e.getErrorCode() & 0xFF) {
+            case 5:  // SQLITE_BUSY
+            case 6:  // SQLITE_LOCKED
+            case 9:  // SQLITE_INTERRUPT
+            case 10: // SQLITE_IOERR
+            case 11: // SQLITE_CORRUPT
+            case 13: // SQLITE_FULL
+            case 14: // SQLITE_CANTOPEN
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlCall<T> {
+        T run() throws SQLException;
+    }
+
+    private void rollback(Connection connection) {
+        transactionMetrics.recordRollback();
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.warning("Failed to roll back a transaction: " + e.getMessage());
+        }
+    }
+
+    public TransactionMetrics getTransactionMetrics() { return transactionMetrics; }
+
+    public CircuitBreaker getCircuitBreaker() { return circuitBreaker; }
+
+    public File getDatabaseFile() { return databaseFile; }
+
+    // Opens a separate connection to the same file for long-running work (backups, maintenance),
+    // so it never holds the lock of the shared connection. The caller has to close it.
+    public Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to close the database connection", e);
+        }
+    }
+
+    // Databases from before UUIDs had links keyed by username. SQLite can't change a primary key,
+    // so the table is rebuilt once; the UUIDs are filled in later by UuidMigrationService and on join.
+    private void migrateLinksToUuids() throws SQLException {
+        inTransaction(unit -> {
+            boolean exists = false;
+            try (PreparedStatement pstmt = unit.prepare("PRAGMA table_info(linked_accounts)")) {
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    exists = true;
+                    if ("uuid".equalsIgnoreCase(rs.getString("name"))) return null;
+                }
+            }
+            if (!exists) return null;
+
+            logger.info("Rebuilding linked accounts to be keyed by UUID, this happens only once...");
+            String[] statements = {
+                    "ALTER TABLE linked_accounts RENAME TO linked_accounts_by_name",
+                    "CREATE TABLE linked_accounts (" + LINKS_COLUMNS + ")",
+                    "INSERT INTO linked_accounts (minecraft_username, discord_id, last_login) " +
+                            "SELECT minecraft_username, discord_id, last_login FROM linked_accounts_by_name",
+                    "DROP TABLE linked_accounts_by_name"
+            };
+            for (String sql : statements) {
+                try (PreparedStatement pstmt = unit.prepare(sql)) { pstmt.executeUpdate(); }
+            }
+            return null;
+        });
+    }
+
+    // Codes used to be stored by username only. They are valid for minutes, so the old table is dropped
+    // and recreated instead of migrated; players with a pending code get a new one on their next join.
+    private void dropCodesWithoutOwner() throws SQLException {
+        inTransaction(unit -> {
+            boolean exists = false;
+            try (PreparedStatement pstmt = unit.prepare("PRAGMA table_info(verification_codes)")) {
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    exists = true;
+                    if ("discord_id".equalsIgnoreCase(rs.getString("name"))) return null;
+                }
+            }
+            if (!exists) return null;
+
+            try (PreparedStatement pstmt = unit.prepare("DROP TABLE verification_codes")) { pstmt.executeUpdate(); }
+            return null;
+        });
+    }
+
+    private void createTables() throws SQLException {
+        String createUsersTable = "CREATE TABLE IF NOT EXISTS users (" +
+                "discord_id TEXT PRIMARY KEY, " +
+                "current_allowed_ip TEXT" +
+                ");";
+
+        String createLinksTable = "CREATE TABLE IF NOT EXISTS linked_accounts (" + LINKS_COLUMNS + ");";
+        String createLinksUsernameIndex = "CREATE INDEX IF NOT EXISTS idx_linked_accounts_username ON linked_accounts(minecraft_username);";
+        String createLinksDiscordIndex = "CREATE INDEX IF NOT EXISTS idx_linked_accounts_discord_id ON linked_accounts(discord_id);";
+        // Only the links that still wait for a UUID, looked up by name on every join of a player that isn't linked
+        String createUnclaimedLinksIndex = "CREATE INDEX IF NOT EXISTS idx_linked_accounts_unclaimed " +
+                "ON linked_accounts(minecraft_username COLLATE NOCASE) WHERE uuid IS NULL;";
+
+        // Table to track when a user received a code from a specific IP (to avoid spam)
+        String createHistoryTable = "CREATE TABLE IF NOT EXISTS verification_history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "discord_id TEXT NOT NULL, " +
+                "ip_address TEXT NOT NULL, " +
+                "last_received TIMESTAMP NOT NULL, " +
+                "FOREIGN KEY(discord_id) REFERENCES users(discord_id) ON DELETE CASCADE" +
+                ");";
+
+        // Hourly and daily counters maintained by StatisticsService
+        String createStatisticsTable = "CREATE TABLE IF NOT EXISTS statistics_rollup (" +
+                "period TEXT NOT NULL, " +
+                "bucket_start INTEGER NOT NULL, " +
+                "counter TEXT NOT NULL, " +
+                "value INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY(period, bucket_start, counter)" +
+                ");";
+
+        // Pending codes used by SqlCodeStore, with the link they were issued for
+        String createCodesTable = "CREATE TABLE IF NOT EXISTS verification_codes (" +
+                "code TEXT PRIMARY KEY, " +
+                "discord_id TEXT NOT NULL, " +
+                "uuid BLOB NOT NULL, " +
+                "minecraft_username TEXT NOT NULL, " +
+                "ip_address TEXT NOT NULL, " +
+                "expires_at INTEGER NOT NULL" +
+                ");";
+        String createCodesExpiryIndex = "CREATE INDEX IF NOT EXISTS idx_verification_codes_expires_at ON verification_codes(expires_at);";
+
+        // Reverse index from IP to Discord profiles. IPs are 16-byte keys, so a CIDR block is a range scan on the primary key
+        String createIpIndexTable = "CREATE TABLE IF NOT EXISTS ip_index (" +
+                "ip BLOB NOT NULL, " +
+                "discord_id TEXT NOT NULL, " +
+                "ever_allowed INTEGER NOT NULL DEFAULT 0, " +
+                "codes_requested INTEGER NOT NULL DEFAULT 0, " +
+                "last_seen INTEGER NOT NULL, " +
+                "PRIMARY KEY(ip, discord_id)" +
+                ") WITHOUT ROWID;";
+        // Progress of filling ip_index from the data of databases created before it existed, see SqliteUserStore.buildIpIndex.
+        // History rows above history_until were indexed when they were written.
+        String createIpIndexBackfillTable = "CREATE TABLE IF NOT EXISTS ip_index_backfill (" +
+                "users_after TEXT NOT NULL, " +
+                "history_after INTEGER NOT NULL, " +
+                "history_until INTEGER NOT NULL" +
+                ");";
+
+        migrateLinksToUuids();
+        dropCodesWithoutOwner();
+        boolean ipIndexExists = tableExists("ip_index");
+
+        try (Statement stmt = getConnection().createStatement()) {
+            stmt.execute(createUsersTable);
+            stmt.execute(createLinksTable);
+            stmt.execute(createLinksUsernameIndex);
+            stmt.execute(createLinksDiscordIndex);
+            stmt.execute(createUnclaimedLinksIndex);
+            stmt.execute(createHistoryTable);
+            stmt.execute(createStatisticsTable);
+            stmt.execute(createCodesTable);
+            stmt.execute(createCodesExpiryIndex);
+            stmt.execute(createIpIndexTable);
+            stmt.execute(createIpIndexBackfillTable);
+        }
+
+        if (!ipIndexExists) {
+            execute(unit -> {
+                String sql = "INSERT INTO ip_index_backfill (users_after, history_after, history_until) " +
+                        "SELECT '', 0, COALESCE(MAX(id), 0) FROM verification_history";
+                try (PreparedStatement pstmt = unit.prepare(sql)) { pstmt.executeUpdate(); }
+                return null;
+            });
+        }
+    }
+
+    private boolean tableExists(String name) throws SQLException {
+        return execute(unit -> {
+            try (PreparedStatement pstmt = unit.prepare("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+                pstmt.setString(1, name);
+                return pstmt.executeQuery().next();
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.PendingCode;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps codes in this JVM only, so they are lost on restart and can't be redeemed by another server
+public class InMemoryCodeStore implements CodeStore {
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean put(String code, PendingCode data, long expiresAtMillis) {
+        Entry entry = new Entry(data, expiresAtMillis);
+        long now = System.currentTimeMillis();
+        // An expired code that wasn't removed yet may be reused
+        return codes.merge(code, entry, (existing, added) -> existing.expiresAtMillis <= now ? added : existing) == entry;
+    }
+
+    @Override
+    public Optional<PendingCode> redeem(String code, long nowMillis) {
+        Entry entry = codes.remove(code);
+        if (entry == null || entry.expiresAtMillis <= nowMillis) return Optional.empty();
+        return Optional.of(entry.data);
+    }
+
+    @Override
+    public int removeExpired(long nowMillis) {
+        int sizeBefore = codes.size();
+        codes.values().removeIf(entry -> entry.expiresAtMillis <= nowMillis);
+        return Math.max(0, sizeBefore - codes.size());
+    }
+
+    private static class Entry {
+        private final PendingCode data;
+        private final long expiresAtMillis;
+
+        private Entry(PendingCode data, long expiresAtMillis) {
+            this.data = data;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
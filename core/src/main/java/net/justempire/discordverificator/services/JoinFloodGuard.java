@@ -0,0 +1,123 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.utils.IpAddresses;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Counts join attempts per IP and per network (/24 for IPv4, /64 for IPv6) before anything touches the database,
+// and temporarily blocks addresses cycling through usernames faster than the configured thresholds
+public class JoinFloodGuard {
+    // About 400 KB per sketch; collisions add roughly (attempts in the window / width) to an estimate,
+    // so unrelated addresses are only caught up in floods of tens of thousands of joins per window
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int WINDOW_SLOTS = 6;
+    private static final int MAX_BLOCKS = 10_000;
+
+    private final Logger logger;
+    private final long windowMillis;
+    private final int maxAttemptsPerIp;
+    private final int maxAttemptsPerPrefix;
+    private final long blockMillis;
+
+    private final SlidingCountMinSketch ipAttempts;
+    private final SlidingCountMinSketch prefixAttempts;
+    // IP or network -> when the block expires, the blocks expiring soonest are dropped above the limit
+    private final Map<String, Long> blocks = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_BLOCKS;
+        }
+    };
+
+    private final LongAdder blockedAttempts = new LongAdder();
+    private final LongAdder ipBlocks = new LongAdder();
+    private final LongAdder prefixBlocks = new LongAdder();
+
+    public JoinFloodGuard(Logger logger, long windowMillis, int maxAttemptsPerIp, int maxAttemptsPerPrefix, long blockMillis) {
+        this.logger = logger;
+        this.windowMillis = windowMillis;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxAttemptsPerPrefix = maxAttemptsPerPrefix;
+        this.blockMillis = blockMillis;
+        this.ipAttempts = new SlidingCountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, WINDOW_SLOTS, windowMillis);
+        this.prefixAttempts = new SlidingCountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, WINDOW_SLOTS, windowMillis);
+    }
+
+    // Returns the seconds the address stays blocked, or empty if the attempt may proceed
+    public OptionalLong checkAttempt(String ipAddress) {
+        byte[] key;
+        try {
+            key = IpAddresses.toKey(ipAddress);
+        } catch (IllegalArgumentException e) {
+            return OptionalLong.empty();
+        }
+
+        // IPv4 addresses are mapped into the last 4 bytes of the key
+        boolean ipv4 = isMappedIpv4(key);
+        byte[] prefixKey = key.clone();
+        for (int i = ipv4 ? 15 : 8; i < 16; i++) prefixKey[i] = 0;
+        String ip = IpAddresses.fromKey(key);
+        String prefix = IpAddresses.fromKey(prefixKey) + (ipv4 ? "/24" : "/64");
+
+        // Attempts made while blocked are counted too, so an ongoing flood is blocked again right after the block expires
+        long now = System.currentTimeMillis();
+        int ipCount = ipAttempts.add(key, now);
+        int prefixCount = prefixAttempts.add(prefixKey, now);
+
+        long blockedUntil = Math.max(blockedUntil(ip, now), blockedUntil(prefix, now));
+        if (blockedUntil == 0) {
+            if (ipCount > maxAttemptsPerIp) {
+                blockedUntil = block(ip, ipCount, now);
+                ipBlocks.increment();
+            } else if (prefixCount > maxAttemptsPerPrefix) {
+                blockedUntil = block(prefix, prefixCount, now);
+                prefixBlocks.increment();
+            }
+        }
+        if (blockedUntil == 0) return OptionalLong.empty();
+
+        blockedAttempts.increment();
+        return OptionalLong.of(Math.max(1, (blockedUntil - now + 999) / 1000));
+    }
+
+    private synchronized long blockedUntil(String address, long now) {
+        Long expiresAt = blocks.get(address);
+        if (expiresAt == null) return 0;
+        if (expiresAt <= now) {
+            blocks.remove(address);
+            return 0;
+        }
+        return expiresAt;
+    }
+
+    private synchronized long block(String address, int attempts, long now) {
+        long expiresAt = now + blockMillis;
+        blocks.put(address, expiresAt);
+        logger.warning(String.format("Blocked joins from %s for %d seconds after about %d attempts in %d seconds.",
+                address, blockMillis / 1000, attempts, windowMillis / 1000));
+        return expiresAt;
+    }
+
+    private static boolean isMappedIpv4(byte[] key) {
+        for (int i = 0; i < 10; i++) if (key[i] != 0) return false;
+        return key[10] == (byte) 0xFF && key[11] == (byte) 0xFF;
+    }
+
+    // Blocks that haven't expired yet
+    public synchronized int getActiveBlockCount() {
+        long now = System.currentTimeMillis();
+        blocks.values().removeIf(expiresAt -> expiresAt <= now);
+        return blocks.size();
+    }
+
+    public long getBlockedAttempts() { return blockedAttempts.sum(); }
+
+    public long getIpBlocks() { return ipBlocks.sum(); }
+
+    public long getPrefixBlocks() { return prefixBlocks.sum(); }
+}
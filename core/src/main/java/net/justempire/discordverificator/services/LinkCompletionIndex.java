@@ -0,0 +1,97 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.utils.PrefixTrie;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+// Linked usernames and Discord IDs kept in memory for tab completion, so no keystroke runs a query.
+// It is loaded once by build() and then kept up to date by the link changes of UserManager.
+public class LinkCompletionIndex implements LinkListener {
+    private static final int PAGE_SIZE = 1000;
+
+    private final Logger logger;
+    private final int maxSuggestions;
+
+    private final PrefixTrie usernames = new PrefixTrie();
+    // Counted once per linked account, so an ID is only dropped with the last account of the user
+    private final PrefixTrie discordIds = new PrefixTrie();
+
+    // Usernames unlinked while build() runs, so a page read just before the unlink doesn't bring them back
+    private Set<String> unlinkedDuringBuild;
+    private volatile boolean ready;
+
+    public LinkCompletionIndex(Logger logger, int maxSuggestions) {
+        this.logger = logger;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    // Reads every link page by page, must be called asynchronously after the index was added as a listener
+    public void build(UserManager userManager) {
+        synchronized (this) {
+            unlinkedDuringBuild = new HashSet<>();
+        }
+
+        long start = System.currentTimeMillis();
+        String after = null;
+        List<LinkedPlayer> page;
+        do {
+            Page<LinkedPlayer> next = userManager.findLinksAfter(after, PAGE_SIZE);
+            page = next.getItems();
+            after = next.getCursor();
+            synchronized (this) {
+                for (LinkedPlayer link : page) {
+                    if (unlinkedDuringBuild.contains(link.getMinecraftUsername().toLowerCase())) continue;
+                    if (!usernames.contains(link.getMinecraftUsername())) usernames.add(link.getMinecraftUsername());
+                    discordIds.add(link.getDiscordId());
+                }
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        synchronized (this) {
+            unlinkedDuringBuild = null;
+        }
+        ready = true;
+        logger.info(String.format("Loaded %d linked usernames for tab completion in %d ms.",
+                usernames.size(), System.currentTimeMillis() - start));
+    }
+
+    @Override
+    public synchronized void onLinked(String minecraftUsername, String discordId) {
+        if (unlinkedDuringBuild != null) unlinkedDuringBuild.remove(minecraftUsername.toLowerCase());
+        if (!usernames.contains(minecraftUsername)) usernames.add(minecraftUsername);
+        discordIds.add(discordId);
+    }
+
+    @Override
+    public synchronized void onUnlinked(String minecraftUsername, String discordId) {
+        if (unlinkedDuringBuild != null) unlinkedDuringBuild.add(minecraftUsername.toLowerCase());
+        usernames.removeAll(minecraftUsername);
+        if (discordId != null) discordIds.remove(discordId);
+    }
+
+    // Adds a stored link the index missed. Returns true if it was missing.
+    public synchronized boolean repair(String minecraftUsername, String discordId) {
+        if (!ready || usernames.contains(minecraftUsername)) return false;
+
+        usernames.add(minecraftUsername);
+        discordIds.add(discordId);
+        return true;
+    }
+
+    // Empty until the index is built
+    public List<String> completeUsername(String prefix) {
+        return ready ? usernames.complete(prefix, maxSuggestions) : Collections.emptyList();
+    }
+
+    public List<String> completeDiscordId(String prefix) {
+        return ready ? discordIds.complete(prefix, maxSuggestions) : Collections.emptyList();
+    }
+
+    public boolean isReady() { return ready; }
+}
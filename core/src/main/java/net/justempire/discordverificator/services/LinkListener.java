@@ -0,0 +1,18 @@
+package net.justempire.discordverificator.services;
+
+// Notified by UserManager after a link was made, removed or renamed or an IP was confirmed, on the thread that changed it
+public interface LinkListener {
+    void onLinked(String minecraftUsername, String discordId);
+
+    // The Discord ID is null if it could not be looked up before the link was removed
+    void onUnlinked(String minecraftUsername, String discordId);
+
+    // The player joined with a new name
+    default void onRenamed(String oldMinecraftUsername, String newMinecraftUsername, String discordId) {
+        onUnlinked(oldMinecraftUsername, discordId);
+        onLinked(newMinecraftUsername, discordId);
+    }
+
+    // The Discord user allowed joining from a new IP
+    default void onIpConfirmed(String discordId, String ipAddress) { }
+}
@@ -0,0 +1,9 @@
+package net.justempire.discordverificator.services;
+
+// Runs tasks on the platform's async threads, so they are cancelled with the plugin
+public interface PlatformScheduler {
+    void runAsync(Runnable task);
+
+    // Platforms that count in ticks round to the nearest tick
+    void repeatAsync(Runnable task, long delayMillis, long periodMillis);
+}
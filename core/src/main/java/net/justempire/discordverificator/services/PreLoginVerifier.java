@@ -0,0 +1,154 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.jfr.PreLoginDecisionEvent;
+import net.justempire.discordverificator.models.PreLoginDecision;
+import net.justempire.discordverificator.models.PreLoginDecision.Outcome;
+import net.justempire.discordverificator.models.PushPrompt;
+import net.justempire.discordverificator.models.User;
+import net.justempire.discordverificator.services.StatisticsService.Counter;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+// Decides whether a player may join, regardless of whether the check runs on a server or on a proxy
+public class PreLoginVerifier {
+    private final BooleanSupplier botAvailable;
+    private final UserManager userManager;
+    private final ConfirmationCodeService confirmationCodeService;
+    private final StatisticsService statisticsService;
+    private final UnavailablePolicy unavailablePolicy;
+    private final AllowedIpCache allowedIpCache;
+    // Queues a Discord prompt for the new IP, returns false if push verification is off or the queue is full
+    private final Predicate<PushPrompt> pushPrompts;
+    // Null if flood protection is disabled
+    private final JoinFloodGuard joinFloodGuard;
+    // Null if the consistency check is disabled
+    private final ConsistencyVerifier consistencyVerifier;
+
+    // Every verified pre-login, used to measure the join rate
+    private final LongAdder attempts = new LongAdder();
+
+    // What happens to joins while the user store can't answer
+    public enum UnavailablePolicy {
+        KICK,
+        ADMIT_CACHED;
+
+        // Parses "kick" or "admit-cached" from the config, defaulting to KICK
+        public static UnavailablePolicy fromConfig(String value) {
+            return "admit-cached".equalsIgnoreCase(value) ? ADMIT_CACHED : KICK;
+        }
+    }
+
+    public PreLoginVerifier(BooleanSupplier botAvailable, UserManager userManager, ConfirmationCodeService confirmationCodeService, StatisticsService statisticsService,
+                            UnavailablePolicy unavailablePolicy, AllowedIpCache allowedIpCache, Predicate<PushPrompt> pushPrompts,
+                            JoinFloodGuard joinFloodGuard, ConsistencyVerifier consistencyVerifier) {
+        this.botAvailable = botAvailable;
+        this.userManager = userManager;
+        this.confirmationCodeService = confirmationCodeService;
+        this.statisticsService = statisticsService;
+        this.unavailablePolicy = unavailablePolicy;
+        this.allowedIpCache = allowedIpCache;
+        this.pushPrompts = pushPrompts;
+        this.joinFloodGuard = joinFloodGuard;
+        this.consistencyVerifier = consistencyVerifier;
+    }
+
+    public PreLoginDecision verify(UUID uuid, String playerName, String ipAddress) {
+        attempts.increment();
+
+        // Every decision is recorded with its outcome and latency to Java Flight Recorder
+        PreLoginDecisionEvent event = PreLoginDecisionEvent.start();
+        long decidedAtMillis = System.currentTimeMillis();
+        PreLoginDecision decision;
+        try {
+            decision = decide(uuid, playerName, ipAddress);
+        } catch (StorageUnavailableException e) {
+            decision = decideWhileUnavailable(uuid, ipAddress);
+        }
+        event.finish(decision.getOutcome().name(), playerName);
+
+        // A sample of the decisions is checked against the database later, off this thread
+        if (consistencyVerifier != null) consistencyVerifier.sample(uuid, playerName, ipAddress, decision.getOutcome(), decidedAtMillis);
+        return decision;
+    }
+
+    private PreLoginDecision decide(UUID uuid, String playerName, String ipAddress) {
+        // 0. Floods of usernames from one address are stopped before they cost a lookup each
+        if (joinFloodGuard != null) {
+            OptionalLong blockedForSeconds = joinFloodGuard.checkAttempt(ipAddress);
+            if (blockedForSeconds.isPresent()) {
+                statisticsService.increment(Counter.KICK_FLOODED);
+                return PreLoginDecision.kick(Outcome.FLOODED, "too-many-join-attempts", blockedForSeconds.getAsLong());
+            }
+        }
+
+        // 1. Try to get Discord ID by the player's UUID (Database Call)
+        // Misses are common here (unlinked players, bots), so the lookups don't throw
+        Optional<String> discordIdResult = userManager.findDiscordIdByPlayer(uuid, playerName);
+        // Reconstruct a lightweight user object or fetch full data
+        Optional<User> userResult = discordIdResult.isPresent() ? userManager.findFullUserByDiscordId(discordIdResult.get()) : Optional.empty();
+        if (!userResult.isPresent()) {
+            // Block join
+            statisticsService.increment(Counter.KICK_NOT_LINKED);
+            return PreLoginDecision.kick(Outcome.NOT_LINKED, "account-not-linked");
+        }
+
+        String discordId = discordIdResult.get();
+        User user = userResult.get();
+
+        // 2. Check if bot is working
+        if (!botAvailable.getAsBoolean()) {
+            statisticsService.increment(Counter.KICK_BOT_NOT_WORKING);
+            return PreLoginDecision.kick(Outcome.BOT_NOT_WORKING, "bot-not-working");
+        }
+
+        // 3. IP Check
+        if (ipAddress.equals(user.getCurrentAllowedIp())) {
+            allowedIpCache.remember(uuid, ipAddress);
+            userManager.updatePlayerLoginTime(uuid);
+            statisticsService.increment(Counter.JOINS_ADMITTED);
+            return PreLoginDecision.admitted();
+        }
+
+        // Check throttling (Spam prevention), no previous codes means proceed
+        OptionalLong secondsSinceLast = userManager.findSecondsSinceLastCode(discordId, ipAddress);
+        if (secondsSinceLast.isPresent() && secondsSinceLast.getAsLong() < 30) {
+            statisticsService.increment(Counter.KICK_THROTTLED);
+            return PreLoginDecision.kick(Outcome.THROTTLED, "wait-until-verification", 30 - secondsSinceLast.getAsLong());
+        }
+
+        // Generate Code
+        String code = confirmationCodeService.generateVerificationCode(discordId, uuid, playerName, ipAddress);
+
+        // Log verification attempt (Database Call)
+        userManager.updateLastTimeUserReceivedCode(discordId, ipAddress);
+        // Every issued code kicks the player, so this also counts those kicks
+        statisticsService.increment(Counter.CODES_ISSUED);
+
+        // The linked user can approve from Discord, the code stays valid as a fallback
+        if (pushPrompts.test(new PushPrompt(discordId, playerName, ipAddress, code, System.currentTimeMillis()))) {
+            return PreLoginDecision.kick(Outcome.CODE_REQUIRED, "approve-in-discord", code);
+        }
+
+        // Kick with code
+        return PreLoginDecision.kick(Outcome.CODE_REQUIRED, "confirm-with-command", code);
+    }
+
+    // The database is locked or unreachable: never report such players as "not linked"
+    private PreLoginDecision decideWhileUnavailable(UUID uuid, String ipAddress) {
+        if (unavailablePolicy == UnavailablePolicy.ADMIT_CACHED && allowedIpCache.isAllowed(uuid, ipAddress)) {
+            statisticsService.increment(Counter.JOINS_ADMITTED_FROM_CACHE);
+            return PreLoginDecision.admittedFromCache();
+        }
+
+        statisticsService.increment(Counter.KICK_DATABASE_UNAVAILABLE);
+        return PreLoginDecision.kick(Outcome.DATABASE_UNAVAILABLE, "database-unavailable");
+    }
+
+    public long getAttemptCount() { return attempts.sum(); }
+}
@@ -0,0 +1,70 @@
+package net.justempire.discordverificator.services;
+
+import java.util.Arrays;
+
+// Approximate per-key event counts over a sliding window, in fixed memory no matter how many keys are seen.
+// The window is split into slots with a count-min sketch each; the oldest slot is cleared when its time comes again.
+// Counts are never underestimated, collisions can only overestimate them.
+public class SlidingCountMinSketch {
+    private final int depth;
+    private final int widthMask;
+    private final int slots;
+    private final long slotMillis;
+
+    // [slot][row][column]
+    private final int[][][] counts;
+    // Which slot of time each slot currently holds
+    private final long[] slotIds;
+
+    // The width is rounded up to a power of two
+    public SlidingCountMinSketch(int depth, int width, int slots, long windowMillis) {
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+        this.slots = slots;
+        this.slotMillis = Math.max(1, windowMillis / slots);
+        this.counts = new int[slots][depth][roundedWidth];
+        this.slotIds = new long[slots];
+        Arrays.fill(slotIds, -1);
+    }
+
+    // Counts one event for the 16-byte key and returns the estimated count within the window, including it
+    public synchronized int add(byte[] key, long nowMillis) {
+        long slotId = nowMillis / slotMillis;
+        int slot = (int) (slotId % slots);
+        if (slotIds[slot] != slotId) {
+            for (int[] row : counts[slot]) Arrays.fill(row, 0);
+            slotIds[slot] = slotId;
+        }
+
+        // Double hashing: every row takes its column from the same two hashes
+        long h1 = mix(toLong(key, 0) ^ mix(toLong(key, 8)));
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (int) ((h1 + row * h2) >>> 32) & widthMask;
+            counts[slot][row][column]++;
+
+            int sum = 0;
+            for (int s = 0; s < slots; s++) {
+                if (slotId - slotIds[s] < slots) sum += counts[s][row][column];
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        return estimate;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) value = (value << 8) | (bytes[i] & 0xFF);
+        return value;
+    }
+
+    // Finalizer of MurmurHash3
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,91 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.models.PendingCode;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.Uuids;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+// Keeps codes in the verification_codes table, so they survive restarts and can be redeemed
+// by any server that uses the same database
+public class SqlCodeStore implements CodeStore {
+    // SQLITE_CONSTRAINT, the primary key already has a row
+    private static final int CONSTRAINT_VIOLATION = 19;
+
+    private final DatabaseService databaseService;
+
+    public SqlCodeStore(DatabaseService databaseService) {
+        this.databaseService = databaseService;
+    }
+
+    @Override
+    public boolean put(String code, PendingCode data, long expiresAtMillis) {
+        try {
+            databaseService.inTransaction(unit -> {
+                // An expired code that wasn't removed yet may be reused, a pending one is never replaced
+                try (PreparedStatement stmt = unit.prepare("DELETE FROM verification_codes WHERE code = ? AND expires_at <= ?")) {
+                    stmt.setString(1, code);
+                    stmt.setLong(2, System.currentTimeMillis());
+                    stmt.executeUpdate();
+                }
+
+                String sql = "INSERT INTO verification_codes (code, discord_id, uuid, minecraft_username, ip_address, expires_at) VALUES (?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement stmt = unit.prepare(sql)) {
+                    stmt.setString(1, code);
+                    stmt.setString(2, data.getDiscordId());
+                    stmt.setBytes(3, Uuids.toBytes(data.getUuid()));
+                    stmt.setString(4, data.getMinecraftUsername());
+                    stmt.setString(5, data.getIpAddress());
+                    stmt.setLong(6, expiresAtMillis);
+                    return stmt.executeUpdate();
+                }
+            });
+            return true;
+        } catch (SQLException e) {
+            if ((e.getErrorCode() & 0xFF) == CONSTRAINT_VIOLATION) return false;
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public Optional<PendingCode> redeem(String code, long nowMillis) {
+        Optional<PendingCode> data;
+        try {
+            // Deleting and reading in one statement guarantees that only one server can redeem the code
+            data = databaseService.execute(unit -> {
+                String sql = "DELETE FROM verification_codes WHERE code = ? AND expires_at > ? RETURNING discord_id, uuid, minecraft_username, ip_address";
+                try (PreparedStatement stmt = unit.prepare(sql)) {
+                    stmt.setString(1, code);
+                    stmt.setLong(2, nowMillis);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) return Optional.<PendingCode>empty();
+                        return Optional.of(new PendingCode(rs.getString("discord_id"), Uuids.fromBytes(rs.getBytes("uuid")),
+                                rs.getString("minecraft_username"), rs.getString("ip_address")));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return data;
+    }
+
+    @Override
+    public int removeExpired(long nowMillis) {
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement stmt = unit.prepare("DELETE FROM verification_codes WHERE expires_at <= ?")) {
+                    stmt.setLong(1, nowMillis);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to remove expired codes", e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.utils.ErrorReporter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Keeps hourly and daily counters in memory and periodically adds them to the rollup table,
+// so statistics never have to be computed by scanning verification_history
+public class StatisticsService {
+    private final DatabaseService databaseService;
+    private final Logger logger;
+
+    // Counters that weren't flushed to the database yet
+    private final Map<RollupKey, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public StatisticsService(DatabaseService databaseService, Logger logger) {
+        this.databaseService = databaseService;
+        this.logger = logger;
+    }
+
+    public enum Period {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Period(ChronoUnit unit) { this.unit = unit; }
+
+        // Returns the start of the bucket the given moment belongs to (UTC, epoch seconds)
+        public long bucketOf(Instant moment) { return moment.truncatedTo(unit).getEpochSecond(); }
+
+        public long bucketsAgo(int offset) {
+            return Instant.now().truncatedTo(unit).minus(offset, unit).getEpochSecond();
+        }
+    }
+
+    public enum Counter {
+        CODES_ISSUED("codes_issued"),
+        CODES_REDEEMED("codes_redeemed"),
+        JOINS_ADMITTED("joins_admitted"),
+        JOINS_ADMITTED_FROM_CACHE("joins_admitted_from_cache"),
+        KICK_NOT_LINKED("kick_not_linked"),
+        KICK_BOT_NOT_WORKING("kick_bot_not_working"),
+        KICK_THROTTLED("kick_throttled"),
+        KICK_DATABASE_UNAVAILABLE("kick_database_unavailable"),
+        PUSH_DENIED("push_denied"),
+        KICK_FLOODED("kick_flooded");
+
+        private final String key;
+
+        Counter(String key) { this.key = key; }
+
+        public String getKey() { return key; }
+
+        public static Counter fromKey(String key) {
+            for (Counter counter : values()) {
+                if (counter.key.equals(key)) return counter;
+            }
+            return null;
+        }
+    }
+
+    public void increment(Counter counter) {
+        Instant now = Instant.now();
+        for (Period period : Period.values()) {
+            pending.computeIfAbsent(new RollupKey(period, period.bucketOf(now), counter), k -> new LongAdder()).increment();
+        }
+    }
+
+    // Adds everything collected since the last flush to the rollup table in a single transaction
+    public void flush() {
+        List<RollupKey> keys = new ArrayList<>();
+        List<Long> values = new ArrayList<>();
+        for (Map.Entry<RollupKey, LongAdder> entry : pending.entrySet()) {
+            long value = entry.getValue().sumThenReset();
+            if (value == 0) continue;
+            keys.add(entry.getKey());
+            values.add(value);
+        }
+
+        // Buckets that have already ended won't receive increments anymore
+        Instant now = Instant.now();
+        pending.entrySet().removeIf(e -> e.getKey().bucketStart < e.getKey().period.bucketOf(now) && e.getValue().sum() == 0);
+
+        if (keys.isEmpty()) return;
+
+        String sql = "INSERT INTO statistics_rollup (period, bucket_start, counter, value) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(period, bucket_start, counter) DO UPDATE SET value = value + excluded.value";
+
+        try {
+            databaseService.inTransaction(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    for (int i = 0; i < keys.size(); i++) {
+                        RollupKey key = keys.get(i);
+                        pstmt.setString(1, key.period.name());
+                        pstmt.setLong(2, key.bucketStart);
+                        pstmt.setString(3, key.counter.getKey());
+                        pstmt.setLong(4, values.get(i));
+                        pstmt.addBatch();
+                    }
+                    return pstmt.executeBatch();
+                }
+            });
+        } catch (SQLException e) {
+            // Putting the values back so they're retried on the next flush
+            for (int i = 0; i < keys.size(); i++) {
+                pending.computeIfAbsent(keys.get(i), k -> new LongAdder()).add(values.get(i));
+            }
+            logger.warning("Failed to flush statistics: " + e.getMessage());
+        }
+    }
+
+    // Returns counters of a single bucket (flushed values plus not yet flushed ones)
+    public Map<Counter, Long> getCounters(Period period, long bucketStart) {
+        Map<Counter, Long> result = new EnumMap<>(Counter.class);
+        for (Counter counter : Counter.values()) result.put(counter, 0L);
+
+        String sql = "SELECT counter, value FROM statistics_rollup WHERE period = ? AND bucket_start = ?";
+        try {
+            databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, period.name());
+                    pstmt.setLong(2, bucketStart);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        Counter counter = Counter.fromKey(rs.getString("counter"));
+                        if (counter != null) result.put(counter, rs.getLong("value"));
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException e) { ErrorReporter.report("Failed to read statistics", e); }
+
+        for (Counter counter : Counter.values()) {
+            LongAdder adder = pending.get(new RollupKey(period, bucketStart, counter));
+            if (adder != null) result.put(counter, result.get(counter) + adder.sum());
+        }
+
+        return result;
+    }
+
+    private static final class RollupKey {
+        private final Period period;
+        private final long bucketStart;
+        private final Counter counter;
+
+        private RollupKey(Period period, long bucketStart, Counter counter) {
+            this.period = period;
+            this.bucketStart = bucketStart;
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey)) return false;
+            RollupKey other = (RollupKey) o;
+            return bucketStart == other.bucketStart && period == other.period && counter == other.counter;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * period.hashCode() + Long.hashCode(bucketStart)) * 31 + counter.hashCode();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package net.justempire.discordverificator.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Statement counts and commit latency of the transactions run through DatabaseService
+public class TransactionMetrics {
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final AtomicLong maxStatements = new AtomicLong();
+
+    void recordCommit(int statementCount, long nanos) {
+        commits.increment();
+        statements.add(statementCount);
+        commitNanos.add(nanos);
+        maxCommitNanos.accumulateAndGet(nanos, Math::max);
+        maxStatements.accumulateAndGet(statementCount, Math::max);
+    }
+
+    void recordRollback() { rollbacks.increment(); }
+
+    public long getCommits() { return commits.sum(); }
+
+    public long getRollbacks() { return rollbacks.sum(); }
+
+    public double getAverageStatements() {
+        long count = commits.sum();
+        return count == 0 ? 0 : (double) statements.sum() / count;
+    }
+
+    public long getMaxStatements() { return maxStatements.get(); }
+
+    public double getAverageCommitMillis() {
+        long count = commits.sum();
+        return count == 0 ? 0 : commitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxCommitMillis() { return maxCommitNanos.get() / 1_000_000.0; }
+}
@@ -0,0 +1,32 @@
+package net.justempire.discordverificator.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Handle given to database work; every statement is prepared through it so it can be counted
+public class UnitOfWork {
+    private final Connection connection;
+    private final int queryTimeoutSeconds;
+    private int statementCount;
+
+    UnitOfWork(Connection connection, long queryTimeoutMillis) {
+        this.connection = connection;
+        // JDBC timeouts are in whole seconds, so round up
+        this.queryTimeoutSeconds = (int) Math.max(1, (queryTimeoutMillis + 999) / 1000);
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        statementCount++;
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setQueryTimeout(queryTimeoutSeconds);
+        return statement;
+    }
+
+    public int getStatementCount() { return statementCount; }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute(UnitOfWork unitOfWork) throws SQLException;
+    }
+}
@@ -0,0 +1,322 @@
+package net.justempire.discordverificator.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.exceptions.NoCodesFoundException;
+import net.justempire.discordverificator.exceptions.NotFoundException;
+import net.justempire.discordverificator.exceptions.UserNotFoundException;
+import net.justempire.discordverificator.jfr.UserQueryEvent;
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.models.IpIndexEntry;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.models.User;
+import net.justempire.discordverificator.storage.SqliteUserStore;
+import net.justempire.discordverificator.storage.StorageDump;
+import net.justempire.discordverificator.storage.UserStore;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.IpAddresses;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+// Performs actions on users and loads/saves them from/to the configured UserStore.
+// Every operation is reported as a UserQueryEvent to Java Flight Recorder.
+public class UserManager {
+    private final UserStore store;
+    private final Logger logger;
+    private final String jsonPath;
+    private final List<LinkListener> linkListeners = new CopyOnWriteArrayList<>();
+
+    public UserManager(DatabaseService databaseService, String jsonPath, Logger logger) {
+        this(new SqliteUserStore(databaseService, logger), jsonPath, logger);
+    }
+
+    public UserManager(UserStore store, String jsonPath, Logger logger) {
+        this.store = store;
+        this.jsonPath = jsonPath;
+        this.logger = logger;
+
+        // Attempt migration on startup
+        migrateFromJson();
+    }
+
+    public void addLinkListener(LinkListener listener) {
+        linkListeners.add(listener);
+    }
+
+    // --- MIGRATION LOGIC ---
+    private void migrateFromJson() {
+        File jsonFile = new File(jsonPath);
+        if (!jsonFile.exists()) return;
+
+        logger.info("Found users.json! Starting migration...");
+
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            List<User> oldUsers = mapper.readValue(jsonFile, new TypeReference<List<User>>() {});
+
+            // Everything is imported at once (already linked usernames are skipped)
+            StorageDump dump = new StorageDump();
+            long now = System.currentTimeMillis();
+            for (User oldUser : oldUsers) {
+                dump.users.add(new StorageDump.UserRow(oldUser.getDiscordId(), oldUser.getCurrentAllowedIp()));
+                for (String mcName : oldUser.linkedMinecraftUsernames) {
+                    dump.links.add(new StorageDump.LinkRow(null, mcName, oldUser.getDiscordId(), 0));
+                }
+                try {
+                    byte[] ipKey = IpAddresses.toKey(oldUser.getCurrentAllowedIp());
+                    dump.ipIndex.add(new StorageDump.IpRow(ipKey, oldUser.getDiscordId(), true, 0, now));
+                } catch (IllegalArgumentException | NullPointerException ignored) { } // No valid IP yet
+            }
+            if (!store.importAll(dump, false)) {
+                logger.warning("Failed to migrate users.json, nothing was imported. Will retry on the next start.");
+                return;
+            }
+
+            // Rename JSON file so we don't migrate again
+            File renamed = new File(jsonPath + ".old");
+            jsonFile.renameTo(renamed);
+            logger.info("Renamed users.json to users.json.old. Migrated " + oldUsers.size() + " users.");
+        } catch (IOException e) { ErrorReporter.report("Failed to migrate users.json", e); }
+    }
+
+    // Finds the Discord ID of a joining player. A link made by name before the UUID was known is claimed
+    // on the first join, and the stored username is refreshed when the player has changed it.
+    public Optional<String> findDiscordIdByPlayer(UUID uuid, String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("findDiscordIdByPlayer");
+        Optional<LinkedPlayer> link = store.findLinkByUuid(uuid);
+        // Most misses are players that aren't linked at all, they are answered by a read
+        if (!link.isPresent() && store.hasUnclaimedLink(minecraftUsername) && store.claimLink(uuid, minecraftUsername) > 0) {
+            link = store.findLinkByUuid(uuid);
+        }
+        event.finish(link.isPresent() ? 1 : 0);
+
+        if (!link.isPresent()) return Optional.empty();
+        if (!link.get().getMinecraftUsername().equals(minecraftUsername)) {
+            updateUsername(uuid, minecraftUsername);
+            for (LinkListener listener : linkListeners) {
+                listener.onRenamed(link.get().getMinecraftUsername(), minecraftUsername, link.get().getDiscordId());
+            }
+        }
+        return Optional.of(link.get().getDiscordId());
+    }
+
+    public Optional<LinkedPlayer> findLinkByUuid(UUID uuid) {
+        UserQueryEvent event = UserQueryEvent.start("findLinkByUuid");
+        Optional<LinkedPlayer> link = store.findLinkByUuid(uuid);
+        event.finish(link.isPresent() ? 1 : 0);
+        return link;
+    }
+
+    public Map<UUID, LinkedPlayer> findLinksByUuids(Collection<UUID> uuids) {
+        UserQueryEvent event = UserQueryEvent.start("findLinksByUuids");
+        Map<UUID, LinkedPlayer> links = store.findLinksByUuids(uuids);
+        event.finish(links.size());
+        return links;
+    }
+
+    public void updateUsername(UUID uuid, String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("updateUsername");
+        event.finish(store.updateUsername(uuid, minecraftUsername));
+    }
+
+    // Gives the link made by name the UUID. Returns false if there was no such link.
+    public boolean claimLink(UUID uuid, String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("claimLink");
+        int rows = store.claimLink(uuid, minecraftUsername);
+        event.finish(rows);
+        return rows > 0;
+    }
+
+    public Page<LinkedPlayer> findLinksAfter(String after, int limit) {
+        UserQueryEvent event = UserQueryEvent.start("findLinksAfter");
+        Page<LinkedPlayer> links = store.findLinksAfter(after, limit);
+        event.finish(links.getItems().size());
+        return links;
+    }
+
+    public Page<String> findUsernamesWithoutUuid(String after, int limit) {
+        UserQueryEvent event = UserQueryEvent.start("findUsernamesWithoutUuid");
+        Page<String> usernames = store.findUsernamesWithoutUuid(after, limit);
+        event.finish(usernames.getItems().size());
+        return usernames;
+    }
+
+    public String getDiscordIdByMinecraftUsername(String minecraftUsername) throws UserNotFoundException {
+        return findDiscordIdByMinecraftUsername(minecraftUsername).orElseThrow(UserNotFoundException::new);
+    }
+
+    // Same as getDiscordIdByMinecraftUsername, but a miss is reported without throwing (no stack trace is filled in)
+    public Optional<String> findDiscordIdByMinecraftUsername(String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("findDiscordIdByMinecraftUsername");
+        Optional<String> discordId = store.findDiscordIdByMinecraftUsername(minecraftUsername);
+        event.finish(discordId.isPresent() ? 1 : 0);
+        return discordId;
+    }
+
+    // Whether a link made by name is still waiting for the first join of that player
+    public boolean hasUnclaimedLink(String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("hasUnclaimedLink");
+        boolean unclaimed = store.hasUnclaimedLink(minecraftUsername);
+        event.finish(unclaimed ? 1 : 0);
+        return unclaimed;
+    }
+
+    public User getFullUserByDiscordId(String discordId) throws UserNotFoundException {
+        return findFullUserByDiscordId(discordId).orElseThrow(UserNotFoundException::new);
+    }
+
+    public Optional<User> findFullUserByDiscordId(String discordId) {
+        UserQueryEvent event = UserQueryEvent.start("findFullUserByDiscordId");
+        Optional<User> user = store.findFullUserByDiscordId(discordId);
+        event.finish(user.isPresent() ? 1 : 0);
+        return user;
+    }
+
+    // Single query, unlike findFullUserByDiscordId. Cached for "/accounts" by AccountOverviewCache.
+    public Optional<AccountOverview> findAccountOverview(String discordId) {
+        UserQueryEvent event = UserQueryEvent.start("findAccountOverview");
+        Optional<AccountOverview> overview = store.findAccountOverview(discordId);
+        event.finish(overview.map(found -> found.getAccounts().size()).orElse(0));
+        return overview;
+    }
+
+    // --- /INFO COMMAND ---
+    public Map<String, String> getPlayerInfo(String minecraftUsername) throws UserNotFoundException {
+        return findPlayerInfo(minecraftUsername).orElseThrow(UserNotFoundException::new);
+    }
+
+    public Optional<Map<String, String>> findPlayerInfo(String minecraftUsername) {
+        UserQueryEvent event = UserQueryEvent.start("findPlayerInfo");
+        Optional<Map<String, String>> info = store.findPlayerInfo(minecraftUsername);
+        event.finish(info.isPresent() ? 1 : 0);
+        return info;
+    }
+
+    // --- UPDATING LOGIN TIME ---
+    public void updatePlayerLoginTime(UUID uuid) {
+        UserQueryEvent event = UserQueryEvent.start("updatePlayerLoginTime");
+        event.finish(store.updatePlayerLoginTime(uuid));
+    }
+
+    public void updateIp(String discordId, String newIp) throws UserNotFoundException {
+        UserQueryEvent event = UserQueryEvent.start("updateIp");
+        int rows = store.updateIp(discordId, newIp);
+        event.finish(rows);
+        if (rows == 0) throw new UserNotFoundException();
+
+        for (LinkListener listener : linkListeners) listener.onIpConfirmed(discordId, newIp);
+    }
+
+    // The UUID is null if it couldn't be resolved yet; the link is then claimed on the first join
+    public void linkUser(String discordId, UUID uuid, String minecraftUsername) throws MinecraftUsernameAlreadyLinkedException {
+        UserQueryEvent event = UserQueryEvent.start("linkUser");
+        int rows = 0;
+        try {
+            store.linkUser(discordId, uuid, minecraftUsername);
+            rows = 1;
+        } finally {
+            event.finish(rows);
+        }
+        for (LinkListener listener : linkListeners) listener.onLinked(minecraftUsername, discordId);
+    }
+
+    // Moves the player to another Discord profile, no matter who it was linked to before
+    public void relinkUser(String discordId, UUID uuid, String minecraftUsername) {
+        // Listeners are told which link was replaced
+        Optional<LinkedPlayer> previous = Optional.empty();
+        if (!linkListeners.isEmpty()) {
+            previous = uuid != null ? store.findLinkByUuid(uuid) : Optional.empty();
+            if (!previous.isPresent()) {
+                previous = store.findDiscordIdByMinecraftUsername(minecraftUsername)
+                        .map(previousDiscordId -> new LinkedPlayer(null, minecraftUsername, previousDiscordId));
+            }
+        }
+
+        UserQueryEvent event = UserQueryEvent.start("relinkUser");
+        int rows = 0;
+        try {
+            store.relinkUser(discordId, uuid, minecraftUsername);
+            rows = 1;
+        } finally {
+            event.finish(rows);
+        }
+
+        for (LinkListener listener : linkListeners) {
+            previous.ifPresent(link -> listener.onUnlinked(link.getMinecraftUsername(), link.getDiscordId()));
+            listener.onLinked(minecraftUsername, discordId);
+        }
+    }
+
+    public void unlinkUser(String minecraftUsername) throws NotFoundException {
+        Optional<String> discordId = linkListeners.isEmpty() ? Optional.empty() : store.findDiscordIdByMinecraftUsername(minecraftUsername);
+
+        UserQueryEvent event = UserQueryEvent.start("unlinkUser");
+        int rows = store.unlinkUser(minecraftUsername);
+        event.finish(rows);
+        if (rows == 0) throw new NotFoundException();
+
+        for (LinkListener listener : linkListeners) listener.onUnlinked(minecraftUsername, discordId.orElse(null));
+    }
+
+    // Removes the link only if it belongs to the Discord user, links of other players with the same name stay
+    public void unlinkUser(String discordId, String minecraftUsername) throws NotFoundException {
+        UserQueryEvent event = UserQueryEvent.start("unlinkUserOfDiscordId");
+        int rows = store.unlinkUser(discordId, minecraftUsername);
+        event.finish(rows);
+        if (rows == 0) throw new NotFoundException();
+
+        for (LinkListener listener : linkListeners) listener.onUnlinked(minecraftUsername, discordId);
+    }
+
+    // --- HISTORY / SPAM PREVENTION LOGIC ---
+    public void updateLastTimeUserReceivedCode(String discordId, String ip) {
+        UserQueryEvent event = UserQueryEvent.start("updateLastTimeUserReceivedCode");
+        store.updateLastTimeUserReceivedCode(discordId, ip);
+        event.finish(1);
+    }
+
+    public long getSecondsSinceLastCode(String discordId, String ip) throws NoCodesFoundException {
+        OptionalLong seconds = findSecondsSinceLastCode(discordId, ip);
+        if (!seconds.isPresent()) throw new NoCodesFoundException();
+        return seconds.getAsLong();
+    }
+
+    // Empty if the user never received a code from this IP
+    public OptionalLong findSecondsSinceLastCode(String discordId, String ip) {
+        UserQueryEvent event = UserQueryEvent.start("findSecondsSinceLastCode");
+        OptionalLong seconds = store.findSecondsSinceLastCode(discordId, ip);
+        event.finish(seconds.isPresent() ? 1 : 0);
+        return seconds;
+    }
+
+    // --- REVERSE IP INDEX ---
+
+    // Every profile that was allowed from or requested a code from the IP (or CIDR block), most recent first.
+    // Throws IllegalArgumentException if the IP or CIDR is invalid.
+    public List<IpIndexEntry> findAccountsByIp(String ipOrCidr, int offset, int limit) {
+        UserQueryEvent event = UserQueryEvent.start("findAccountsByIp");
+        List<IpIndexEntry> entries = store.findAccountsByIp(ipOrCidr, offset, limit);
+        event.finish(entries.size());
+        return entries;
+    }
+
+    public int countAccountsByIp(String ipOrCidr) {
+        UserQueryEvent event = UserQueryEvent.start("countAccountsByIp");
+        int count = store.countAccountsByIp(ipOrCidr);
+        event.finish(1);
+        return count;
+    }
+
+    public void onShutDown() { store.close(); }
+}
@@ -0,0 +1,116 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.Page;
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Gives links made by name (before UUIDs were stored, or while the UUID couldn't be resolved) their UUID,
+// a small batch per run, so the resolver (possibly Mojang) isn't flooded. Passes over these links repeat,
+// names that didn't resolve are retried less and less often. Links that never resolve are claimed when the player joins.
+public class UuidMigrationService {
+    // A new pass starts this long after the previous one ended
+    private static final long PASS_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // A name that didn't resolve is skipped for this long, doubled after every further attempt
+    private static final long FIRST_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long MAX_RETRY_MILLIS = TimeUnit.HOURS.toMillis(24);
+    // Nothing is resolved for this long after the resolver failed (e.g. rate limited), doubled while it keeps failing
+    private static final long FIRST_PAUSE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_PAUSE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final UserManager userManager;
+    private final UuidResolver resolver;
+    private final Logger logger;
+    private final int batchSize;
+
+    // Where the next batch of the current pass starts
+    private String cursor;
+    private long nextPassAtMillis;
+    private long pausedUntilMillis;
+    private long pauseMillis;
+    // Lower-case username -> when it may be resolved again
+    private final Map<String, Retry> retries = new HashMap<>();
+    // Names of the current pass, the retries of all others are forgotten when it ends
+    private final Set<String> seenThisPass = new HashSet<>();
+    private int migrated;
+    private int unresolved;
+
+    public UuidMigrationService(UserManager userManager, UuidResolver resolver, Logger logger, int batchSize) {
+        this.userManager = userManager;
+        this.resolver = resolver;
+        this.logger = logger;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public synchronized void run() {
+        long now = System.currentTimeMillis();
+        if (now < nextPassAtMillis || now < pausedUntilMillis) return;
+
+        Page<String> page = userManager.findUsernamesWithoutUuid(cursor, batchSize);
+        List<String> usernames = page.getItems();
+
+        for (String username : usernames) {
+            String name = username.toLowerCase();
+            seenThisPass.add(name);
+            Retry retry = retries.get(name);
+            if (retry != null && now < retry.atMillis) continue;
+
+            Optional<UUID> uuid;
+            try {
+                uuid = resolver.resolve(username);
+            } catch (UncheckedIOException e) {
+                // The batch is retried once the pause is over
+                pauseMillis = pauseMillis == 0 ? FIRST_PAUSE_MILLIS : Math.min(MAX_PAUSE_MILLIS, pauseMillis * 2);
+                pausedUntilMillis = now + pauseMillis;
+                logger.warning(String.format("Couldn't resolve UUIDs right now, retrying in %d s: %s", pauseMillis / 1000, e.getMessage()));
+                return;
+            }
+            pauseMillis = 0;
+
+            if (uuid.isPresent() && userManager.claimLink(uuid.get(), username)) {
+                migrated++;
+                retries.remove(name);
+            } else {
+                // Not known yet, or the UUID already has a link of its own
+                long waitMillis = retry == null ? FIRST_RETRY_MILLIS : Math.min(MAX_RETRY_MILLIS, retry.waitMillis * 2);
+                retries.put(name, new Retry(now + waitMillis, waitMillis));
+                unresolved++;
+            }
+        }
+
+        if (usernames.size() == batchSize) {
+            cursor = page.getCursor();
+            return;
+        }
+
+        // The pass is over
+        if (migrated > 0) {
+            logger.info(String.format("UUID migration pass finished: %d links migrated, %d names not resolved (retried later or claimed on join).",
+                    migrated, unresolved));
+        }
+        retries.keySet().retainAll(seenThisPass);
+        seenThisPass.clear();
+        cursor = null;
+        migrated = 0;
+        unresolved = 0;
+        nextPassAtMillis = now + PASS_INTERVAL_MILLIS;
+    }
+
+    private static final class Retry {
+        private final long atMillis;
+        private final long waitMillis;
+
+        private Retry(long atMillis, long waitMillis) {
+            this.atMillis = atMillis;
+            this.waitMillis = waitMillis;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package net.justempire.discordverificator.services;
+
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.UUID;
+
+// Finds the UUID of a player by name, the way the platform knows it. May block (e.g. on a Mojang lookup),
+// so it's only called off the main thread. Empty if the UUID can't be known for sure yet;
+// throws UncheckedIOException if the lookup can't be made right now (e.g. rate limited).
+@FunctionalInterface
+public interface UuidResolver {
+    Optional<UUID> resolve(String minecraftUsername);
+
+    // For linking: null if the UUID isn't known yet, the link is then claimed on the player's first join
+    default UUID resolveOrNull(String minecraftUsername) {
+        try {
+            return resolve(minecraftUsername).orElse(null);
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+}
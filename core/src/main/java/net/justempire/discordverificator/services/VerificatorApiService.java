@@ -0,0 +1,221 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.api.DiscordVerificatorApi;
+import net.justempire.discordverificator.api.LinkChangeListener;
+import net.justempire.discordverificator.models.LinkedPlayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+// The public API: UUID lookups are cached (including misses) and dropped on every link change made through this plugin.
+// Entries also expire, since other servers sharing the database don't notify this one.
+public class VerificatorApiService implements DiscordVerificatorApi, LinkListener {
+    private final UserManager userManager;
+    // Runs lookups off the caller's thread (provided by the platform)
+    private final Executor asyncExecutor;
+    private final Logger logger;
+    private final long ttlMillis;
+
+    private final Map<UUID, CachedLink> cache;
+    // Bumped by every change, so a lookup that raced with one doesn't cache what it read before it
+    private long generation;
+
+    private final List<LinkChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public VerificatorApiService(UserManager userManager, Executor asyncExecutor, Logger logger, int maxCachedPlayers, long ttlMillis) {
+        this.userManager = userManager;
+        this.asyncExecutor = asyncExecutor;
+        this.logger = logger;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<UUID, CachedLink>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedLink> eldest) {
+                return size() > maxCachedPlayers;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() { return VERSION; }
+
+    @Override
+    public CompletableFuture<Optional<String>> findDiscordId(UUID playerUuid) {
+        CachedLink cached = getCached(playerUuid);
+        if (cached != null) return CompletableFuture.completedFuture(Optional.ofNullable(cached.discordId));
+
+        return CompletableFuture.supplyAsync(() -> {
+            long readGeneration = currentGeneration();
+            Optional<LinkedPlayer> link = userManager.findLinkByUuid(playerUuid);
+            putCached(playerUuid, link.orElse(null), readGeneration);
+            return link.map(LinkedPlayer::getDiscordId);
+        }, asyncExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> findDiscordIdByUsername(String minecraftUsername) {
+        return CompletableFuture.supplyAsync(() -> userManager.findDiscordIdByMinecraftUsername(minecraftUsername), asyncExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isLinked(UUID playerUuid) {
+        return findDiscordId(playerUuid).thenApply(Optional::isPresent);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, String>> findDiscordIds(Collection<UUID> playerUuids) {
+        Map<UUID, String> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : playerUuids) {
+            CachedLink cached = getCached(uuid);
+            if (cached == null) missing.add(uuid);
+            else if (cached.discordId != null) found.put(uuid, cached.discordId);
+        }
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(found);
+
+        // Everything that isn't cached is read with one query
+        return CompletableFuture.supplyAsync(() -> {
+            long readGeneration = currentGeneration();
+            Map<UUID, LinkedPlayer> links = userManager.findLinksByUuids(missing);
+            for (UUID uuid : missing) {
+                LinkedPlayer link = links.get(uuid);
+                putCached(uuid, link, readGeneration);
+                if (link != null) found.put(uuid, link.getDiscordId());
+            }
+            return found;
+        }, asyncExecutor);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> findUsernames(String discordId) {
+        return CompletableFuture.supplyAsync(() -> userManager.findFullUserByDiscordId(discordId)
+                .map(user -> (List<String>) new ArrayList<>(user.linkedMinecraftUsernames))
+                .orElse(Collections.emptyList()), asyncExecutor);
+    }
+
+    @Override
+    public void addListener(LinkChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(LinkChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onLinked(String minecraftUsername, String discordId) {
+        invalidate(minecraftUsername);
+        for (LinkChangeListener listener : listeners) {
+            try {
+                listener.onLinked(minecraftUsername, discordId);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onUnlinked(String minecraftUsername, String discordId) {
+        invalidate(minecraftUsername);
+        for (LinkChangeListener listener : listeners) {
+            try {
+                listener.onUnlinked(minecraftUsername, discordId);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onRenamed(String oldMinecraftUsername, String newMinecraftUsername, String discordId) {
+        invalidate(oldMinecraftUsername);
+        invalidate(newMinecraftUsername);
+        for (LinkChangeListener listener : listeners) {
+            try {
+                listener.onRenamed(oldMinecraftUsername, newMinecraftUsername, discordId);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onIpConfirmed(String discordId, String ipAddress) {
+        for (LinkChangeListener listener : listeners) {
+            try {
+                listener.onIpConfirmed(discordId, ipAddress);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    // Drops the cached lookup of the player if it disagrees with the stored link (null if not linked).
+    // Returns true if a stale entry was dropped.
+    public synchronized boolean repair(UUID uuid, LinkedPlayer link) {
+        CachedLink cached = cache.get(uuid);
+        if (cached == null) return false;
+        boolean matches = link == null
+                ? cached.discordId == null
+                : link.getDiscordId().equals(cached.discordId) && link.getMinecraftUsername().equalsIgnoreCase(cached.minecraftUsername);
+        if (matches) return false;
+
+        generation++;
+        cache.remove(uuid);
+        return true;
+    }
+
+    private synchronized CachedLink getCached(UUID uuid) {
+        CachedLink cached = cache.get(uuid);
+        if (cached == null) return null;
+        if (System.currentTimeMillis() - cached.cachedAtMillis > ttlMillis) {
+            cache.remove(uuid);
+            return null;
+        }
+        return cached;
+    }
+
+    // A null link caches that the player isn't linked
+    private synchronized void putCached(UUID uuid, LinkedPlayer link, long readGeneration) {
+        if (readGeneration != generation) return;
+        cache.put(uuid, link == null
+                ? new CachedLink(null, null, System.currentTimeMillis())
+                : new CachedLink(link.getMinecraftUsername(), link.getDiscordId(), System.currentTimeMillis()));
+    }
+
+    private synchronized long currentGeneration() { return generation; }
+
+    // Links are changed by name, so entries of that name go; so do cached misses, the player may have just been linked
+    private synchronized void invalidate(String minecraftUsername) {
+        generation++;
+        cache.values().removeIf(cached -> cached.discordId == null || cached.minecraftUsername.equalsIgnoreCase(minecraftUsername));
+    }
+
+    private void logListenerFailure(LinkChangeListener listener, RuntimeException e) {
+        logger.warning(String.format("A link change listener (%s) failed: %s", listener.getClass().getName(), e));
+    }
+
+    private static final class CachedLink {
+        // Both null if the player isn't linked
+        private final String minecraftUsername;
+        private final String discordId;
+        private final long cachedAtMillis;
+
+        private CachedLink(String minecraftUsername, String discordId, long cachedAtMillis) {
+            this.minecraftUsername = minecraftUsername;
+            this.discordId = discordId;
+            this.cachedAtMillis = cachedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.discord.BotConnection;
+import net.justempire.discordverificator.discord.DiscordBot;
+import net.justempire.discordverificator.discord.InteractionEndpoint;
+import net.justempire.discordverificator.discord.JdaPromptSender;
+import net.justempire.discordverificator.discord.PushPromptQueue;
+import net.justempire.discordverificator.models.PushPrompt;
+import net.justempire.discordverificator.storage.JournalUserStore;
+import net.justempire.discordverificator.storage.SqliteUserStore;
+import net.justempire.discordverificator.storage.UserStore;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.PluginConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Creates and schedules everything the server and the proxy plugin have in common. The platform loads the config
+// and the messages, registers the join listener and the commands, and starts the bot once the messages are loaded.
+public class VerificatorBootstrap {
+    private final PluginConfig config;
+    private final PlatformScheduler scheduler;
+    private final UuidResolver uuidResolver;
+    private final File dataFolder;
+    private final Logger logger;
+
+    private DatabaseService databaseService;
+    private SqliteUserStore sqliteUserStore;
+    private UserStore userStore;
+    private UserManager userManager;
+    private LinkCompletionIndex completionIndex;
+    private VerificatorApiService api;
+    private AccountOverviewCache accountOverviewCache;
+    private ConfirmationCodeService confirmationCodeService;
+    private StatisticsService statisticsService;
+    private DatabaseBackupService backupService;
+    private BotConnection botConnection;
+    // Null if push verification is disabled
+    private PushPromptQueue pushPromptQueue;
+    // Null if flood protection is disabled
+    private JoinFloodGuard joinFloodGuard;
+    // Null if the consistency check is disabled
+    private ConsistencyVerifier consistencyVerifier;
+    private PreLoginVerifier preLoginVerifier;
+
+    public VerificatorBootstrap(PluginConfig config, PlatformScheduler scheduler, UuidResolver uuidResolver, File dataFolder, Logger logger) {
+        this.config = config;
+        this.scheduler = scheduler;
+        this.uuidResolver = uuidResolver;
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+    }
+
+    // Returns false if the database or the journal can't be opened, the reason is logged
+    public boolean start() {
+        // Repeated errors are logged once and then summed up every minute
+        ErrorReporter.start(logger);
+        scheduler.repeatAsync(ErrorReporter::logSummaries, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+
+        // Initialize Database Service, queries fail fast while the database is unavailable
+        CircuitBreaker circuitBreaker = new CircuitBreaker(logger,
+                config.getInt("database.circuit-breaker.failure-threshold", 5),
+                config.getLong("database.circuit-breaker.slow-call-millis", 1000),
+                config.getLong("database.circuit-breaker.open-seconds", 30) * 1000);
+        databaseService = new DatabaseService(dataFolder.getAbsolutePath(), logger,
+                config.getLong("database.query-timeout-millis", DatabaseService.DEFAULT_QUERY_TIMEOUT_MILLIS), circuitBreaker);
+        try {
+            databaseService.initialize();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not initialize database!", e);
+            return false;
+        }
+
+        // Initialize UserManager with the configured store and JSON path for migration
+        sqliteUserStore = new SqliteUserStore(databaseService, logger);
+        userStore = sqliteUserStore;
+        if ("journal".equalsIgnoreCase(config.getString("storage.engine", "sqlite"))) {
+            try {
+                JournalUserStore journalStore = new JournalUserStore(new File(dataFolder, "journal"), logger,
+                        config.getBoolean("storage.journal.fsync", true));
+                if (journalStore.isEmpty()) {
+                    // The import copies the reverse IP index too, so it has to be complete first
+                    sqliteUserStore.buildIpIndex();
+                    journalStore.importFrom(sqliteUserStore);
+                }
+
+                long snapshotIntervalMillis = TimeUnit.MINUTES.toMillis(config.getLong("storage.journal.snapshot-interval-minutes", 10));
+                scheduler.repeatAsync(journalStore::snapshot, snapshotIntervalMillis, snapshotIntervalMillis);
+                userStore = journalStore;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not open the journal!", e);
+                return false;
+            }
+        } else {
+            scheduler.runAsync(sqliteUserStore::buildIpIndex);
+        }
+        userManager = new UserManager(userStore, new File(dataFolder, "users.json").getPath(), logger);
+
+        // Usernames and Discord IDs for tab completion are loaded once and then follow every link change
+        completionIndex = new LinkCompletionIndex(logger, config.getInt("tab-completion.max-suggestions", 50));
+        userManager.addLinkListener(completionIndex);
+        scheduler.runAsync(() -> completionIndex.build(userManager));
+
+        // Other plugins look links up through the API, the platform makes it available
+        api = new VerificatorApiService(userManager, scheduler::runAsync, logger,
+                config.getInt("api.cache-size", 10000), config.getLong("api.cache-seconds", 600) * 1000);
+        userManager.addLinkListener(api);
+
+        // Backs "/accounts" in Discord, kept by reloads like the user manager
+        accountOverviewCache = new AccountOverviewCache(userManager);
+        userManager.addLinkListener(accountOverviewCache);
+
+        // Links made before UUIDs were stored get their UUID in small batches
+        UuidMigrationService uuidMigrationService = new UuidMigrationService(userManager, uuidResolver, logger,
+                config.getInt("storage.uuid-migration-batch-size", 50));
+        scheduler.repeatAsync(uuidMigrationService::run, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+
+        // Pending codes are either kept in memory or shared through the database
+        CodeStore codeStore = "sql".equalsIgnoreCase(config.getString("codes.store", "memory"))
+                ? new SqlCodeStore(databaseService)
+                : new InMemoryCodeStore();
+        confirmationCodeService = new ConfirmationCodeService(codeStore, config.getLong("codes.ttl-seconds", 600));
+        scheduler.repeatAsync(confirmationCodeService::removeExpiredCodes, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+
+        // Counters are buffered in memory and flushed periodically
+        statisticsService = new StatisticsService(databaseService, logger);
+        long flushIntervalMillis = TimeUnit.SECONDS.toMillis(config.getLong("statistics.flush-interval-seconds", 60));
+        scheduler.repeatAsync(statisticsService::flush, flushIntervalMillis, flushIntervalMillis);
+
+        // Online backups run on their own connection
+        backupService = new DatabaseBackupService(databaseService, new File(dataFolder, "backups"), logger,
+                config.getInt("backups.retention", 7),
+                config.getInt("backups.pages-per-step", 64),
+                config.getInt("backups.step-sleep-millis", 10));
+        if (config.getBoolean("backups.enabled", true)) {
+            long backupIntervalMillis = TimeUnit.MINUTES.toMillis(config.getLong("backups.interval-minutes", 360));
+            scheduler.repeatAsync(backupService::backup, backupIntervalMillis, backupIntervalMillis);
+        }
+
+        // The bot itself is started by startBot()
+        botConnection = new BotConnection(logger);
+
+        // Optional prompts with approve/deny buttons, sent in the background within Discord's rate limits
+        Predicate<PushPrompt> pushPrompts = prompt -> false;
+        if (config.getBoolean("push.enabled", false) && isHttpMode()) {
+            logger.warning("Push prompts need discord.mode \"gateway\" and stay disabled!");
+        } else if (config.getBoolean("push.enabled", false)) {
+            pushPromptQueue = new PushPromptQueue(new JdaPromptSender(botConnection::getJDA), logger,
+                    config.getInt("push.global-per-second", 40),
+                    config.getInt("push.per-user-limit", 5),
+                    config.getLong("push.per-user-window-seconds", 5) * 1000,
+                    config.getLong("push.max-age-seconds", 60) * 1000,
+                    config.getInt("push.max-pending", 1000));
+            scheduler.repeatAsync(pushPromptQueue::dispatch, 50, 50);
+            pushPrompts = pushPromptQueue::offer;
+        }
+
+        // Floods of join attempts are blocked before they reach the database
+        if (config.getBoolean("flood-protection.enabled", false)) {
+            joinFloodGuard = new JoinFloodGuard(logger,
+                    config.getLong("flood-protection.window-seconds", 60) * 1000,
+                    config.getInt("flood-protection.max-attempts-per-ip", 20),
+                    config.getInt("flood-protection.max-attempts-per-network", 100),
+                    config.getLong("flood-protection.block-seconds", 300) * 1000);
+        }
+
+        AllowedIpCache allowedIpCache = new AllowedIpCache(10_000, config.getLong("database.cached-ip-ttl-minutes", 1440) * 60_000);
+
+        // The in-memory link and IP state is checked against the database in the background
+        if (config.getBoolean("consistency-check.enabled", false)) {
+            consistencyVerifier = new ConsistencyVerifier(userManager, logger, allowedIpCache, api, accountOverviewCache, completionIndex,
+                    config.getDouble("consistency-check.sample-rate", 0.05),
+                    config.getInt("consistency-check.sweep-batch-size", 100),
+                    TimeUnit.HOURS.toMillis(config.getLong("consistency-check.sweep-interval-hours", 6)));
+            userManager.addLinkListener(consistencyVerifier);
+            scheduler.repeatAsync(consistencyVerifier::verifySamples, TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(5));
+            // One page per run while a pass is in progress
+            scheduler.repeatAsync(consistencyVerifier::sweep, TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(5));
+        }
+
+        // Decides the joins, the platform's listener only passes them on
+        preLoginVerifier = new PreLoginVerifier(botConnection::isBotAvailable, userManager, confirmationCodeService, statisticsService,
+                PreLoginVerifier.UnavailablePolicy.fromConfig(config.getString("database.unavailable-policy", "kick")),
+                allowedIpCache, pushPrompts, joinFloodGuard, consistencyVerifier);
+
+        // Background maintenance, sized by the measured join rate
+        if (config.getBoolean("maintenance.enabled", true)) {
+            DatabaseMaintenanceService maintenanceService = new DatabaseMaintenanceService(databaseService, preLoginVerifier::getAttemptCount, logger,
+                    config.getDouble("maintenance.busy-joins-per-minute", 20),
+                    config.getLong("maintenance.time-budget-millis", 2000),
+                    config.getInt("maintenance.max-vacuum-pages", 2048),
+                    config.getBoolean("maintenance.convert-to-incremental-vacuum", false));
+            long maintenanceIntervalMillis = TimeUnit.MINUTES.toMillis(config.getLong("maintenance.interval-minutes", 30));
+            scheduler.repeatAsync(maintenanceService::run, maintenanceIntervalMillis, maintenanceIntervalMillis);
+        }
+
+        return true;
+    }
+
+    // Connects the bot (or starts the interactions endpoint) in the background, with the config as it is now.
+    // Called again after a reload, once the previous connection was shut down.
+    public void startBot() {
+        scheduler.runAsync(() -> {
+            String token = config.getString("token", null);
+
+            if (isHttpMode()) {
+                InteractionEndpoint endpoint = new InteractionEndpoint(config.getInt("discord.http.threads", 4), logger, userManager,
+                        confirmationCodeService, statisticsService, accountOverviewCache,
+                        config.getString("discord.http.bind-address", "0.0.0.0"),
+                        config.getInt("discord.http.port", 8080),
+                        config.getString("discord.http.path", "/interactions"),
+                        config.getString("discord.http.public-key", ""));
+                botConnection.serve(token, endpoint);
+                return;
+            }
+
+            DiscordBot bot = new DiscordBot(scheduler::runAsync, logger, userManager, confirmationCodeService, statisticsService, accountOverviewCache);
+            botConnection.connect(token, bot);
+        });
+    }
+
+    // Also cleans up after a start() that failed halfway
+    public void shutdown() {
+        if (statisticsService != null) statisticsService.flush(); // Saves counters that weren't flushed yet
+        if (userManager != null) userManager.onShutDown(); // Saves and closes the user store
+        if (databaseService != null) databaseService.closeConnection();
+        if (botConnection != null) botConnection.shutdown(5);
+        ErrorReporter.stop(); // Logs the last summaries
+    }
+
+    private boolean isHttpMode() {
+        return config.getString("discord.mode", "gateway").equalsIgnoreCase("http");
+    }
+
+    public DatabaseService getDatabaseService() { return databaseService; }
+
+    public SqliteUserStore getSqliteUserStore() { return sqliteUserStore; }
+
+    // The store selected by storage.engine
+    public UserStore getUserStore() { return userStore; }
+
+    public UserManager getUserManager() { return userManager; }
+
+    public LinkCompletionIndex getCompletionIndex() { return completionIndex; }
+
+    public VerificatorApiService getApi() { return api; }
+
+    public StatisticsService getStatisticsService() { return statisticsService; }
+
+    public DatabaseBackupService getBackupService() { return backupService; }
+
+    public BotConnection getBotConnection() { return botConnection; }
+
+    public PushPromptQueue getPushPromptQueue() { return pushPromptQueue; }
+
+    public JoinFloodGuard getJoinFloodGuard() { return joinFloodGuard; }
+
+    public ConsistencyVerifier getConsistencyVerifier() { return consistencyVerifier; }
+
+    public PreLoginVerifier getPreLoginVerifier() { return preLoginVerifier; }
+}
@@ -0,0 +1,332 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.utils.ErrorReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// Append-only log of checksummed records plus compacted snapshots.
+//
+// Files in the directory: journal-<generation>.log and snapshot-<generation>.dat, where a snapshot holds the
+// state as of the start of the journal with the same generation. Every record is framed as
+// [length][crc32][type][payload], so a torn write at the end of a journal is detected and ignored on load.
+//
+// Appends are written by a single writer thread: all records that piled up while the previous fsync was
+// running are written and synced together (group commit).
+class Journal {
+    private static final int SNAPSHOT_MAGIC = 0x44565331; // "DVS1"
+    private static final byte END_OF_SNAPSHOT = 0;
+
+    // Reads records from the journal or a snapshot
+    interface RecordHandler {
+        void handle(byte type, DataInputStream payload) throws IOException;
+    }
+
+    static final class Record {
+        final byte type;
+        final byte[] payload;
+
+        Record(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    private final File directory;
+    private final Logger logger;
+
+    private FileChannel channel;
+    private long generation;
+    private long bytesSinceSnapshot;
+
+    // Guarded by "this"
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long appendedSeq;
+    private long durableSeq;
+    private long rotateAfterSeq = -1;
+    private boolean closed;
+    // Set once a write failed, every later append is refused
+    private IOException failure;
+
+    private Thread writer;
+
+    Journal(File directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    // Replays the newest snapshot and every journal after it, then opens a new journal for appends.
+    // A damaged snapshot fails the open: the journals before it were deleted when it was written, so no older state is complete.
+    void open(RecordHandler handler) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+
+        long snapshotGeneration = -1;
+        List<Long> snapshots = generations("snapshot-", ".dat");
+        if (!snapshots.isEmpty()) {
+            snapshotGeneration = snapshots.get(0);
+            if (!replaySnapshot(snapshotFile(snapshotGeneration), handler)) {
+                throw new IOException("Journal snapshot " + snapshotFile(snapshotGeneration) + " is damaged, restore the journal directory from a backup");
+            }
+        }
+
+        long lastGeneration = Math.max(snapshotGeneration, 0);
+        List<Long> journals = generations("journal-", ".log");
+        for (int i = journals.size() - 1; i >= 0; i--) {
+            long journalGeneration = journals.get(i);
+            if (journalGeneration < snapshotGeneration) continue;
+            replayJournal(journalFile(journalGeneration), handler);
+            lastGeneration = Math.max(lastGeneration, journalGeneration);
+        }
+
+        // Never append to a file that may end with a torn record
+        generation = lastGeneration + 1;
+        channel = openForAppend(journalFile(generation));
+
+        writer = new Thread(this::writeLoop, "DiscordVerificator-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues the record and returns its sequence number. Callers append in the order they apply changes.
+    // Throws StorageUnavailableException once a write failed.
+    synchronized long append(byte type, byte[] payload) {
+        if (failure != null) throw new StorageUnavailableException(failure);
+        pending.add(frame(type, payload));
+        bytesSinceSnapshot += payload.length + 9;
+        appendedSeq++;
+        notifyAll();
+        return appendedSeq;
+    }
+
+    // Blocks until the record with the given sequence number is on disk.
+    // Throws StorageUnavailableException if the write failed.
+    synchronized void awaitDurable(long seq) {
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (durableSeq < seq && failure != null) throw new StorageUnavailableException(failure);
+    }
+
+    synchronized long getBytesSinceSnapshot() { return bytesSinceSnapshot; }
+
+    // Starts a new journal generation after everything appended so far and returns it (-1 if the journal failed).
+    // The caller captures its state at the same moment (under its own lock), then writes it with writeSnapshot.
+    synchronized long rotate() {
+        rotateAfterSeq = appendedSeq;
+        bytesSinceSnapshot = 0;
+        notifyAll();
+        while (rotateAfterSeq >= 0 && failure == null && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return rotateAfterSeq < 0 && failure == null ? generation : -1;
+    }
+
+    // Writes the records as the snapshot of the given generation and deletes what it supersedes
+    void writeSnapshot(long snapshotGeneration, List<Record> records) throws IOException {
+        File target = snapshotFile(snapshotGeneration);
+        File partial = new File(directory, target.getName() + ".part");
+
+        try (FileChannel out = FileChannel.open(partial.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            header.putInt(SNAPSHOT_MAGIC).putLong(snapshotGeneration).flip();
+            writeFully(out, header);
+            for (Record record : records) writeFully(out, frame(record.type, record.payload));
+            writeFully(out, frame(END_OF_SNAPSHOT, ByteBuffer.allocate(4).putInt(records.size()).array()));
+            out.force(true);
+        }
+        Files.move(partial.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        // Older files are no longer needed (deletion may fail while they are still mapped; it's retried next time)
+        for (long old : generations("snapshot-", ".dat")) {
+            if (old < snapshotGeneration) snapshotFile(old).delete();
+        }
+        for (long old : generations("journal-", ".log")) {
+            if (old < snapshotGeneration) journalFile(old).delete();
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            if (writer != null) writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchSeq;
+            long rotateAt;
+            synchronized (this) {
+                while (pending.isEmpty() && rotateAfterSeq < 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty() && rotateAfterSeq < 0 && closed) break;
+
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSeq = appendedSeq;
+                rotateAt = rotateAfterSeq;
+            }
+
+            try {
+                for (ByteBuffer buffer : batch) writeFully(channel, buffer);
+                channel.force(false);
+
+                if (rotateAt >= 0) {
+                    channel.close();
+                    channel = openForAppend(journalFile(generation + 1));
+                }
+            } catch (IOException e) {
+                logger.severe("Failed to write the journal, further changes are refused: " + e.getMessage());
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                durableSeq = batchSeq;
+                if (rotateAt >= 0) {
+                    generation++;
+                    rotateAfterSeq = -1;
+                }
+                notifyAll();
+            }
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            ErrorReporter.report("Failed to close the journal", e);
+        }
+    }
+
+    private boolean replaySnapshot(File file, RecordHandler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != SNAPSHOT_MAGIC) return false;
+            buffer.getLong(); // Generation (already known from the name)
+
+            // The snapshot is only used if it's complete, so records are applied after validating them all
+            List<Record> records = new ArrayList<>();
+            while (true) {
+                Record record = readRecord(buffer);
+                if (record == null) return false;
+                if (record.type == END_OF_SNAPSHOT) break;
+                records.add(record);
+            }
+            for (Record record : records) handler.handle(record.type, payloadStream(record.payload));
+            return true;
+        }
+    }
+
+    private void replayJournal(File file, RecordHandler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (buffer.hasRemaining()) {
+                Record record = readRecord(buffer);
+                if (record == null) {
+                    logger.warning(String.format("Journal %s has a damaged record at byte %d, the rest of it is ignored", file.getName(), buffer.position()));
+                    break;
+                }
+                handler.handle(record.type, payloadStream(record.payload));
+            }
+            // Replayed records count towards the next snapshot, so it compacts them
+            synchronized (this) { bytesSinceSnapshot += buffer.position(); }
+        }
+    }
+
+    // Returns null if the record is truncated or its checksum doesn't match
+    private static Record readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < 9) return null;
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 1 || length > buffer.remaining()) return null;
+
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        if ((int) crc.getValue() != checksum) return null;
+
+        byte[] payload = new byte[length - 1];
+        System.arraycopy(body, 1, payload, 0, payload.length);
+        return new Record(body[0], payload);
+    }
+
+    private static ByteBuffer frame(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(9 + payload.length);
+        buffer.putInt(payload.length + 1).putInt((int) crc.getValue()).put(type).put(payload).flip();
+        return buffer;
+    }
+
+    private static DataInputStream payloadStream(byte[] payload) {
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static FileChannel openForAppend(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Generations of the files with the given prefix, newest first
+    private List<Long> generations(String prefix, String suffix) {
+        List<Long> result = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) return result;
+        for (String name : names) {
+            if (!name.startsWith(prefix) || !name.endsWith(suffix)) continue;
+            try {
+                result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            } catch (NumberFormatException ignored) { }
+        }
+        result.sort((a, b) -> Long.compare(b, a));
+        return result;
+    }
+
+    private File journalFile(long journalGeneration) { return new File(directory, "journal-" + journalGeneration + ".log"); }
+
+    private File snapshotFile(long snapshotGeneration) { return new File(directory, "snapshot-" + snapshotGeneration + ".dat"); }
+}
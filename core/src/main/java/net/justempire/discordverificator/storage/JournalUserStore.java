@@ -0,0 +1,837 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.models.IpIndexEntry;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.models.User;
+import net.justempire.discordverificator.utils.IpAddresses;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Keeps all users in memory. Reads never touch the disk; every change is appended to the Journal
+// before the call returns, and periodic snapshots keep the journal (and the restart time) small.
+// Once the journal can't be written, changes throw StorageUnavailableException.
+// A change touches several maps, so it is applied under the write lock of stateLock and lookups take its read lock.
+public class JournalUserStore implements UserStore {
+    // Changes as they happen (LINK, RELINK and LOGIN are by name, from before links had UUIDs, and are only replayed)
+    private static final byte LINK = 1;
+    private static final byte RELINK = 2;
+    private static final byte UNLINK = 3;
+    private static final byte LOGIN = 4;
+    private static final byte ALLOW_IP = 5;
+    private static final byte CODE = 6;
+    private static final byte LINK_PLAYER = 7;
+    private static final byte RELINK_PLAYER = 8;
+    private static final byte PLAYER_LOGIN = 9;
+    private static final byte CLAIM = 14;
+    private static final byte RENAME = 15;
+    private static final byte UNLINK_OWNED = 17;
+    // Rows of a snapshot or an import
+    private static final byte USER_ROW = 10;
+    private static final byte LINK_ROW = 11; // Only replayed, replaced by PLAYER_ROW
+    private static final byte CODE_ROW = 12;
+    private static final byte IP_ROW = 13;
+    private static final byte PLAYER_ROW = 16;
+    private static final byte CLEAR = 20;
+
+    private final Journal journal;
+    private final Logger logger;
+    private final boolean fsync;
+
+    // Discord ID -> allowed IP ("" if none yet)
+    private final Map<String, String> allowedIps = new ConcurrentHashMap<>();
+    // Link key (the UUID, or the name for links that weren't claimed yet) -> link
+    private final Map<String, Link> linksByKey = new ConcurrentHashMap<>();
+    // Lower-case username -> link key -> link, in the order the links are paged through
+    private final ConcurrentNavigableMap<String, ConcurrentNavigableMap<String, Link>> linksByName = new ConcurrentSkipListMap<>();
+    // Lower-case username -> the link of that name without a UUID
+    private final ConcurrentNavigableMap<String, Link> unclaimedLinks = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> linkKeysByDiscordId = new ConcurrentHashMap<>();
+    // Discord ID + IP -> last time a code was received
+    private final Map<String, Long> lastCodeAt = new ConcurrentHashMap<>();
+    // IP key -> Discord ID -> index row
+    private final ConcurrentNavigableMap<byte[], ConcurrentMap<String, IpRow>> ipIndex = new ConcurrentSkipListMap<>(JournalUserStore::compareKeys);
+
+    // Changes are applied and appended under this lock, so the journal has the same order as memory
+    private final Object writeLock = new Object();
+    // Lookups never see a change that was applied to only some of the maps
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    public JournalUserStore(File directory, Logger logger, boolean fsync) throws IOException {
+        this.journal = new Journal(directory, logger);
+        this.logger = logger;
+        this.fsync = fsync;
+
+        long start = System.currentTimeMillis();
+        journal.open(this::apply);
+        logger.info(String.format("Loaded %d links from the journal in %d ms", linksByKey.size(), System.currentTimeMillis() - start));
+
+        // Compacts whatever was replayed, so the next start only has to read a snapshot
+        snapshot();
+    }
+
+    public boolean isEmpty() { return allowedIps.isEmpty() && linksByKey.isEmpty(); }
+
+    // Copies everything from another store (used once when switching from SQLite)
+    public void importFrom(UserStore source) {
+        StorageDump dump = source.exportAll();
+        importAll(dump, false);
+        logger.info(String.format("Imported %d users and %d links into the journal", dump.users.size(), dump.links.size()));
+    }
+
+    // Writes a compacted snapshot if anything changed since the last one
+    public void snapshot() {
+        if (journal.getBytesSinceSnapshot() == 0) return;
+
+        List<Journal.Record> records;
+        long generation;
+        synchronized (writeLock) {
+            generation = journal.rotate();
+            if (generation < 0) return; // The journal can't be written anymore
+            records = encode(exportAll());
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            journal.writeSnapshot(generation, records);
+            logger.info(String.format("Journal snapshot %d written in %d ms (%d records)", generation, System.currentTimeMillis() - start, records.size()));
+        } catch (IOException e) {
+            logger.warning("Failed to write a journal snapshot, the journal keeps growing: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<LinkedPlayer> findLinkByUuid(UUID uuid) {
+        // A single lookup in a single map, so it doesn't need the lock
+        Link link = linksByKey.get(uuidKey(uuid));
+        return link == null ? Optional.empty() : Optional.of(new LinkedPlayer(uuid, link.minecraftUsername, link.discordId));
+    }
+
+    @Override
+    public Map<UUID, LinkedPlayer> findLinksByUuids(Collection<UUID> uuids) {
+        return read(() -> {
+            Map<UUID, LinkedPlayer> found = new HashMap<>();
+            for (UUID uuid : uuids) {
+                Link link = linksByKey.get(uuidKey(uuid));
+                if (link != null) found.put(uuid, new LinkedPlayer(uuid, link.minecraftUsername, link.discordId));
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public boolean hasUnclaimedLink(String minecraftUsername) {
+        return unclaimedLinks.containsKey(minecraftUsername.toLowerCase());
+    }
+
+    @Override
+    public int claimLink(UUID uuid, String minecraftUsername) {
+        long seq;
+        synchronized (writeLock) {
+            if (!linksByKey.containsKey(nameKey(minecraftUsername)) || linksByKey.containsKey(uuidKey(uuid))) return 0;
+            seq = record(CLAIM, out -> {
+                writeUuid(out, uuid);
+                out.writeUTF(minecraftUsername);
+            });
+        }
+        awaitDurable(seq);
+        return 1;
+    }
+
+    @Override
+    public int updateUsername(UUID uuid, String minecraftUsername) {
+        long seq;
+        synchronized (writeLock) {
+            if (!linksByKey.containsKey(uuidKey(uuid))) return 0;
+            seq = record(RENAME, out -> {
+                writeUuid(out, uuid);
+                out.writeUTF(minecraftUsername);
+            });
+        }
+        awaitDurable(seq);
+        return 1;
+    }
+
+    // There is at most one unclaimed link per name, so the cursor is the lower-case name
+    @Override
+    public Page<String> findUsernamesWithoutUuid(String after, int limit) {
+        return read(() -> {
+            List<String> usernames = new ArrayList<>();
+            String cursor = after;
+            ConcurrentNavigableMap<String, Link> rest = after == null ? unclaimedLinks : unclaimedLinks.tailMap(after, false);
+            for (Map.Entry<String, Link> entry : rest.entrySet()) {
+                if (usernames.size() == limit) break;
+                usernames.add(entry.getValue().minecraftUsername);
+                cursor = entry.getKey();
+            }
+            return new Page<>(usernames, cursor);
+        });
+    }
+
+    // Names aren't unique, so the cursor is the lower-case name and the link key of the last link
+    @Override
+    public Page<LinkedPlayer> findLinksAfter(String after, int limit) {
+        return read(() -> {
+            List<LinkedPlayer> page = new ArrayList<>();
+            String afterName = after == null ? null : after.substring(0, after.indexOf('\n'));
+            String afterKey = after == null ? null : after.substring(after.indexOf('\n') + 1);
+            String cursor = after;
+
+            ConcurrentNavigableMap<String, ConcurrentNavigableMap<String, Link>> names = after == null ? linksByName : linksByName.tailMap(afterName, true);
+            for (Map.Entry<String, ConcurrentNavigableMap<String, Link>> sameName : names.entrySet()) {
+                Map<String, Link> rest = sameName.getKey().equals(afterName) ? sameName.getValue().tailMap(afterKey, false) : sameName.getValue();
+                for (Map.Entry<String, Link> entry : rest.entrySet()) {
+                    if (page.size() == limit) return new Page<>(page, cursor);
+                    Link link = entry.getValue();
+                    page.add(new LinkedPlayer(link.uuid, link.minecraftUsername, link.discordId));
+                    cursor = sameName.getKey() + "\n" + entry.getKey();
+                }
+            }
+            return new Page<>(page, cursor);
+        });
+    }
+
+    @Override
+    public Optional<String> findDiscordIdByMinecraftUsername(String minecraftUsername) {
+        return read(() -> {
+            Link link = latestLink(minecraftUsername);
+            return link == null ? Optional.empty() : Optional.of(link.discordId);
+        });
+    }
+
+    @Override
+    public Optional<User> findFullUserByDiscordId(String discordId) {
+        return read(() -> {
+            String ip = allowedIps.get(discordId);
+            if (ip == null) return Optional.empty();
+            return Optional.of(new User(discordId, usernamesOf(discordId), null, ip));
+        });
+    }
+
+    @Override
+    public Optional<AccountOverview> findAccountOverview(String discordId) {
+        return read(() -> {
+            String ip = allowedIps.get(discordId);
+            if (ip == null) return Optional.empty();
+
+            List<AccountOverview.Account> accounts = new ArrayList<>();
+            for (String key : linkKeysByDiscordId.getOrDefault(discordId, Collections.emptySet())) {
+                Link link = linksByKey.get(key);
+                if (link != null) accounts.add(new AccountOverview.Account(link.minecraftUsername, link.lastLoginMillis));
+            }
+            accounts.sort(Comparator.comparing(AccountOverview.Account::getMinecraftUsername, String.CASE_INSENSITIVE_ORDER));
+            return Optional.of(new AccountOverview(discordId, ip, accounts));
+        });
+    }
+
+    @Override
+    public Optional<Map<String, String>> findPlayerInfo(String minecraftUsername) {
+        return read(() -> {
+            Link link = latestLink(minecraftUsername);
+            if (link == null) return Optional.empty();
+            String ip = allowedIps.get(link.discordId);
+            if (ip == null) return Optional.empty();
+
+            Map<String, String> row = new HashMap<>();
+            row.put("discord_id", link.discordId);
+            row.put("current_ip", ip);
+            row.put("last_login", link.lastLoginMillis != 0 ? new Timestamp(link.lastLoginMillis).toString() : "Never/Unknown");
+            return Optional.of(row);
+        });
+    }
+
+    @Override
+    public int updatePlayerLoginTime(UUID uuid) {
+        long seq;
+        synchronized (writeLock) {
+            if (!linksByKey.containsKey(uuidKey(uuid))) return 0;
+            seq = record(PLAYER_LOGIN, out -> {
+                writeUuid(out, uuid);
+                out.writeLong(System.currentTimeMillis());
+            });
+        }
+        awaitDurable(seq);
+        return 1;
+    }
+
+    @Override
+    public int updateIp(String discordId, String newIp) {
+        long seq;
+        synchronized (writeLock) {
+            if (!allowedIps.containsKey(discordId)) return 0;
+            seq = record(ALLOW_IP, out -> {
+                out.writeUTF(discordId);
+                out.writeUTF(newIp);
+                out.writeLong(System.currentTimeMillis());
+            });
+        }
+        awaitDurable(seq);
+        return 1;
+    }
+
+    @Override
+    public void linkUser(String discordId, UUID uuid, String minecraftUsername) throws MinecraftUsernameAlreadyLinkedException {
+        long seq;
+        synchronized (writeLock) {
+            if (!findLinks(uuid, minecraftUsername).isEmpty()) throw new MinecraftUsernameAlreadyLinkedException();
+            seq = record(LINK_PLAYER, out -> {
+                out.writeUTF(discordId);
+                writeUuid(out, uuid);
+                out.writeUTF(minecraftUsername);
+            });
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public void relinkUser(String discordId, UUID uuid, String minecraftUsername) {
+        long seq;
+        synchronized (writeLock) {
+            seq = record(RELINK_PLAYER, out -> {
+                out.writeUTF(discordId);
+                writeUuid(out, uuid);
+                out.writeUTF(minecraftUsername);
+            });
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public int unlinkUser(String minecraftUsername) {
+        long seq;
+        int removed;
+        synchronized (writeLock) {
+            removed = findLinks(null, minecraftUsername).size();
+            if (removed == 0) return 0;
+            seq = record(UNLINK, out -> out.writeUTF(minecraftUsername));
+        }
+        awaitDurable(seq);
+        return removed;
+    }
+
+    @Override
+    public int unlinkUser(String discordId, String minecraftUsername) {
+        long seq;
+        int removed;
+        synchronized (writeLock) {
+            removed = ownedLinks(discordId, minecraftUsername).size();
+            if (removed == 0) return 0;
+            seq = record(UNLINK_OWNED, out -> {
+                out.writeUTF(discordId);
+                out.writeUTF(minecraftUsername);
+            });
+        }
+        awaitDurable(seq);
+        return removed;
+    }
+
+    @Override
+    public void updateLastTimeUserReceivedCode(String discordId, String ip) {
+        long seq;
+        synchronized (writeLock) {
+            seq = record(CODE, out -> {
+                out.writeUTF(discordId);
+                out.writeUTF(ip);
+                out.writeLong(System.currentTimeMillis());
+            });
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public OptionalLong findSecondsSinceLastCode(String discordId, String ip) {
+        Long last = lastCodeAt.get(codeKey(discordId, ip));
+        if (last == null) return OptionalLong.empty();
+        return OptionalLong.of(Duration.between(Instant.ofEpochMilli(last), Instant.now()).getSeconds());
+    }
+
+    @Override
+    public List<IpIndexEntry> findAccountsByIp(String ipOrCidr, int offset, int limit) {
+        // Parsed outside the lock, an invalid range throws before anything is read
+        ConcurrentNavigableMap<byte[], ConcurrentMap<String, IpRow>> range = ipRange(ipOrCidr);
+        return read(() -> {
+            List<IpRow> rows = new ArrayList<>();
+            for (Map.Entry<byte[], ConcurrentMap<String, IpRow>> entry : range.entrySet()) rows.addAll(entry.getValue().values());
+            rows.sort(Comparator.comparingLong((IpRow row) -> row.lastSeenMillis).reversed());
+
+            List<IpIndexEntry> entries = new ArrayList<>();
+            for (int i = offset; i < rows.size() && i < offset + limit; i++) {
+                IpRow row = rows.get(i);
+                entries.add(new IpIndexEntry(IpAddresses.fromKey(row.ipKey), row.discordId, usernamesOf(row.discordId),
+                        row.everAllowed, row.codesRequested, Instant.ofEpochMilli(row.lastSeenMillis)));
+            }
+            return entries;
+        });
+    }
+
+    @Override
+    public int countAccountsByIp(String ipOrCidr) {
+        ConcurrentNavigableMap<byte[], ConcurrentMap<String, IpRow>> range = ipRange(ipOrCidr);
+        return read(() -> {
+            int count = 0;
+            for (ConcurrentMap<String, IpRow> rows : range.values()) count += rows.size();
+            return count;
+        });
+    }
+
+    @Override
+    public StorageDump exportAll() {
+        StorageDump dump = new StorageDump();
+        synchronized (writeLock) {
+            for (Map.Entry<String, String> user : allowedIps.entrySet()) dump.users.add(new StorageDump.UserRow(user.getKey(), user.getValue()));
+            for (Link link : linksByKey.values()) {
+                dump.links.add(new StorageDump.LinkRow(link.uuid, link.minecraftUsername, link.discordId, link.lastLoginMillis));
+            }
+            for (Map.Entry<String, Long> code : lastCodeAt.entrySet()) {
+                String[] parts = code.getKey().split("\n", 2);
+                dump.codes.add(new StorageDump.CodeRow(parts[0], parts[1], code.getValue()));
+            }
+            for (ConcurrentMap<String, IpRow> rows : ipIndex.values()) {
+                for (IpRow row : rows.values()) {
+                    dump.ipIndex.add(new StorageDump.IpRow(row.ipKey, row.discordId, row.everAllowed, row.codesRequested, row.lastSeenMillis));
+                }
+            }
+        }
+        return dump;
+    }
+
+    @Override
+    public boolean importAll(StorageDump dump, boolean replace) {
+        long seq = 0;
+        synchronized (writeLock) {
+            if (replace) seq = record(CLEAR, out -> { });
+            for (Journal.Record record : encode(dump)) {
+                seq = journal.append(record.type, record.payload);
+                applyQuietly(record);
+            }
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        snapshot();
+        journal.close();
+    }
+
+    // --- JOURNAL RECORDS ---
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Appends the change to the journal and applies it to memory. Must be called under writeLock.
+    // A change the journal refuses isn't applied.
+    private long record(byte type, PayloadWriter writer) {
+        Journal.Record record = new Journal.Record(type, payload(writer));
+        long seq = journal.append(record.type, record.payload);
+        applyQuietly(record);
+        return seq;
+    }
+
+    private void awaitDurable(long seq) {
+        if (fsync) journal.awaitDurable(seq);
+    }
+
+    private void applyQuietly(Journal.Record record) {
+        try {
+            apply(record.type, new DataInputStream(new ByteArrayInputStream(record.payload)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Can't happen for records encoded in memory
+        }
+    }
+
+    // The only place that changes the state: used for live changes and for replaying the journal alike
+    private void apply(byte type, DataInputStream in) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            applyChange(type, in);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void applyChange(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case LINK: {
+                String discordId = in.readUTF();
+                String username = in.readUTF();
+                // Like the SQL store, linking resets the allowed IP of the profile
+                allowedIps.put(discordId, "");
+                putLink(new Link(null, username, discordId, 0));
+                break;
+            }
+            case RELINK: {
+                String discordId = in.readUTF();
+                String username = in.readUTF();
+                for (Link link : findLinks(null, username)) removeLink(link);
+                allowedIps.put(discordId, "");
+                putLink(new Link(null, username, discordId, 0));
+                break;
+            }
+            case UNLINK:
+                for (Link link : findLinks(null, in.readUTF())) removeLink(link);
+                break;
+            case UNLINK_OWNED: {
+                String discordId = in.readUTF();
+                for (Link link : ownedLinks(discordId, in.readUTF())) removeLink(link);
+                break;
+            }
+            case LOGIN: {
+                String username = in.readUTF();
+                long at = in.readLong();
+                Link link = latestLink(username);
+                if (link != null) putLink(new Link(link.uuid, link.minecraftUsername, link.discordId, at));
+                break;
+            }
+            case LINK_PLAYER:
+            case RELINK_PLAYER: {
+                String discordId = in.readUTF();
+                UUID uuid = readUuid(in);
+                String username = in.readUTF();
+                if (type == RELINK_PLAYER) {
+                    for (Link link : findLinks(uuid, username)) removeLink(link);
+                }
+                allowedIps.put(discordId, "");
+                putLink(new Link(uuid, username, discordId, 0));
+                break;
+            }
+            case PLAYER_LOGIN: {
+                UUID uuid = readUuid(in);
+                long at = in.readLong();
+                Link link = linksByKey.get(uuidKey(uuid));
+                if (link != null) putLink(new Link(uuid, link.minecraftUsername, link.discordId, at));
+                break;
+            }
+            case CLAIM: {
+                UUID uuid = readUuid(in);
+                Link unclaimed = linksByKey.get(nameKey(in.readUTF()));
+                if (unclaimed == null || linksByKey.containsKey(uuidKey(uuid))) break;
+                removeLink(unclaimed);
+                putLink(new Link(uuid, unclaimed.minecraftUsername, unclaimed.discordId, unclaimed.lastLoginMillis));
+                break;
+            }
+            case RENAME: {
+                UUID uuid = readUuid(in);
+                String username = in.readUTF();
+                Link link = linksByKey.get(uuidKey(uuid));
+                if (link != null) putLink(new Link(uuid, username, link.discordId, link.lastLoginMillis));
+                break;
+            }
+            case ALLOW_IP: {
+                String discordId = in.readUTF();
+                String ip = in.readUTF();
+                long at = in.readLong();
+                allowedIps.put(discordId, ip);
+                indexIp(discordId, ip, true, at);
+                break;
+            }
+            case CODE: {
+                String discordId = in.readUTF();
+                String ip = in.readUTF();
+                long at = in.readLong();
+                lastCodeAt.merge(codeKey(discordId, ip), at, Math::max);
+                indexIp(discordId, ip, false, at);
+                break;
+            }
+            case USER_ROW:
+                allowedIps.put(in.readUTF(), in.readUTF());
+                break;
+            case LINK_ROW: {
+                String username = in.readUTF();
+                String discordId = in.readUTF();
+                long lastLogin = in.readLong();
+                // Existing links win, like INSERT OR IGNORE
+                if (!linksByName.containsKey(username.toLowerCase())) putLink(new Link(null, username, discordId, lastLogin));
+                break;
+            }
+            case PLAYER_ROW: {
+                UUID uuid = readUuid(in);
+                String username = in.readUTF();
+                String discordId = in.readUTF();
+                long lastLogin = in.readLong();
+                boolean exists = uuid != null ? linksByKey.containsKey(uuidKey(uuid)) : linksByName.containsKey(username.toLowerCase());
+                if (!exists) putLink(new Link(uuid, username, discordId, lastLogin));
+                break;
+            }
+            case CODE_ROW: {
+                String discordId = in.readUTF();
+                String ip = in.readUTF();
+                lastCodeAt.merge(codeKey(discordId, ip), in.readLong(), Math::max);
+                break;
+            }
+            case IP_ROW: {
+                byte[] key = new byte[16];
+                in.readFully(key);
+                String discordId = in.readUTF();
+                IpRow imported = new IpRow(key, discordId, in.readBoolean(), in.readInt(), in.readLong());
+                ipIndex.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).merge(discordId, imported, IpRow::mergeMax);
+                break;
+            }
+            case CLEAR:
+                allowedIps.clear();
+                linksByKey.clear();
+                linksByName.clear();
+                unclaimedLinks.clear();
+                linkKeysByDiscordId.clear();
+                lastCodeAt.clear();
+                ipIndex.clear();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static List<Journal.Record> encode(StorageDump dump) {
+        List<Journal.Record> records = new ArrayList<>();
+        for (StorageDump.UserRow user : dump.users) {
+            records.add(new Journal.Record(USER_ROW, payload(out -> {
+                out.writeUTF(user.discordId);
+                out.writeUTF(user.currentAllowedIp == null ? "" : user.currentAllowedIp);
+            })));
+        }
+        for (StorageDump.LinkRow link : dump.links) {
+            records.add(new Journal.Record(PLAYER_ROW, payload(out -> {
+                writeUuid(out, link.uuid);
+                out.writeUTF(link.minecraftUsername);
+                out.writeUTF(link.discordId);
+                out.writeLong(link.lastLoginMillis);
+            })));
+        }
+        for (StorageDump.CodeRow code : dump.codes) {
+            records.add(new Journal.Record(CODE_ROW, payload(out -> {
+                out.writeUTF(code.discordId);
+                out.writeUTF(code.ipAddress);
+                out.writeLong(code.receivedAtMillis);
+            })));
+        }
+        for (StorageDump.IpRow row : dump.ipIndex) {
+            records.add(new Journal.Record(IP_ROW, payload(out -> {
+                out.write(row.ipKey);
+                out.writeUTF(row.discordId);
+                out.writeBoolean(row.everAllowed);
+                out.writeInt(row.codesRequested);
+                out.writeLong(row.lastSeenMillis);
+            })));
+        }
+        return records;
+    }
+
+    private static byte[] payload(PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Writing to memory doesn't fail
+        }
+        return bytes.toByteArray();
+    }
+
+    // --- STATE HELPERS ---
+
+    private <T> T read(Supplier<T> lookup) {
+        stateLock.readLock().lock();
+        try {
+            return lookup.get();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // The link of the name that joined last, like ORDER BY last_login DESC in the SQL store
+    private Link latestLink(String minecraftUsername) {
+        Map<String, Link> sameName = linksByName.get(minecraftUsername.toLowerCase());
+        if (sameName == null) return null;
+
+        Link latest = null;
+        for (Link link : sameName.values()) {
+            if (latest == null || link.lastLoginMillis > latest.lastLoginMillis) latest = link;
+        }
+        return latest;
+    }
+
+    // Adds the link or replaces the one with the same key
+    private void putLink(Link link) {
+        String key = link.key();
+        Link previous = linksByKey.put(key, link);
+        if (previous != null) unindex(previous);
+        String name = link.minecraftUsername.toLowerCase();
+        linksByName.computeIfAbsent(name, n -> new ConcurrentSkipListMap<>()).put(key, link);
+        if (link.uuid == null) unclaimedLinks.put(name, link);
+        linkKeysByDiscordId.computeIfAbsent(link.discordId, id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void removeLink(Link link) {
+        Link removed = linksByKey.remove(link.key());
+        if (removed != null) unindex(removed);
+    }
+
+    // Drops the link from every index but linksByKey
+    private void unindex(Link link) {
+        String key = link.key();
+        String name = link.minecraftUsername.toLowerCase();
+        linksByName.computeIfPresent(name, (n, sameName) -> {
+            sameName.remove(key, link);
+            return sameName.isEmpty() ? null : sameName;
+        });
+        unclaimedLinks.remove(name, link);
+        Set<String> keys = linkKeysByDiscordId.get(link.discordId);
+        if (keys != null) keys.remove(key);
+    }
+
+    // The link of the UUID and a not yet claimed link of the same name are the same player (like in the SQL store).
+    // Without a UUID every link of the name matches.
+    private List<Link> findLinks(UUID uuid, String minecraftUsername) {
+        List<Link> found = new ArrayList<>();
+        if (uuid != null) {
+            Link byUuid = linksByKey.get(uuidKey(uuid));
+            if (byUuid != null) found.add(byUuid);
+            Link unclaimed = linksByKey.get(nameKey(minecraftUsername));
+            if (unclaimed != null) found.add(unclaimed);
+            return found;
+        }
+
+        Map<String, Link> sameName = linksByName.get(minecraftUsername.toLowerCase());
+        if (sameName != null) found.addAll(sameName.values());
+        return found;
+    }
+
+    private List<Link> ownedLinks(String discordId, String minecraftUsername) {
+        List<Link> owned = new ArrayList<>();
+        for (Link link : findLinks(null, minecraftUsername)) {
+            if (link.discordId.equals(discordId)) owned.add(link);
+        }
+        return owned;
+    }
+
+    private List<String> usernamesOf(String discordId) {
+        Set<String> keys = linkKeysByDiscordId.get(discordId);
+        if (keys == null) return Collections.emptyList();
+
+        List<String> usernames = new ArrayList<>();
+        for (String key : keys) {
+            Link link = linksByKey.get(key);
+            if (link != null) usernames.add(link.minecraftUsername);
+        }
+        return usernames;
+    }
+
+    private static String uuidKey(UUID uuid) { return uuid.toString(); }
+
+    // Can't be mistaken for a UUID
+    private static String nameKey(String minecraftUsername) { return "name:" + minecraftUsername.toLowerCase(); }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid == null) return;
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private void indexIp(String discordId, String ip, boolean allowed, long at) {
+        byte[] key;
+        try {
+            key = IpAddresses.toKey(ip);
+        } catch (IllegalArgumentException e) {
+            return; // Left out of the index, like in the SQL store
+        }
+        IpRow change = new IpRow(key, discordId, allowed, allowed ? 0 : 1, at);
+        ipIndex.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).merge(discordId, change, IpRow::add);
+    }
+
+    private ConcurrentNavigableMap<byte[], ConcurrentMap<String, IpRow>> ipRange(String ipOrCidr) {
+        byte[][] range = IpAddresses.toKeyRange(ipOrCidr);
+        return ipIndex.subMap(range[0], true, range[1], true);
+    }
+
+    private static String codeKey(String discordId, String ip) { return discordId + "\n" + ip; }
+
+    private static int compareKeys(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int result = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (result != 0) return result;
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static final class Link {
+        // Null until the link is claimed
+        private final UUID uuid;
+        private final String minecraftUsername;
+        private final String discordId;
+        private final long lastLoginMillis;
+
+        private Link(UUID uuid, String minecraftUsername, String discordId, long lastLoginMillis) {
+            this.uuid = uuid;
+            this.minecraftUsername = minecraftUsername;
+            this.discordId = discordId;
+            this.lastLoginMillis = lastLoginMillis;
+        }
+
+        private String key() { return uuid != null ? uuidKey(uuid) : nameKey(minecraftUsername); }
+    }
+
+    private static final class IpRow {
+        private final byte[] ipKey;
+        private final String discordId;
+        private final boolean everAllowed;
+        private final int codesRequested;
+        private final long lastSeenMillis;
+
+        private IpRow(byte[] ipKey, String discordId, boolean everAllowed, int codesRequested, long lastSeenMillis) {
+            this.ipKey = ipKey;
+            this.discordId = discordId;
+            this.everAllowed = everAllowed;
+            this.codesRequested = codesRequested;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+
+        // A new allowed IP or code on top of the existing row
+        private static IpRow add(IpRow existing, IpRow change) {
+            return new IpRow(existing.ipKey, existing.discordId, existing.everAllowed || change.everAllowed,
+                    existing.codesRequested + change.codesRequested, Math.max(existing.lastSeenMillis, change.lastSeenMillis));
+        }
+
+        // An imported row on top of the existing one
+        private static IpRow mergeMax(IpRow existing, IpRow imported) {
+            return new IpRow(existing.ipKey, existing.discordId, existing.everAllowed || imported.everAllowed,
+                    Math.max(existing.codesRequested, imported.codesRequested), Math.max(existing.lastSeenMillis, imported.lastSeenMillis));
+        }
+    }
+}
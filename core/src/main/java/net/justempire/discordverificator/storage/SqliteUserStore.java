@@ -0,0 +1,780 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.models.IpIndexEntry;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.models.User;
+import net.justempire.discordverificator.services.DatabaseService;
+import net.justempire.discordverificator.services.UnitOfWork;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.utils.IpAddresses;
+import net.justempire.discordverificator.utils.Uuids;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+// Keeps users in the SQLite tables (the default store)
+public class SqliteUserStore implements UserStore {
+    // Rows indexed per transaction while building the reverse IP index
+    private static final int IP_INDEX_BATCH_SIZE = 500;
+
+    private final DatabaseService databaseService;
+    private final Logger logger;
+
+    public SqliteUserStore(DatabaseService databaseService, Logger logger) {
+        this.databaseService = databaseService;
+        this.logger = logger;
+    }
+
+    // Fills ip_index from the data of databases created before the index existed. Should be called asynchronously:
+    // every batch is a short transaction of its own, and a restart resumes after the last committed one.
+    public void buildIpIndex() {
+        try {
+            int count = 0;
+            int indexed;
+            while ((indexed = buildIpIndexBatch()) >= 0) count += indexed;
+            if (count > 0) logger.info("Built the reverse IP index from " + count + " existing records.");
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to build the reverse IP index, /dvip results will be incomplete", e);
+        }
+    }
+
+    // Indexes the next batch of users, then of history rows. Returns -1 once there is nothing left
+    private int buildIpIndexBatch() throws SQLException {
+        return databaseService.inTransaction(unit -> {
+            String usersAfter;
+            long historyAfter;
+            long historyUntil;
+            try (PreparedStatement pstmt = unit.prepare("SELECT users_after, history_after, history_until FROM ip_index_backfill")) {
+                ResultSet rs = pstmt.executeQuery();
+                if (!rs.next()) return -1;
+                usersAfter = rs.getString("users_after");
+                historyAfter = rs.getLong("history_after");
+                historyUntil = rs.getLong("history_until");
+            }
+
+            int rows = 0;
+            int count = 0;
+            long now = Instant.now().toEpochMilli();
+            String usersSql = "SELECT discord_id, current_allowed_ip FROM users " +
+                    "WHERE current_allowed_ip <> '' AND discord_id > ? ORDER BY discord_id LIMIT ?";
+            try (PreparedStatement pstmt = unit.prepare(usersSql)) {
+                pstmt.setString(1, usersAfter);
+                pstmt.setInt(2, IP_INDEX_BATCH_SIZE);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    rows++;
+                    usersAfter = rs.getString("discord_id");
+                    if (indexIp(unit, usersAfter, rs.getString("current_allowed_ip"), true, now)) count++;
+                }
+            }
+
+            if (rows < IP_INDEX_BATCH_SIZE) {
+                String historySql = "SELECT id, discord_id, ip_address, last_received FROM verification_history " +
+                        "WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+                try (PreparedStatement pstmt = unit.prepare(historySql)) {
+                    pstmt.setLong(1, historyAfter);
+                    pstmt.setLong(2, historyUntil);
+                    pstmt.setInt(3, IP_INDEX_BATCH_SIZE - rows);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        rows++;
+                        historyAfter = rs.getLong("id");
+                        long seen = rs.getTimestamp("last_received").getTime();
+                        if (indexIp(unit, rs.getString("discord_id"), rs.getString("ip_address"), false, seen)) count++;
+                    }
+                }
+            }
+
+            // A batch that isn't full was the last one
+            String progressSql = rows < IP_INDEX_BATCH_SIZE
+                    ? "DELETE FROM ip_index_backfill"
+                    : "UPDATE ip_index_backfill SET users_after = ?, history_after = ?";
+            try (PreparedStatement pstmt = unit.prepare(progressSql)) {
+                if (rows == IP_INDEX_BATCH_SIZE) {
+                    pstmt.setString(1, usersAfter);
+                    pstmt.setLong(2, historyAfter);
+                }
+                pstmt.executeUpdate();
+            }
+            return count;
+        });
+    }
+
+    // --- CORE DATABASE METHODS ---
+
+    // Upsert: Update if exists, Insert if not
+    private void upsertUser(UnitOfWork unit, String discordId, String currentIp) throws SQLException {
+        String sql = "INSERT INTO users (discord_id, current_allowed_ip) VALUES(?, ?) " +
+                "ON CONFLICT(discord_id) DO UPDATE SET current_allowed_ip = ?";
+        try (PreparedStatement pstmt = unit.prepare(sql)) {
+            pstmt.setString(1, discordId);
+            pstmt.setString(2, currentIp);
+            pstmt.setString(3, currentIp);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void insertLink(UnitOfWork unit, String discordId, UUID uuid, String minecraftUsername) throws SQLException {
+        String sql = "INSERT INTO linked_accounts (uuid, minecraft_username, discord_id) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = unit.prepare(sql)) {
+            pstmt.setBytes(1, uuid == null ? null : Uuids.toBytes(uuid));
+            pstmt.setString(2, minecraftUsername);
+            pstmt.setString(3, discordId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // --- UUID KEYS ---
+
+    @Override
+    public Optional<LinkedPlayer> findLinkByUuid(UUID uuid) {
+        String sql = "SELECT minecraft_username, discord_id FROM linked_accounts WHERE uuid = ?";
+        try {
+            return Optional.ofNullable(databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setBytes(1, Uuids.toBytes(uuid));
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? new LinkedPlayer(uuid, rs.getString("minecraft_username"), rs.getString("discord_id")) : null;
+                }
+            }));
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public Map<UUID, LinkedPlayer> findLinksByUuids(Collection<UUID> uuids) {
+        List<UUID> remaining = new ArrayList<>(uuids);
+        Map<UUID, LinkedPlayer> links = new HashMap<>();
+        try {
+            databaseService.execute(unit -> {
+                // Chunked to stay below SQLite's limit of bound parameters
+                for (int from = 0; from < remaining.size(); from += 500) {
+                    List<UUID> chunk = remaining.subList(from, Math.min(from + 500, remaining.size()));
+                    String sql = "SELECT uuid, minecraft_username, discord_id FROM linked_accounts WHERE uuid IN (" +
+                            String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                    try (PreparedStatement pstmt = unit.prepare(sql)) {
+                        for (int i = 0; i < chunk.size(); i++) pstmt.setBytes(i + 1, Uuids.toBytes(chunk.get(i)));
+                        ResultSet rs = pstmt.executeQuery();
+                        while (rs.next()) {
+                            UUID uuid = Uuids.fromBytes(rs.getBytes(1));
+                            links.put(uuid, new LinkedPlayer(uuid, rs.getString(2), rs.getString(3)));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return links;
+    }
+
+    @Override
+    public boolean hasUnclaimedLink(String minecraftUsername) {
+        String sql = "SELECT 1 FROM linked_accounts WHERE uuid IS NULL AND minecraft_username = ? COLLATE NOCASE LIMIT 1";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, minecraftUsername);
+                    return pstmt.executeQuery().next();
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public int claimLink(UUID uuid, String minecraftUsername) {
+        String sql = "UPDATE linked_accounts SET uuid = ? WHERE uuid IS NULL AND minecraft_username = ? COLLATE NOCASE";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setBytes(1, Uuids.toBytes(uuid));
+                    pstmt.setString(2, minecraftUsername);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            // Someone else claimed the UUID in the meantime
+            if (isConstraintViolation(e)) return 0;
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public int updateUsername(UUID uuid, String minecraftUsername) {
+        String sql = "UPDATE linked_accounts SET minecraft_username = ? WHERE uuid = ?";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, minecraftUsername);
+                    pstmt.setBytes(2, Uuids.toBytes(uuid));
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to update a username", e);
+            return 0;
+        }
+    }
+
+    // Both listings page on the rowid, because usernames aren't unique and ties would be skipped at a page boundary.
+    // A full VACUUM may renumber rowids, so a pass running across one can skip or repeat links.
+    @Override
+    public Page<String> findUsernamesWithoutUuid(String after, int limit) {
+        String sql = "SELECT rowid, minecraft_username FROM linked_accounts WHERE uuid IS NULL AND rowid > ? " +
+                "ORDER BY rowid LIMIT ?";
+        List<String> usernames = new ArrayList<>();
+        long start = after == null ? 0 : Long.parseLong(after);
+        long cursor = start;
+        try {
+            cursor = databaseService.execute(unit -> {
+                long last = start;
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setLong(1, last);
+                    pstmt.setInt(2, limit);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        last = rs.getLong(1);
+                        usernames.add(rs.getString(2));
+                    }
+                }
+                return last;
+            });
+        } catch (SQLException e) { ErrorReporter.report("Failed to read links without a UUID", e); }
+        return new Page<>(usernames, String.valueOf(cursor));
+    }
+
+    @Override
+    public Page<LinkedPlayer> findLinksAfter(String after, int limit) {
+        String sql = "SELECT rowid, uuid, minecraft_username, discord_id FROM linked_accounts WHERE rowid > ? " +
+                "ORDER BY rowid LIMIT ?";
+        List<LinkedPlayer> links = new ArrayList<>();
+        long start = after == null ? 0 : Long.parseLong(after);
+        long cursor = start;
+        try {
+            cursor = databaseService.execute(unit -> {
+                long last = start;
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setLong(1, last);
+                    pstmt.setInt(2, limit);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        last = rs.getLong(1);
+                        byte[] uuid = rs.getBytes(2);
+                        links.add(new LinkedPlayer(uuid == null ? null : Uuids.fromBytes(uuid), rs.getString(3), rs.getString(4)));
+                    }
+                }
+                return last;
+            });
+        } catch (SQLException e) { ErrorReporter.report("Failed to read links", e); }
+        return new Page<>(links, String.valueOf(cursor));
+    }
+
+    @Override
+    public Optional<String> findDiscordIdByMinecraftUsername(String minecraftUsername) {
+        String sql = "SELECT discord_id FROM linked_accounts WHERE minecraft_username = ? COLLATE NOCASE ORDER BY last_login DESC LIMIT 1";
+        String discordId = null;
+        try {
+            discordId = databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, minecraftUsername);
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getString("discord_id") : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return Optional.ofNullable(discordId);
+    }
+
+    @Override
+    public Optional<User> findFullUserByDiscordId(String discordId) {
+        String sql = "SELECT * FROM users WHERE discord_id = ?";
+        User user = null;
+        try {
+            user = databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, discordId);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    if (rs.next()) {
+                        String id = rs.getString("discord_id");
+                        String ip = rs.getString("current_allowed_ip");
+
+                        return new User(
+                                id,
+                                getLinkedAccounts(unit, id),
+                                null,
+                                ip
+                        );
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    @Override
+    public Optional<AccountOverview> findAccountOverview(String discordId) {
+        // One row per linked account, or a single row without one if the profile has none
+        String sql = "SELECT u.current_allowed_ip, l.minecraft_username, l.last_login " +
+                "FROM users u " +
+                "LEFT JOIN linked_accounts l ON l.discord_id = u.discord_id " +
+                "WHERE u.discord_id = ? " +
+                "ORDER BY l.minecraft_username";
+
+        AccountOverview overview;
+        try {
+            overview = databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, discordId);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    String ip = null;
+                    boolean found = false;
+                    List<AccountOverview.Account> accounts = new ArrayList<>();
+                    while (rs.next()) {
+                        found = true;
+                        ip = rs.getString("current_allowed_ip");
+                        String username = rs.getString("minecraft_username");
+                        if (username == null) continue;
+                        Timestamp lastLogin = rs.getTimestamp("last_login");
+                        accounts.add(new AccountOverview.Account(username, lastLogin != null ? lastLogin.getTime() : 0));
+                    }
+                    return found ? new AccountOverview(discordId, ip, accounts) : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return Optional.ofNullable(overview);
+    }
+
+    // --- /INFO COMMAND ---
+    @Override
+    public Optional<Map<String, String>> findPlayerInfo(String minecraftUsername) {
+        String sql = "SELECT l.discord_id, l.last_login, u.current_allowed_ip " +
+                "FROM linked_accounts l " +
+                "JOIN users u ON l.discord_id = u.discord_id " +
+                "WHERE l.minecraft_username = ? COLLATE NOCASE " +
+                "ORDER BY l.last_login DESC LIMIT 1";
+
+        Map<String, String> info;
+        try {
+            info = databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, minecraftUsername);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    if (rs.next()) {
+                        Map<String, String> row = new HashMap<>();
+                        row.put("discord_id", rs.getString("discord_id"));
+                        row.put("current_ip", rs.getString("current_allowed_ip"));
+
+                        Timestamp lastLogin = rs.getTimestamp("last_login");
+                        row.put("last_login", lastLogin != null ? lastLogin.toString() : "Never/Unknown");
+
+                        return row;
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        return Optional.ofNullable(info);
+    }
+
+    // --- UPDATING LOGIN TIME ---
+    @Override
+    public int updatePlayerLoginTime(UUID uuid) {
+        String sql = "UPDATE linked_accounts SET last_login = ? WHERE uuid = ?";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setTimestamp(1, Timestamp.from(Instant.now()));
+                    pstmt.setBytes(2, Uuids.toBytes(uuid));
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to update a login time", e);
+            return 0;
+        }
+    }
+
+    private List<String> getLinkedAccounts(UnitOfWork unit, String discordId) throws SQLException {
+        List<String> accounts = new java.util.ArrayList<>();
+        String sql = "SELECT minecraft_username FROM linked_accounts WHERE discord_id = ?";
+        try (PreparedStatement pstmt = unit.prepare(sql)) {
+            pstmt.setString(1, discordId);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) { accounts.add(rs.getString("minecraft_username")); }
+        }
+        return accounts;
+    }
+
+    @Override
+    public int updateIp(String discordId, String newIp) {
+        String sql = "UPDATE users SET current_allowed_ip = ? WHERE discord_id = ?";
+        try {
+            // The allowed IP and the reverse index are updated together
+            return databaseService.inTransaction(unit -> {
+                int rows;
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, newIp);
+                    pstmt.setString(2, discordId);
+                    rows = pstmt.executeUpdate();
+                }
+                if (rows > 0) indexIp(unit, discordId, newIp, true, Instant.now().toEpochMilli());
+                return rows;
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public void linkUser(String discordId, UUID uuid, String minecraftUsername) throws MinecraftUsernameAlreadyLinkedException {
+        boolean linked = false;
+        try {
+            // Creating the user (if not exists, with empty IP) and the link commit together
+            linked = databaseService.inTransaction(unit -> {
+                try (PreparedStatement pstmt = prepareFindLink(unit, "SELECT 1", uuid, minecraftUsername)) {
+                    if (pstmt.executeQuery().next()) return false;
+                }
+                upsertUser(unit, discordId, "");
+                insertLink(unit, discordId, uuid, minecraftUsername);
+                return true;
+            });
+        } catch (SQLException e) {
+            if (isConstraintViolation(e)) throw new MinecraftUsernameAlreadyLinkedException();
+            throw new StorageUnavailableException(e);
+        }
+        if (!linked) throw new MinecraftUsernameAlreadyLinkedException();
+    }
+
+    // Moves the player to another Discord profile, no matter who it was linked to before
+    @Override
+    public void relinkUser(String discordId, UUID uuid, String minecraftUsername) {
+        try {
+            databaseService.inTransaction(unit -> {
+                try (PreparedStatement pstmt = prepareFindLink(unit, "DELETE", uuid, minecraftUsername)) {
+                    pstmt.executeUpdate();
+                }
+                upsertUser(unit, discordId, "");
+                insertLink(unit, discordId, uuid, minecraftUsername);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    // The link of the UUID and a not yet claimed link of the same name are the same player.
+    // Without a UUID every link of the name matches.
+    private PreparedStatement prepareFindLink(UnitOfWork unit, String action, UUID uuid, String minecraftUsername) throws SQLException {
+        if (uuid == null) {
+            PreparedStatement pstmt = unit.prepare(action + " FROM linked_accounts WHERE minecraft_username = ? COLLATE NOCASE");
+            pstmt.setString(1, minecraftUsername);
+            return pstmt;
+        }
+
+        PreparedStatement pstmt = unit.prepare(action + " FROM linked_accounts WHERE uuid = ? OR (uuid IS NULL AND minecraft_username = ? COLLATE NOCASE)");
+        pstmt.setBytes(1, Uuids.toBytes(uuid));
+        pstmt.setString(2, minecraftUsername);
+        return pstmt;
+    }
+
+    private boolean isConstraintViolation(SQLException e) {
+        String message = e.getMessage();
+        return message != null && (message.contains("PRIMARY KEY") || message.contains("constraint"));
+    }
+
+    @Override
+    public int unlinkUser(String minecraftUsername) {
+        String sql = "DELETE FROM linked_accounts WHERE minecraft_username = ? COLLATE NOCASE";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, minecraftUsername);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    @Override
+    public int unlinkUser(String discordId, String minecraftUsername) {
+        String sql = "DELETE FROM linked_accounts WHERE discord_id = ? AND minecraft_username = ? COLLATE NOCASE";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, discordId);
+                    pstmt.setString(2, minecraftUsername);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    // --- HISTORY / SPAM PREVENTION LOGIC ---
+    @Override
+    public void updateLastTimeUserReceivedCode(String discordId, String ip) {
+        String sql = "INSERT INTO verification_history (discord_id, ip_address, last_received) VALUES (?, ?, ?)";
+        try {
+            databaseService.inTransaction(unit -> {
+                Instant now = Instant.now();
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, discordId);
+                    pstmt.setString(2, ip);
+                    pstmt.setTimestamp(3, Timestamp.from(now));
+                    pstmt.executeUpdate();
+                }
+                return indexIp(unit, discordId, ip, false, now.toEpochMilli());
+            });
+
+            // "DELETE FROM verification_history WHERE last_received < date('now', '-1 day')"
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+    }
+
+    // Empty if the user never received a code from this IP
+    @Override
+    public OptionalLong findSecondsSinceLastCode(String discordId, String ip) {
+        String sql = "SELECT last_received FROM verification_history WHERE discord_id = ? AND ip_address = ? ORDER BY last_received DESC LIMIT 1";
+        Timestamp last = null;
+        try {
+            last = databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setString(1, discordId);
+                    pstmt.setString(2, ip);
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getTimestamp("last_received") : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new StorageUnavailableException(e);
+        }
+        if (last == null) return OptionalLong.empty();
+        return OptionalLong.of(java.time.Duration.between(last.toInstant(), Instant.now()).getSeconds());
+    }
+
+    // --- REVERSE IP INDEX ---
+
+    // Returns false if the IP couldn't be parsed (it's then left out of the index)
+    private boolean indexIp(UnitOfWork unit, String discordId, String ip, boolean allowed, long seenAtMillis) throws SQLException {
+        byte[] key;
+        try {
+            key = IpAddresses.toKey(ip);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        String sql = "INSERT INTO ip_index (ip, discord_id, ever_allowed, codes_requested, last_seen) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT(ip, discord_id) DO UPDATE SET " +
+                "ever_allowed = MAX(ever_allowed, excluded.ever_allowed), " +
+                "codes_requested = codes_requested + excluded.codes_requested, " +
+                "last_seen = MAX(last_seen, excluded.last_seen)";
+        try (PreparedStatement pstmt = unit.prepare(sql)) {
+            pstmt.setBytes(1, key);
+            pstmt.setString(2, discordId);
+            pstmt.setInt(3, allowed ? 1 : 0);
+            pstmt.setInt(4, allowed ? 0 : 1);
+            pstmt.setLong(5, seenAtMillis);
+            pstmt.executeUpdate();
+        }
+        return true;
+    }
+
+    // Every profile that was allowed from or requested a code from the IP (or CIDR block), most recent first.
+    // Throws IllegalArgumentException if the IP or CIDR is invalid.
+    @Override
+    public List<IpIndexEntry> findAccountsByIp(String ipOrCidr, int offset, int limit) {
+        byte[][] range = IpAddresses.toKeyRange(ipOrCidr);
+        String sql = "SELECT i.ip, i.discord_id, i.ever_allowed, i.codes_requested, i.last_seen, " +
+                "GROUP_CONCAT(l.minecraft_username, ', ') AS usernames " +
+                "FROM ip_index i " +
+                "LEFT JOIN linked_accounts l ON l.discord_id = i.discord_id " +
+                "WHERE i.ip BETWEEN ? AND ? " +
+                "GROUP BY i.ip, i.discord_id " +
+                "ORDER BY i.last_seen DESC LIMIT ? OFFSET ?";
+
+        List<IpIndexEntry> entries = new ArrayList<>();
+        try {
+            databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setBytes(1, range[0]);
+                    pstmt.setBytes(2, range[1]);
+                    pstmt.setInt(3, limit);
+                    pstmt.setInt(4, offset);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        String usernames = rs.getString("usernames");
+                        entries.add(new IpIndexEntry(
+                                IpAddresses.fromKey(rs.getBytes("ip")),
+                                rs.getString("discord_id"),
+                                usernames == null ? Collections.emptyList() : Arrays.asList(usernames.split(", ")),
+                                rs.getInt("ever_allowed") == 1,
+                                rs.getInt("codes_requested"),
+                                Instant.ofEpochMilli(rs.getLong("last_seen"))));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) { ErrorReporter.report("Failed to look up accounts by IP", e); }
+        return entries;
+    }
+
+    @Override
+    public int countAccountsByIp(String ipOrCidr) {
+        byte[][] range = IpAddresses.toKeyRange(ipOrCidr);
+        String sql = "SELECT COUNT(*) FROM ip_index WHERE ip BETWEEN ? AND ?";
+        try {
+            return databaseService.execute(unit -> {
+                try (PreparedStatement pstmt = unit.prepare(sql)) {
+                    pstmt.setBytes(1, range[0]);
+                    pstmt.setBytes(2, range[1]);
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to count accounts by IP", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public StorageDump exportAll() {
+        StorageDump dump = new StorageDump();
+        try {
+            databaseService.inTransaction(unit -> {
+                try (PreparedStatement pstmt = unit.prepare("SELECT discord_id, current_allowed_ip FROM users")) {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) dump.users.add(new StorageDump.UserRow(rs.getString(1), rs.getString(2)));
+                }
+                try (PreparedStatement pstmt = unit.prepare("SELECT uuid, minecraft_username, discord_id, last_login FROM linked_accounts")) {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        byte[] uuid = rs.getBytes(1);
+                        Timestamp lastLogin = rs.getTimestamp(4);
+                        dump.links.add(new StorageDump.LinkRow(uuid == null ? null : Uuids.fromBytes(uuid), rs.getString(2), rs.getString(3),
+                                lastLogin == null ? 0 : lastLogin.getTime()));
+                    }
+                }
+                // Only the latest code per profile and IP matters for throttling
+                String codesSql = "SELECT discord_id, ip_address, MAX(last_received) FROM verification_history GROUP BY discord_id, ip_address";
+                try (PreparedStatement pstmt = unit.prepare(codesSql)) {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) dump.codes.add(new StorageDump.CodeRow(rs.getString(1), rs.getString(2), rs.getTimestamp(3).getTime()));
+                }
+                String ipSql = "SELECT ip, discord_id, ever_allowed, codes_requested, last_seen FROM ip_index";
+                try (PreparedStatement pstmt = unit.prepare(ipSql)) {
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        dump.ipIndex.add(new StorageDump.IpRow(rs.getBytes(1), rs.getString(2), rs.getInt(3) == 1, rs.getInt(4), rs.getLong(5)));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) { ErrorReporter.report("Failed to export the database", e); }
+        return dump;
+    }
+
+    @Override
+    public boolean importAll(StorageDump dump, boolean replace) {
+        try {
+            databaseService.inTransaction(unit -> {
+                if (replace) {
+                    for (String table : new String[] { "ip_index", "verification_history", "linked_accounts", "users" }) {
+                        try (PreparedStatement pstmt = unit.prepare("DELETE FROM " + table)) { pstmt.executeUpdate(); }
+                    }
+                }
+
+                for (StorageDump.UserRow user : dump.users) upsertUser(unit, user.discordId, user.currentAllowedIp);
+
+                // Existing links win: the same UUID, or for links without one the same name
+                String linkSql = "INSERT OR IGNORE INTO linked_accounts (uuid, minecraft_username, discord_id, last_login) " +
+                        "SELECT ?, ?, ?, ? WHERE ? IS NOT NULL OR NOT EXISTS " +
+                        "(SELECT 1 FROM linked_accounts WHERE minecraft_username = ? COLLATE NOCASE)";
+                try (PreparedStatement pstmt = unit.prepare(linkSql)) {
+                    for (StorageDump.LinkRow link : dump.links) {
+                        byte[] uuid = link.uuid == null ? null : Uuids.toBytes(link.uuid);
+                        pstmt.setBytes(1, uuid);
+                        pstmt.setString(2, link.minecraftUsername);
+                        pstmt.setString(3, link.discordId);
+                        pstmt.setTimestamp(4, link.lastLoginMillis == 0 ? null : new Timestamp(link.lastLoginMillis));
+                        pstmt.setBytes(5, uuid);
+                        pstmt.setString(6, link.minecraftUsername);
+                        pstmt.executeUpdate();
+                    }
+                }
+
+                String codeSql = "INSERT INTO verification_history (discord_id, ip_address, last_received) VALUES (?, ?, ?)";
+                try (PreparedStatement pstmt = unit.prepare(codeSql)) {
+                    for (StorageDump.CodeRow code : dump.codes) {
+                        pstmt.setString(1, code.discordId);
+                        pstmt.setString(2, code.ipAddress);
+                        pstmt.setTimestamp(3, new Timestamp(code.receivedAtMillis));
+                        pstmt.executeUpdate();
+                    }
+                }
+
+                String ipSql = "INSERT INTO ip_index (ip, discord_id, ever_allowed, codes_requested, last_seen) VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT(ip, discord_id) DO UPDATE SET " +
+                        "ever_allowed = MAX(ever_allowed, excluded.ever_allowed), " +
+                        "codes_requested = MAX(codes_requested, excluded.codes_requested), " +
+                        "last_seen = MAX(last_seen, excluded.last_seen)";
+                try (PreparedStatement pstmt = unit.prepare(ipSql)) {
+                    for (StorageDump.IpRow row : dump.ipIndex) {
+                        pstmt.setBytes(1, row.ipKey);
+                        pstmt.setString(2, row.discordId);
+                        pstmt.setInt(3, row.everAllowed ? 1 : 0);
+                        pstmt.setInt(4, row.codesRequested);
+                        pstmt.setLong(5, row.lastSeenMillis);
+                        pstmt.executeUpdate();
+                    }
+                }
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            ErrorReporter.report("Failed to import into the database", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() { databaseService.closeConnection(); }
+}
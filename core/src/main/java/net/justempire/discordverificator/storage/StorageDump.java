@@ -0,0 +1,68 @@
+package net.justempire.discordverificator.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Everything a UserStore holds, in a form every store can import
+public class StorageDump {
+    public final List<UserRow> users = new ArrayList<>();
+    public final List<LinkRow> links = new ArrayList<>();
+    public final List<CodeRow> codes = new ArrayList<>();
+    public final List<IpRow> ipIndex = new ArrayList<>();
+
+    public static class UserRow {
+        public final String discordId;
+        public final String currentAllowedIp;
+
+        public UserRow(String discordId, String currentAllowedIp) {
+            this.discordId = discordId;
+            this.currentAllowedIp = currentAllowedIp;
+        }
+    }
+
+    public static class LinkRow {
+        // Null for links that weren't claimed yet
+        public final UUID uuid;
+        public final String minecraftUsername;
+        public final String discordId;
+        // 0 if the player never joined
+        public final long lastLoginMillis;
+
+        public LinkRow(UUID uuid, String minecraftUsername, String discordId, long lastLoginMillis) {
+            this.uuid = uuid;
+            this.minecraftUsername = minecraftUsername;
+            this.discordId = discordId;
+            this.lastLoginMillis = lastLoginMillis;
+        }
+    }
+
+    // Last time a profile received a code for an IP
+    public static class CodeRow {
+        public final String discordId;
+        public final String ipAddress;
+        public final long receivedAtMillis;
+
+        public CodeRow(String discordId, String ipAddress, long receivedAtMillis) {
+            this.discordId = discordId;
+            this.ipAddress = ipAddress;
+            this.receivedAtMillis = receivedAtMillis;
+        }
+    }
+
+    public static class IpRow {
+        public final byte[] ipKey;
+        public final String discordId;
+        public final boolean everAllowed;
+        public final int codesRequested;
+        public final long lastSeenMillis;
+
+        public IpRow(byte[] ipKey, String discordId, boolean everAllowed, int codesRequested, long lastSeenMillis) {
+            this.ipKey = ipKey;
+            this.discordId = discordId;
+            this.everAllowed = everAllowed;
+            this.codesRequested = codesRequested;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+}
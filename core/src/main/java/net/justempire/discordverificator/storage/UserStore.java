@@ -0,0 +1,88 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.models.AccountOverview;
+import net.justempire.discordverificator.models.IpIndexEntry;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import net.justempire.discordverificator.models.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Where links, allowed IPs, login times and code history are kept. UserManager works on top of it.
+// Links are keyed by the player UUID; the username is the last one seen and is case-insensitive everywhere.
+// Links made before UUIDs were stored have none until they are claimed (see claimLink).
+// The lookups used to decide joins throw StorageUnavailableException instead of returning an empty result when the store can't answer,
+// and so do changes that couldn't be stored (refreshing the login time and the username of a joining player is best-effort).
+public interface UserStore {
+    Optional<LinkedPlayer> findLinkByUuid(UUID uuid);
+
+    // Links of the given players that have one, by UUID
+    Map<UUID, LinkedPlayer> findLinksByUuids(Collection<UUID> uuids);
+
+    // Whether a link of this username has no UUID yet. A read, so joins of unlinked players don't take the write lock.
+    boolean hasUnclaimedLink(String minecraftUsername);
+
+    // Gives the link of this username that has no UUID yet the UUID. Returns the amount of claimed links.
+    int claimLink(UUID uuid, String minecraftUsername);
+
+    // Stores the current name of the player. Returns the amount of updated links.
+    int updateUsername(UUID uuid, String minecraftUsername);
+
+    // Usernames of links without a UUID, after the cursor of the previous page (null to start from the beginning)
+    Page<String> findUsernamesWithoutUuid(String after, int limit);
+
+    // Every link, after the cursor of the previous page (null to start from the beginning).
+    // Links with the same name are never skipped at a page boundary.
+    Page<LinkedPlayer> findLinksAfter(String after, int limit);
+
+    // If several links had this name, the one that joined last
+    Optional<String> findDiscordIdByMinecraftUsername(String minecraftUsername);
+
+    Optional<User> findFullUserByDiscordId(String discordId);
+
+    // The linked accounts and allowed IP of a Discord profile, empty if it doesn't exist
+    Optional<AccountOverview> findAccountOverview(String discordId);
+
+    // Keys: discord_id, current_ip, last_login. Throws StorageUnavailableException rather than reporting the player as not linked.
+    Optional<Map<String, String>> findPlayerInfo(String minecraftUsername);
+
+    // Returns the amount of updated links
+    int updatePlayerLoginTime(UUID uuid);
+
+    // Returns the amount of updated users (0 if the user doesn't exist)
+    int updateIp(String discordId, String newIp);
+
+    // The UUID is null if it couldn't be resolved yet; the link is then claimed on the first join
+    void linkUser(String discordId, UUID uuid, String minecraftUsername) throws MinecraftUsernameAlreadyLinkedException;
+
+    void relinkUser(String discordId, UUID uuid, String minecraftUsername);
+
+    // Returns the amount of removed links
+    int unlinkUser(String minecraftUsername);
+
+    // Only removes the links of this username that belong to the Discord user. Returns the amount of removed links.
+    int unlinkUser(String discordId, String minecraftUsername);
+
+    void updateLastTimeUserReceivedCode(String discordId, String ip);
+
+    OptionalLong findSecondsSinceLastCode(String discordId, String ip);
+
+    List<IpIndexEntry> findAccountsByIp(String ipOrCidr, int offset, int limit);
+
+    int countAccountsByIp(String ipOrCidr);
+
+    // Full copy of the data, used to move it between stores
+    StorageDump exportAll();
+
+    // Merges the dump into the store (existing links win), or replaces everything with it.
+    // Returns false if nothing was imported.
+    boolean importAll(StorageDump dump, boolean replace);
+
+    void close();
+}
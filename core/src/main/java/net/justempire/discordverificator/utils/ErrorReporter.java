@@ -0,0 +1,171 @@
+package net.justempire.discordverificator.utils;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+// Unexpected errors from every part of the plugin. They are grouped by exception type and the place that reported them:
+// the first error of a group is logged with its stack trace, repeats are only counted and summed up by logSummaries().
+// Logging happens on a background thread, so a failing database doesn't also slow its callers down with console output.
+public final class ErrorReporter {
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final Pattern LAMBDA_NAME = Pattern.compile("^lambda\\$|\\$\\d+$");
+    private static final int MAX_FINGERPRINTS = 1000;
+    private static final int MAX_QUEUED_RECORDS = 1000;
+
+    private static final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private static final BlockingQueue<LogRecord> records = new ArrayBlockingQueue<>(MAX_QUEUED_RECORDS);
+    private static final LongAdder total = new LongAdder();
+    private static final LongAdder droppedRecords = new LongAdder();
+
+    private static volatile Logger logger = Logger.getLogger("DiscordVerificator");
+    // Null while stopped, records are then logged by the reporting thread
+    private static volatile Thread writer;
+    private static volatile long lastSummaryAtMillis = System.currentTimeMillis();
+
+    private ErrorReporter() { }
+
+    public static synchronized void start(Logger pluginLogger) {
+        logger = pluginLogger;
+        if (writer != null) return;
+        writer = new Thread(ErrorReporter::writeLoop, "DiscordVerificator-Errors");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Logs the last summaries and whatever is still queued
+    public static synchronized void stop() {
+        logSummaries();
+        Thread stopping = writer;
+        writer = null;
+        if (stopping == null) return;
+
+        stopping.interrupt();
+        try {
+            stopping.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LogRecord record;
+        while ((record = records.poll()) != null) logger.log(record);
+    }
+
+    // "what" tells what failed, e.g. "Failed to update the allowed IP"
+    public static void report(String what, Throwable error) {
+        total.increment();
+
+        String key = error.getClass().getSimpleName() + " at " + callSite();
+        Fingerprint fingerprint = fingerprints.get(key);
+        if (fingerprint == null) {
+            // Past the limit, new kinds of errors are still logged but no longer grouped
+            if (fingerprints.size() >= MAX_FINGERPRINTS) {
+                log(Level.WARNING, what, error);
+                return;
+            }
+            Fingerprint created = new Fingerprint(what);
+            fingerprint = fingerprints.putIfAbsent(key, created);
+            if (fingerprint == null) {
+                created.total.increment();
+                log(Level.WARNING, String.format("%s (%s, further occurrences are summarized)", what, key), error);
+                return;
+            }
+        }
+
+        fingerprint.total.increment();
+        fingerprint.sinceSummary.incrementAndGet();
+    }
+
+    // Logs one line per kind of error that repeated since the previous call, called periodically by the platform
+    public static void logSummaries() {
+        long now = System.currentTimeMillis();
+        long seconds = Math.max(1, (now - lastSummaryAtMillis) / 1000);
+        lastSummaryAtMillis = now;
+
+        for (Map.Entry<String, Fingerprint> entry : fingerprints.entrySet()) {
+            long repeats = entry.getValue().sinceSummary.getAndSet(0);
+            if (repeats == 0) continue;
+            log(Level.WARNING, String.format("%s (%s) repeated %d times in the last %d seconds, %d in total",
+                    entry.getValue().what, entry.getKey(), repeats, seconds, entry.getValue().total.sum()), null);
+        }
+
+        long dropped = droppedRecords.sumThenReset();
+        if (dropped > 0) logger.warning(String.format("%d error log records were dropped, the log queue was full", dropped));
+    }
+
+    // Occurrences per kind of error since the start, most frequent first
+    public static Map<String, Long> getCounts() {
+        // Copied first, the counts keep changing while they are sorted
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Fingerprint> entry : fingerprints.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().total.sum()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) counts.put(entry.getKey(), entry.getValue());
+        return counts;
+    }
+
+    public static long getTotal() { return total.sum(); }
+
+    // Class, method and line that called report(). Only walks the frames it needs, unlike filling a stack trace.
+    private static String callSite() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(ErrorReporter.class.getName()))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1);
+                    // "lambda$onConfirmSlashCommand$3" is reported as "onConfirmSlashCommand"
+                    String methodName = LAMBDA_NAME.matcher(frame.getMethodName()).replaceAll("");
+                    return className + "." + methodName + ":" + frame.getLineNumber();
+                })
+                .orElse("unknown"));
+    }
+
+    private static void log(Level level, String message, Throwable error) {
+        LogRecord record = new LogRecord(level, message);
+        record.setThrown(error);
+        record.setLoggerName(logger.getName());
+        // Otherwise the writer thread would be inferred as the source
+        record.setSourceClassName(null);
+        record.setSourceMethodName(null);
+
+        if (writer == null) {
+            logger.log(record);
+            return;
+        }
+        if (!records.offer(record)) droppedRecords.increment();
+    }
+
+    private static void writeLoop() {
+        while (true) {
+            try {
+                logger.log(records.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static final class Fingerprint {
+        // What failed the first time, repeats usually fail the same way
+        private final String what;
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong sinceSummary = new AtomicLong();
+
+        private Fingerprint(String what) {
+            this.what = what;
+        }
+    }
+}
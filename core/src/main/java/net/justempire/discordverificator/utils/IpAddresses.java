@@ -0,0 +1,72 @@
+package net.justempire.discordverificator.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+// Converts IP addresses to 16-byte keys (IPv4 is mapped to ::ffff:a.b.c.d), so IPv4 and IPv6
+// share one index and a CIDR block becomes a plain range of keys
+public class IpAddresses {
+    private IpAddresses() { }
+
+    public static byte[] toKey(String ip) {
+        byte[] address = parse(ip);
+        if (address.length == 16) return address;
+
+        byte[] key = new byte[16];
+        key[10] = (byte) 0xFF;
+        key[11] = (byte) 0xFF;
+        System.arraycopy(address, 0, key, 12, 4);
+        return key;
+    }
+
+    // Returns the first and the last key of "ip" or "ip/prefix"
+    public static byte[][] toKeyRange(String ipOrCidr) {
+        int slash = ipOrCidr.indexOf('/');
+        String ip = slash < 0 ? ipOrCidr : ipOrCidr.substring(0, slash);
+        byte[] start = toKey(ip);
+
+        int prefix = 128;
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(ipOrCidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix: " + ipOrCidr);
+            }
+            // IPv4 prefixes are relative to the mapped part of the key
+            if (parse(ip).length == 4) prefix += 96;
+            if (prefix < 0 || prefix > 128) throw new IllegalArgumentException("Invalid prefix: " + ipOrCidr);
+        }
+
+        byte[] end = start.clone();
+        for (int bit = prefix; bit < 128; bit++) {
+            start[bit / 8] &= (byte) ~(0x80 >>> (bit % 8));
+            end[bit / 8] |= (byte) (0x80 >>> (bit % 8));
+        }
+        return new byte[][] { start, end };
+    }
+
+    public static String fromKey(byte[] key) {
+        boolean mappedIpv4 = true;
+        for (int i = 0; i < 10; i++) if (key[i] != 0) mappedIpv4 = false;
+        if (key[10] != (byte) 0xFF || key[11] != (byte) 0xFF) mappedIpv4 = false;
+
+        if (mappedIpv4) {
+            return (key[12] & 0xFF) + "." + (key[13] & 0xFF) + "." + (key[14] & 0xFF) + "." + (key[15] & 0xFF);
+        }
+        try {
+            return InetAddress.getByAddress(key).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static byte[] parse(String ip) {
+        // Only literals are accepted, so InetAddress never does a DNS lookup
+        if (ip.isEmpty() || !ip.matches("[0-9a-fA-F:.]+")) throw new IllegalArgumentException("Invalid IP: " + ip);
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP: " + ip);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.justempire.discordverificator.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Messages from the config, shared by every platform (raw, without any color processing)
+public class Messages {
+    private static Map<String, String> messages = new HashMap<>();
+
+    public static void load(Map<String, String> loadedMessages) {
+        messages = new HashMap<>(loadedMessages);
+    }
+
+    // Returns a message from the config by key
+    public static String get(String key) {
+        if (messages == null) return String.format("Message %s wasn't found (messages list is null)", key);
+        if (messages.get(key) == null) return String.format("Message %s wasn't found", key);
+
+        return messages.get(key);
+    }
+}
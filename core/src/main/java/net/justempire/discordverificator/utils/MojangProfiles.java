@@ -0,0 +1,43 @@
+package net.justempire.discordverificator.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Optional;
+import java.util.UUID;
+
+// Looks up the UUID of a premium account by its current name (for proxies that have no profile cache)
+public class MojangProfiles {
+    private static final String PROFILE_URL = "https://api.mojang.com/users/profiles/minecraft/";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MojangProfiles() { }
+
+    // Empty if no account has this name. Throws IOException if Mojang couldn't be asked (e.g. rate limited).
+    public static Optional<UUID> findUuid(String minecraftUsername) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(PROFILE_URL + URLEncoder.encode(minecraftUsername, "UTF-8")).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try {
+            int status = connection.getResponseCode();
+            if (status == 204 || status == 404) return Optional.empty();
+            if (status != 200) throw new IOException("Mojang answered " + status + " for " + minecraftUsername);
+
+            try (InputStream in = connection.getInputStream()) {
+                JsonNode id = MAPPER.readTree(in).get("id");
+                if (id == null || id.asText().length() != 32) return Optional.empty();
+
+                // The API returns the UUID without dashes
+                String hex = id.asText();
+                return Optional.of(new UUID(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16)));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
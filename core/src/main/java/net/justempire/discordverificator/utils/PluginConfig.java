@@ -0,0 +1,16 @@
+package net.justempire.discordverificator.utils;
+
+// Read access to config.yml, however the platform loads it. Paths are dot-separated ("database.query-timeout-millis").
+public interface PluginConfig {
+    String getString(String path, String defaultValue);
+
+    long getLong(String path, long defaultValue);
+
+    double getDouble(String path, double defaultValue);
+
+    boolean getBoolean(String path, boolean defaultValue);
+
+    default int getInt(String path, int defaultValue) {
+        return (int) getLong(path, defaultValue);
+    }
+}
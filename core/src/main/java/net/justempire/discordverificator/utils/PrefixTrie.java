@@ -0,0 +1,206 @@
+package net.justempire.discordverificator.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Case-insensitive radix tree of words: chains of single-child nodes are merged into one edge,
+// so a node is only needed where two words branch. Every word is counted, remove() undoes one add().
+// Completions come back in alphabetical order with their original case.
+public class PrefixTrie {
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final Node root = new Node("");
+    private int size;
+
+    public synchronized void add(String word) {
+        String key = word.toLowerCase();
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) {
+                node.insert(new Node(key.substring(position)));
+                node = node.children[node.indexOf(key.charAt(position))];
+                position = key.length();
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                // The word ends or branches inside the edge, so the edge is split
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.insert(child);
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            position += common;
+        }
+
+        if (node.count++ == 0) size++;
+        node.word = word;
+    }
+
+    // Returns false if the word wasn't added before
+    public synchronized boolean remove(String word) {
+        return remove(word, false);
+    }
+
+    // Removes the word no matter how many times it was added
+    public synchronized boolean removeAll(String word) {
+        return remove(word, true);
+    }
+
+    private boolean remove(String word, boolean all) {
+        String key = word.toLowerCase();
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) return false;
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, position)) return false;
+            path.add(node);
+            node = child;
+            position += child.label.length();
+        }
+        if (node.count == 0) return false;
+
+        node.count = all ? 0 : node.count - 1;
+        if (node.count > 0) return true;
+        node.word = null;
+        size--;
+
+        // Edges that no longer lead to a word are removed, a lone child is merged into its parent
+        for (int i = path.size() - 1; i >= 0 && node.count == 0; i--) {
+            Node parent = path.get(i);
+            if (node.children.length == 0) {
+                parent.delete(node.label.charAt(0));
+            } else if (node.children.length == 1) {
+                Node only = node.children[0];
+                only.label = node.label + only.label;
+                parent.children[parent.indexOf(only.label.charAt(0))] = only;
+                break;
+            } else {
+                break;
+            }
+            node = parent;
+            if (node == root) break;
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(String word) {
+        String key = word.toLowerCase();
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0 || !key.startsWith(node.children[index].label, position)) return false;
+            node = node.children[index];
+            position += node.label.length();
+        }
+        return node.count > 0;
+    }
+
+    // Up to "limit" words starting with the prefix
+    public synchronized List<String> complete(String prefix, int limit) {
+        List<String> words = new ArrayList<>();
+        Node node = find(prefix.toLowerCase());
+        if (node != null && limit > 0) collect(node, words, limit);
+        return words;
+    }
+
+    public synchronized int size() { return size; }
+
+    public synchronized void clear() {
+        root.children = NO_NODES;
+        root.firstChars = NO_CHARS;
+        root.count = 0;
+        root.word = null;
+        size = 0;
+    }
+
+    // Returns the node whose subtree holds every word with the prefix, the prefix may end inside the edge leading to it
+    private Node find(String key) {
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) return null;
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (position + common == key.length()) return child;
+            if (common < child.label.length()) return null;
+            node = child;
+            position += common;
+        }
+        return node;
+    }
+
+    private static void collect(Node node, List<String> words, int limit) {
+        if (node.count > 0) words.add(node.word);
+        for (Node child : node.children) {
+            if (words.size() >= limit) return;
+            collect(child, words, limit);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int position) {
+        int length = Math.min(label.length(), key.length() - position);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(position + i)) i++;
+        return i;
+    }
+
+    private static final class Node {
+        // The part of the key on the edge leading to this node
+        private String label;
+        // Sorted first characters of the child labels, searched instead of a map to keep nodes small
+        private char[] firstChars = NO_CHARS;
+        private Node[] children = NO_NODES;
+        // Original spelling and how many times it was added, if a word ends here
+        private String word;
+        private int count;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int indexOf(char c) {
+            int index = Arrays.binarySearch(firstChars, c);
+            return index < 0 ? -1 : index;
+        }
+
+        private void insert(Node child) {
+            int index = -Arrays.binarySearch(firstChars, child.label.charAt(0)) - 1;
+            char[] chars = new char[firstChars.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            chars[index] = child.label.charAt(0);
+            nodes[index] = child;
+            System.arraycopy(firstChars, index, chars, index + 1, firstChars.length - index);
+            System.arraycopy(children, index, nodes, index + 1, children.length - index);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        private void delete(char first) {
+            int index = indexOf(first);
+            char[] chars = new char[firstChars.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(firstChars, index + 1, chars, index, chars.length - index);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            firstChars = chars;
+            children = nodes;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.justempire.discordverificator.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Converts player UUIDs to the 16-byte keys links are stored by
+public class Uuids {
+    private Uuids() { }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) throw new IllegalArgumentException("A UUID key has 16 bytes");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    // The UUID an offline-mode server gives to a player with this name
+    public static UUID offline(String minecraftUsername) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + minecraftUsername).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,64 @@
+package net.justempire.discordverificator.discord;
+
+import net.justempire.discordverificator.services.AccountOverviewCache;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.storage.JournalUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountsHandlerTest {
+    private static final String OWNER = "100000000000000001";
+    private static final String OTHER = "100000000000000002";
+    private static final UUID OWNER_UUID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER_UUID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @TempDir
+    File directory;
+
+    private UserManager userManager;
+    private AccountsHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Logger logger = Logger.getLogger("DiscordVerificator-AccountsHandlerTest");
+        userManager = new UserManager(new JournalUserStore(new File(directory, "journal"), logger, true),
+                new File(directory, "users.json").getPath(), logger);
+        AccountOverviewCache overviewCache = new AccountOverviewCache(userManager);
+        userManager.addLinkListener(overviewCache);
+        handler = new AccountsHandler(userManager, overviewCache);
+
+        // Two players had the same name
+        userManager.linkUser(OWNER, OWNER_UUID, "Steve");
+        userManager.linkUser(OTHER, OTHER_UUID, "Steve");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userManager.onShutDown();
+    }
+
+    @Test
+    void unlinksOnlyTheLinkOfTheProfile() {
+        handler.unlinkAccount(OWNER, "steve", embed -> { });
+
+        assertFalse(userManager.findLinkByUuid(OWNER_UUID).isPresent());
+        assertTrue(userManager.findLinkByUuid(OTHER_UUID).isPresent());
+    }
+
+    @Test
+    void leavesLinksOfOtherProfilesAlone() {
+        handler.unlinkAccount("100000000000000003", "Steve", embed -> { });
+
+        assertTrue(userManager.findLinkByUuid(OWNER_UUID).isPresent());
+        assertTrue(userManager.findLinkByUuid(OTHER_UUID).isPresent());
+    }
+}
@@ -0,0 +1,75 @@
+package net.justempire.discordverificator.discord;
+
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.storage.JournalUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConfirmationHandlerTest {
+    private static final String OWNER = "100000000000000001";
+    private static final String OTHER = "100000000000000002";
+    private static final UUID OWNER_UUID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER_UUID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final String IP = "203.0.113.7";
+
+    @TempDir
+    File directory;
+
+    private UserManager userManager;
+    private ConfirmationCodeService codeService;
+    private ConfirmationHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Logger logger = Logger.getLogger("DiscordVerificator-ConfirmationHandlerTest");
+        userManager = new UserManager(new JournalUserStore(new File(directory, "journal"), logger, true),
+                new File(directory, "users.json").getPath(), logger);
+        codeService = new ConfirmationCodeService();
+        // Counters are only kept in memory until a flush, which needs no database here
+        handler = new ConfirmationHandler(userManager, codeService, new StatisticsService(null, logger));
+
+        // Two players had the same name, the other one joined last
+        userManager.linkUser(OWNER, OWNER_UUID, "Steve");
+        userManager.linkUser(OTHER, OTHER_UUID, "Steve");
+        userManager.updatePlayerLoginTime(OTHER_UUID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userManager.onShutDown();
+    }
+
+    @Test
+    void onlyTheOwnerOfTheLinkCanConfirm() {
+        String code = codeService.generateVerificationCode(OWNER, OWNER_UUID, "Steve", IP);
+        assertEquals(ConfirmationHandler.Outcome.NOT_YOUR_ACCOUNT, handler.confirm(OTHER, code, embed -> { }));
+
+        code = codeService.generateVerificationCode(OWNER, OWNER_UUID, "Steve", IP);
+        assertEquals(ConfirmationHandler.Outcome.CONFIRMED, handler.confirm(OWNER, code, embed -> { }));
+        assertEquals(IP, userManager.findFullUserByDiscordId(OWNER).get().getCurrentAllowedIp());
+    }
+
+    @Test
+    void rejectsACodeOfALinkThatMovedToSomeoneElse() {
+        String code = codeService.generateVerificationCode(OWNER, OWNER_UUID, "Steve", IP);
+        userManager.relinkUser(OTHER, OWNER_UUID, "Steve");
+
+        assertEquals(ConfirmationHandler.Outcome.NOT_YOUR_ACCOUNT, handler.confirm(OWNER, code, embed -> { }));
+    }
+
+    @Test
+    void onlyTheOwnerOfTheLinkCanDeny() {
+        String code = codeService.generateVerificationCode(OWNER, OWNER_UUID, "Steve", IP);
+        assertEquals(ConfirmationHandler.Outcome.NOT_YOUR_ACCOUNT, handler.deny(OTHER, code, embed -> { }));
+    }
+}
@@ -0,0 +1,218 @@
+package net.justempire.discordverificator.discord;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.justempire.discordverificator.services.AccountOverviewCache;
+import net.justempire.discordverificator.services.ConfirmationCodeService;
+import net.justempire.discordverificator.services.StatisticsService;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.storage.JournalUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sends signed interactions to the endpoint the way Discord would, without any network access.
+// The key pair is generated here, so the endpoint checks the signatures with a public key it has never seen before.
+class InteractionEndpointTest {
+    private static final String DISCORD_ID = "100000000000000001";
+    private static final UUID STEVE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final String IP = "203.0.113.7";
+
+    @TempDir
+    File directory;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private UserManager userManager;
+    private ConfirmationCodeService confirmationCodeService;
+    private InteractionEndpoint endpoint;
+    private PrivateKey privateKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        privateKey = keyPair.getPrivate();
+        // The raw key is the end of the X.509 encoding, as shown in the developer portal
+        byte[] encodedPublicKey = keyPair.getPublic().getEncoded();
+        StringBuilder publicKeyHex = new StringBuilder();
+        for (int i = encodedPublicKey.length - 32; i < encodedPublicKey.length; i++) {
+            publicKeyHex.append(String.format("%02x", encodedPublicKey[i]));
+        }
+
+        Logger logger = Logger.getLogger("DiscordVerificator-InteractionEndpointTest");
+        userManager = new UserManager(new JournalUserStore(new File(directory, "journal"), logger, true),
+                new File(directory, "users.json").getPath(), logger);
+        userManager.linkUser(DISCORD_ID, STEVE, "Steve");
+        AccountOverviewCache accountOverviewCache = new AccountOverviewCache(userManager);
+        userManager.addLinkListener(accountOverviewCache);
+        confirmationCodeService = new ConfirmationCodeService();
+
+        endpoint = new InteractionEndpoint(2, logger, userManager, confirmationCodeService,
+                new StatisticsService(null, logger), accountOverviewCache, "127.0.0.1", 0, "/interactions", publicKeyHex.toString());
+        // Never called, every command here is answered inline
+        endpoint.start(new DiscordRestClient("unused"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+        userManager.onShutDown();
+    }
+
+    @Test
+    void answersPings() throws Exception {
+        String ping = "{\"type\":1}";
+        Response response = post(ping, sign(ping));
+
+        assertEquals(200, response.status);
+        assertEquals(1, response.json().path("type").asInt());
+    }
+
+    @Test
+    void rejectsRequestsWithoutAValidSignature() throws Exception {
+        String ping = "{\"type\":1}";
+
+        assertEquals(401, post("{\"type\":1 }", sign(ping)).status);
+        assertEquals(401, post(ping, null).status);
+    }
+
+    @Test
+    void rejectsReplayedRequests() throws Exception {
+        String ping = "{\"type\":1}";
+        long now = System.currentTimeMillis() / 1000;
+
+        assertEquals(401, post(ping, sign(ping, String.valueOf(now - 60))).status);
+        assertEquals(401, post(ping, sign(ping, String.valueOf(now + 60))).status);
+        assertEquals(401, post(ping, sign(ping, "yesterday")).status);
+    }
+
+    @Test
+    void confirmsCodesInline() throws Exception {
+        String invalidCode = command("confirm", "{\"name\":\"code\",\"type\":3,\"value\":\"not-a-code\"}");
+        Response invalid = post(invalidCode, sign(invalidCode));
+        assertEquals(200, invalid.status);
+        assertEquals(0xF63B2D, invalid.json().at("/data/embeds/0/color").asInt());
+
+        String code = confirmationCodeService.generateVerificationCode(DISCORD_ID, STEVE, "Steve", IP);
+        String validCode = command("confirm", "{\"name\":\"code\",\"type\":3,\"value\":\"" + code + "\"}");
+        Response valid = post(validCode, sign(validCode));
+        assertEquals(0x9ACD32, valid.json().at("/data/embeds/0/color").asInt());
+        assertEquals(IP, userManager.findFullUserByDiscordId(DISCORD_ID).get().getCurrentAllowedIp());
+    }
+
+    @Test
+    void completesTheUsernamesOfTheUser() throws Exception {
+        String autocomplete = "{\"type\":4,\"token\":\"fixture\",\"member\":{\"user\":{\"id\":\"" + DISCORD_ID + "\"}},"
+                + "\"data\":{\"name\":\"unlink-account\",\"options\":[{\"name\":\"username\",\"type\":3,\"value\":\"st\",\"focused\":true}]}}";
+        Response response = post(autocomplete, sign(autocomplete));
+
+        assertEquals(200, response.status);
+        assertEquals("Steve", response.json().at("/data/choices/0/value").asText());
+    }
+
+    @Test
+    void refusesUnknownCommands() throws Exception {
+        String unknown = command("unknown", "{\"name\":\"x\",\"type\":3,\"value\":\"y\"}");
+        assertEquals(400, post(unknown, sign(unknown)).status);
+    }
+
+    @Test
+    void disconnectsClientsThatDontSendTheBody() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", endpoint.getPort())) {
+            socket.setSoTimeout(10_000);
+            String headers = "POST /interactions HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: 100\r\n\r\n";
+            socket.getOutputStream().write(headers.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+
+            long start = System.currentTimeMillis();
+            // Closed without a response
+            assertEquals(-1, socket.getInputStream().read());
+            assertTrue(System.currentTimeMillis() - start < 5_000);
+        }
+    }
+
+    private String command(String name, String option) {
+        return "{\"type\":2,\"application_id\":\"1\",\"token\":\"fixture\",\"member\":{\"user\":{\"id\":\"" + DISCORD_ID + "\"}},"
+                + "\"data\":{\"name\":\"" + name + "\",\"options\":[" + option + "]}}";
+    }
+
+    // Signature over the timestamp header followed by the body, like Discord signs it
+    private String[] sign(String body) throws Exception {
+        return sign(body, String.valueOf(System.currentTimeMillis() / 1000));
+    }
+
+    private String[] sign(String body, String timestamp) throws Exception {
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initSign(privateKey);
+        signature.update(timestamp.getBytes(StandardCharsets.UTF_8));
+        signature.update(body.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : signature.sign()) hex.append(String.format("%02x", b));
+        return new String[] { hex.toString(), timestamp };
+    }
+
+    private Response post(String body, String[] signature) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + endpoint.getPort() + "/interactions");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            if (signature != null) {
+                connection.setRequestProperty("X-Signature-Ed25519", signature[0]);
+                connection.setRequestProperty("X-Signature-Timestamp", signature[1]);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = stream.read(buffer)) != -1) responseBody.write(buffer, 0, read);
+                }
+            }
+            return new Response(status, responseBody.toString("UTF-8"));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private JsonNode json() throws IOException {
+            return mapper.readTree(body);
+        }
+    }
+}
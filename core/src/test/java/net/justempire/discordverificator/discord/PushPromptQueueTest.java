@@ -0,0 +1,93 @@
+package net.justempire.discordverificator.discord;
+
+import net.justempire.discordverificator.models.PushPrompt;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives the queue with a burst of join prompts against a stub of Discord's REST layer, which answers
+// like Discord would (429 above 50 requests per second overall or 5 per 5 seconds per DM channel)
+class PushPromptQueueTest {
+    private static final int ACCOUNTS = 300;
+    private static final int PROMPTS = 2000;
+    private static final long BURST_MILLIS = 2000;
+    private static final long MAX_AGE_MILLIS = 4000;
+
+    private final Logger logger = Logger.getLogger("DiscordVerificator-PushPromptQueueTest");
+
+    @Test
+    void sendsABurstWithinDiscordsRateLimits() throws Exception {
+        StubDiscordRest rest = new StubDiscordRest();
+        PushPromptQueue queue = new PushPromptQueue(rest, logger, 40, 5, 5000, MAX_AGE_MILLIS, 10_000);
+        Random random = new Random(42);
+
+        long startMillis = System.currentTimeMillis();
+        long burstEndMillis = startMillis + BURST_MILLIS;
+        int offered = 0;
+
+        // Prompts arrive during the burst, the queue is drained every tick like the platform scheduler does
+        while (queue.getPendingCount() > 0 || System.currentTimeMillis() < burstEndMillis) {
+            long now = System.currentTimeMillis();
+            int due = now >= burstEndMillis ? PROMPTS : (int) (PROMPTS * (now - startMillis) / BURST_MILLIS);
+            for (; offered < due; offered++) {
+                int account = random.nextInt(ACCOUNTS);
+                PushPrompt prompt = new PushPrompt(String.valueOf(100_000_000_000_000_000L + account), "player" + account,
+                        "10.0." + offered / 250 % 250 + "." + offered % 250, "code" + offered, now);
+                assertTrue(queue.offer(prompt));
+            }
+
+            queue.dispatch();
+            Thread.sleep(50);
+        }
+
+        logger.info(String.format("%d prompts: %d sent, %d coalesced, %d stale", PROMPTS, queue.getSent(), queue.getCoalesced(), queue.getDroppedStale()));
+        assertEquals(0, rest.rateLimited.sum());
+        assertEquals(0, queue.getFailed());
+        assertTrue(queue.getSent() > 0);
+        // Accounts joining again before their prompt was sent
+        assertTrue(queue.getCoalesced() > 0);
+        // The burst is larger than what the rate limits let through before the prompts are too old
+        assertTrue(queue.getDroppedStale() > 0);
+        // Every prompt was either replaced, sent or dropped
+        assertEquals(PROMPTS, queue.getCoalesced() + queue.getSent() + queue.getDroppedStale());
+        assertEquals(queue.getQueued(), queue.getSent() + queue.getDroppedStale());
+    }
+
+    // Counts every request Discord would have answered with 429, using its sliding windows
+    private static class StubDiscordRest implements PromptSender {
+        private final Deque<Long> globalWindow = new ArrayDeque<>();
+        private final Map<String, Deque<Long>> routeWindows = new HashMap<>();
+
+        private final LongAdder rateLimited = new LongAdder();
+
+        @Override
+        public synchronized CompletableFuture<Void> send(PushPrompt prompt) {
+            long now = System.currentTimeMillis();
+            if (!admit(globalWindow, now, 1000, 50)
+                    || !admit(routeWindows.computeIfAbsent(prompt.getDiscordId(), id -> new ArrayDeque<>()), now, 5000, 5)) {
+                rateLimited.increment();
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                future.completeExceptionally(new IllegalStateException("429 Too Many Requests"));
+                return future;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        private boolean admit(Deque<Long> window, long now, long windowMillis, int limit) {
+            while (!window.isEmpty() && now - window.peekFirst() >= windowMillis) window.pollFirst();
+            if (window.size() >= limit) return false;
+            window.addLast(now);
+            return true;
+        }
+    }
+}
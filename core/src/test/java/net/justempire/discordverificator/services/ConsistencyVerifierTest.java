@@ -0,0 +1,64 @@
+package net.justempire.discordverificator.services;
+
+import net.justempire.discordverificator.models.PreLoginDecision.Outcome;
+import net.justempire.discordverificator.storage.JournalUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConsistencyVerifierTest {
+    private static final UUID LINKED = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID NEWCOMER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final String IP = "203.0.113.7";
+
+    @TempDir
+    File directory;
+
+    private UserManager userManager;
+    private ConsistencyVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Logger logger = Logger.getLogger("DiscordVerificator-ConsistencyVerifierTest");
+        userManager = new UserManager(new JournalUserStore(new File(directory, "journal"), logger, true),
+                new File(directory, "users.json").getPath(), logger);
+        VerificatorApiService api = new VerificatorApiService(userManager, Runnable::run, logger, 100, 60_000);
+        // Every decision is sampled
+        verifier = new ConsistencyVerifier(userManager, logger, new AllowedIpCache(100, 60_000), api,
+                new AccountOverviewCache(userManager), new LinkCompletionIndex(logger, 50), 1, 100, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userManager.onShutDown();
+    }
+
+    @Test
+    void aClaimedLinkWithTheSameNameDoesNotContradictNotLinked() throws Exception {
+        userManager.linkUser("100000000000000001", LINKED, "Steve");
+
+        // Another player took the name since
+        verifier.sample(NEWCOMER, "Steve", IP, Outcome.NOT_LINKED, System.currentTimeMillis());
+        verifier.verifySamples();
+
+        assertEquals(1, verifier.getSamplesChecked());
+        assertEquals(0, verifier.getContradictedDecisions());
+    }
+
+    @Test
+    void anUnclaimedLinkContradictsNotLinked() throws Exception {
+        userManager.linkUser("100000000000000001", null, "Steve");
+
+        verifier.sample(NEWCOMER, "Steve", IP, Outcome.NOT_LINKED, System.currentTimeMillis());
+        verifier.verifySamples();
+
+        assertEquals(1, verifier.getContradictedDecisions());
+    }
+}
@@ -0,0 +1,141 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+    private static final byte TYPE = 1;
+    // [length][crc32][type] in front of every payload
+    private static final int FRAME_BYTES = 9;
+
+    private final Logger logger = Logger.getLogger("DiscordVerificator-JournalTest");
+
+    @TempDir
+    File directory;
+
+    @Test
+    void replaysWhatWasAppended() throws IOException {
+        write("first", "second", "third");
+
+        assertEquals(Arrays.asList("first", "second", "third"), replay());
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEnd() throws IOException {
+        write("first", "second", "third");
+
+        // The last record was only partly written
+        File journal = new File(directory, "journal-1.log");
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        assertEquals(Arrays.asList("first", "second"), replay());
+    }
+
+    @Test
+    void stopsAtARecordWithAChecksumMismatch() throws IOException {
+        write("first", "second", "third");
+
+        // Flips a byte in the payload of the second record
+        File journal = new File(directory, "journal-1.log");
+        byte[] bytes = Files.readAllBytes(journal.toPath());
+        int secondText = FRAME_BYTES + payload("first").length + FRAME_BYTES + 2;
+        bytes[secondText] ^= 0x20;
+        Files.write(journal.toPath(), bytes);
+
+        assertEquals(Collections.singletonList("first"), replay());
+    }
+
+    @Test
+    void replaysTheSnapshotAndTheJournalAfterIt() throws IOException {
+        Journal journal = new Journal(directory, logger);
+        journal.open((type, payload) -> { });
+        journal.awaitDurable(journal.append(TYPE, payload("before")));
+        long generation = journal.rotate();
+        journal.writeSnapshot(generation, Collections.singletonList(new Journal.Record(TYPE, payload("snapshot"))));
+        journal.awaitDurable(journal.append(TYPE, payload("after")));
+        journal.close();
+
+        assertEquals(Arrays.asList("snapshot", "after"), replay());
+    }
+
+    @Test
+    void refusesToOpenWithADamagedSnapshot() throws IOException {
+        Journal journal = new Journal(directory, logger);
+        journal.open((type, payload) -> { });
+        long generation = journal.rotate();
+        journal.writeSnapshot(generation, Arrays.asList(new Journal.Record(TYPE, payload("first")), new Journal.Record(TYPE, payload("second"))));
+        journal.close();
+
+        File snapshot = new File(directory, "snapshot-" + generation + ".dat");
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        Journal reopened = new Journal(directory, logger);
+        assertThrows(IOException.class, () -> reopened.open((type, payload) -> replayed.add(payload.readUTF())));
+        // Nothing of the damaged snapshot is applied
+        assertTrue(replayed.isEmpty());
+    }
+
+    @Test
+    void refusesAppendsOnceAWriteFailed() throws IOException {
+        Journal journal = new Journal(directory, logger);
+        journal.open((type, payload) -> { });
+        journal.awaitDurable(journal.append(TYPE, payload("first")));
+
+        // The next journal file can't be created
+        for (File file : directory.listFiles()) Files.delete(file.toPath());
+        Files.delete(directory.toPath());
+        assertEquals(-1, journal.rotate());
+
+        assertThrows(StorageUnavailableException.class, () -> journal.append(TYPE, payload("second")));
+        journal.close();
+        assertTrue(directory.mkdir()); // Cleaned up by JUnit
+    }
+
+    private void write(String... values) throws IOException {
+        Journal journal = new Journal(directory, logger);
+        journal.open((type, payload) -> { });
+        long seq = 0;
+        for (String value : values) seq = journal.append(TYPE, payload(value));
+        journal.awaitDurable(seq);
+        journal.close();
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> replayed = new ArrayList<>();
+        Journal journal = new Journal(directory, logger);
+        journal.open((type, payload) -> replayed.add(payload.readUTF()));
+        journal.close();
+        return replayed;
+    }
+
+    // Same encoding as the store's payloads
+    private static byte[] payload(String value) {
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[2 + text.length];
+        payload[0] = (byte) (text.length >> 8);
+        payload[1] = (byte) text.length;
+        System.arraycopy(text, 0, payload, 2, text.length);
+        return payload;
+    }
+}
@@ -0,0 +1,105 @@
+package net.justempire.discordverificator.storage;
+
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.models.LinkedPlayer;
+import net.justempire.discordverificator.models.Page;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalUserStoreTest {
+    private static final UUID STEVE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private final Logger logger = Logger.getLogger("DiscordVerificator-JournalUserStoreTest");
+
+    @TempDir
+    File directory;
+
+    @Test
+    void keepsLinksAcrossRestarts() throws Exception {
+        JournalUserStore store = new JournalUserStore(directory, logger, true);
+        store.linkUser("1", STEVE, "Steve");
+        store.relinkUser("2", STEVE, "Steve");
+        store.close();
+
+        JournalUserStore reopened = new JournalUserStore(directory, logger, true);
+        assertEquals("2", reopened.findLinkByUuid(STEVE).get().getDiscordId());
+        reopened.close();
+    }
+
+    @Test
+    void pagesThroughLinksWithTheSameName() throws Exception {
+        JournalUserStore store = new JournalUserStore(directory, logger, true);
+        store.linkUser("1", STEVE, "steve");
+        store.linkUser("1", null, "Alex");
+        store.linkUser("2", UUID.fromString("00000000-0000-0000-0000-000000000002"), "bob");
+        store.linkUser("3", UUID.fromString("00000000-0000-0000-0000-000000000003"), "Bob");
+        store.linkUser("2", null, "Zed");
+
+        // The page boundary falls between the two links named bob
+        List<String> names = new ArrayList<>();
+        Page<LinkedPlayer> page = store.findLinksAfter(null, 2);
+        while (!page.getItems().isEmpty()) {
+            for (LinkedPlayer link : page.getItems()) names.add(link.getMinecraftUsername());
+            page = store.findLinksAfter(page.getCursor(), 2);
+        }
+        assertEquals(Arrays.asList("Alex", "bob", "Bob", "steve", "Zed"), names);
+
+        Page<String> unclaimed = store.findUsernamesWithoutUuid(null, 1);
+        assertEquals(Collections.singletonList("Alex"), unclaimed.getItems());
+        store.claimLink(UUID.fromString("00000000-0000-0000-0000-000000000004"), "alex");
+        assertEquals(Collections.singletonList("Zed"), store.findUsernamesWithoutUuid(unclaimed.getCursor(), 10).getItems());
+        assertTrue(store.hasUnclaimedLink("zed"));
+        assertFalse(store.hasUnclaimedLink("Alex"));
+        store.close();
+    }
+
+    @Test
+    void findsTheLinkOfTheNameThatJoinedLast() throws Exception {
+        UUID first = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        JournalUserStore store = new JournalUserStore(directory, logger, true);
+        store.linkUser("2", first, "bob");
+        store.updatePlayerLoginTime(first);
+        store.linkUser("3", UUID.fromString("00000000-0000-0000-0000-000000000003"), "Bob");
+
+        // Not the link made last, it never joined
+        assertEquals("2", store.findDiscordIdByMinecraftUsername("BOB").orElse(null));
+        assertEquals("2", store.findPlayerInfo("bob").get().get("discord_id"));
+        store.close();
+
+        JournalUserStore reopened = new JournalUserStore(directory, logger, true);
+        assertEquals("2", reopened.findDiscordIdByMinecraftUsername("bob").orElse(null));
+        reopened.close();
+    }
+
+    @Test
+    void refusesChangesOnceTheJournalFailed() throws Exception {
+        JournalUserStore store = new JournalUserStore(directory, logger, true);
+        store.linkUser("1", STEVE, "Steve");
+
+        // The snapshot can't start a new journal file
+        for (File file : directory.listFiles()) Files.delete(file.toPath());
+        Files.delete(directory.toPath());
+        store.snapshot();
+
+        assertThrows(StorageUnavailableException.class, () -> store.relinkUser("2", STEVE, "Steve"));
+        // The refused change isn't applied either
+        assertEquals("1", store.findLinkByUuid(STEVE).get().getDiscordId());
+
+        store.close();
+        assertTrue(directory.mkdir()); // Cleaned up by JUnit
+    }
+}
@@ -0,0 +1,163 @@
+package net.justempire.discordverificator.velocity;
+
+import com.google.inject.Inject;
+import com.velocitypowered.api.command.CommandManager;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
+import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.justempire.discordverificator.api.DiscordVerificatorApi;
+import net.justempire.discordverificator.reports.IpReport;
+import net.justempire.discordverificator.reports.MetricsReport;
+import net.justempire.discordverificator.reports.StatsReport;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.services.VerificatorBootstrap;
+import net.justempire.discordverificator.utils.Messages;
+import net.justempire.discordverificator.velocity.commands.InfoCommand;
+import net.justempire.discordverificator.velocity.commands.IpCommand;
+import net.justempire.discordverificator.velocity.commands.LinkCommand;
+import net.justempire.discordverificator.velocity.commands.MetricsCommand;
+import net.justempire.discordverificator.velocity.commands.RelinkCommand;
+import net.justempire.discordverificator.velocity.commands.ReloadCommand;
+import net.justempire.discordverificator.velocity.commands.StatsCommand;
+import net.justempire.discordverificator.velocity.commands.StorageCommand;
+import net.justempire.discordverificator.velocity.commands.UnlinkCommand;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Proxy adapter: one bot and one database serve every backend of the network
+public class DiscordVerificatorVelocity {
+    // Supports both "&a" and "&#RRGGBB" like MessageColorizer does on Bukkit
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.builder()
+            .character('&')
+            .hexCharacter('#')
+            .hexColors()
+            .build();
+
+    private final ProxyServer server;
+    private final Path dataDirectory;
+    private final Logger logger = Logger.getLogger("DiscordVerificator");
+    private final VelocityScheduler scheduler;
+    private final VelocityConfig config;
+
+    private VerificatorBootstrap bootstrap;
+
+    // Flag to prevent double reloading
+    private final AtomicBoolean isReloading = new AtomicBoolean();
+
+    @Inject
+    public DiscordVerificatorVelocity(ProxyServer server, @DataDirectory Path dataDirectory) {
+        this.server = server;
+        this.dataDirectory = dataDirectory;
+        this.scheduler = new VelocityScheduler(server, this);
+        this.config = new VelocityConfig(dataDirectory);
+    }
+
+    @Subscribe
+    public void onProxyInitialization(ProxyInitializeEvent event) {
+        try {
+            config.load();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not load config.yml! The plugin won't work.", e);
+            return;
+        }
+        Messages.load(config.getMessages());
+
+        // Setting up the services shared with the Bukkit plugin
+        UuidResolver uuidResolver = new VelocityUuidResolver(server);
+        bootstrap = new VerificatorBootstrap(config, scheduler, uuidResolver, dataDirectory.toFile(), logger);
+        if (!bootstrap.start()) {
+            logger.severe("The plugin won't work.");
+            return;
+        }
+        UserManager userManager = bootstrap.getUserManager();
+        LinkCompletionIndex completionIndex = bootstrap.getCompletionIndex();
+
+        // Setting up the bot
+        bootstrap.startBot();
+
+        // Setting up listeners
+        server.getEventManager().register(this, new ProxyLoginListener(bootstrap.getPreLoginVerifier()));
+
+        // Setting up commands
+        CommandManager commandManager = server.getCommandManager();
+        commandManager.register(commandManager.metaBuilder("link").plugin(this).build(), new LinkCommand(this, userManager, uuidResolver, completionIndex));
+        commandManager.register(commandManager.metaBuilder("relink").plugin(this).build(), new RelinkCommand(this, userManager, uuidResolver, completionIndex));
+        commandManager.register(commandManager.metaBuilder("unlink").plugin(this).build(), new UnlinkCommand(this, userManager, completionIndex));
+        commandManager.register(commandManager.metaBuilder("dvreload").plugin(this).build(), new ReloadCommand(this));
+        commandManager.register(commandManager.metaBuilder("info").plugin(this).build(), new InfoCommand(this, userManager, completionIndex));
+        commandManager.register(commandManager.metaBuilder("dvstorage").plugin(this).build(),
+                new StorageCommand(this, bootstrap.getSqliteUserStore(), bootstrap.getUserStore()));
+        commandManager.register(commandManager.metaBuilder("dvip").plugin(this).build(), new IpCommand(this, new IpReport(userManager)));
+        commandManager.register(commandManager.metaBuilder("dvstats").plugin(this).build(),
+                new StatsCommand(this, new StatsReport(bootstrap.getStatisticsService())));
+        commandManager.register(commandManager.metaBuilder("dvmetrics").plugin(this).build(),
+                new MetricsCommand(new MetricsReport(bootstrap.getDatabaseService(), bootstrap.getBackupService(),
+                        bootstrap.getPushPromptQueue(), bootstrap.getJoinFloodGuard(), bootstrap.getConsistencyVerifier())));
+
+        logger.info("Enabled successfully!");
+    }
+
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (bootstrap != null) bootstrap.shutdown();
+        logger.info("Shutting down!");
+    }
+
+    // Re-reads config.yml and the messages and restarts the bot, like /dvreload on Bukkit
+    public void reload() {
+        if (bootstrap == null || !isReloading.compareAndSet(false, true)) return;
+
+        logger.info("Reloading plugin...");
+
+        runAsync(() -> {
+            try {
+                // 1. Shutdown existing bot completely
+                bootstrap.getBotConnection().shutdown(10);
+
+                // 2. Reload config (the bootstrap reads it on every use)
+                try {
+                    config.load();
+                    Messages.load(config.getMessages());
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Could not reload config.yml, keeping the previous one.", e);
+                }
+
+                // 3. Start new bot
+                bootstrap.startBot();
+                logger.info("Reload complete!");
+            } finally {
+                isReloading.set(false);
+            }
+        });
+    }
+
+    // Null until the plugin is initialized
+    public DiscordVerificatorApi getApi() { return bootstrap != null ? bootstrap.getApi() : null; }
+
+    public void runAsync(Runnable task) {
+        scheduler.runAsync(task);
+    }
+
+    public static String getRawMessage(String key) {
+        return Messages.get(key);
+    }
+
+    // Returns a colorized message from the config by key
+    public static Component getMessage(String key) {
+        return colorize(Messages.get(key));
+    }
+
+    public static Component colorize(String message) {
+        return SERIALIZER.deserialize(message);
+    }
+}
@@ -0,0 +1,38 @@
+package net.justempire.discordverificator.velocity;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import net.justempire.discordverificator.models.PreLoginDecision;
+import net.justempire.discordverificator.services.PreLoginVerifier;
+
+// Rejects unverified players on the proxy, before a backend connection is ever opened.
+// Runs on login rather than pre-login, because the player's UUID is only known after authentication.
+public class ProxyLoginListener {
+    private final PreLoginVerifier preLoginVerifier;
+
+    public ProxyLoginListener(PreLoginVerifier preLoginVerifier) {
+        this.preLoginVerifier = preLoginVerifier;
+    }
+
+    @Subscribe(order = PostOrder.EARLY)
+    public EventTask onLogin(LoginEvent event) {
+        // Already denied by someone else
+        if (!event.getResult().isAllowed()) return null;
+
+        // Database calls must not block the Netty threads
+        return EventTask.async(() -> {
+            Player player = event.getPlayer();
+            String ipAddress = player.getRemoteAddress().getAddress().getHostAddress();
+
+            PreLoginDecision decision = preLoginVerifier.verify(player.getUniqueId(), player.getUsername(), ipAddress);
+            if (decision.isAdmitted()) return;
+
+            String message = decision.formatMessage(DiscordVerificatorVelocity.getRawMessage(decision.getMessageKey()));
+            event.setResult(ResultedEvent.ComponentResult.denied(DiscordVerificatorVelocity.colorize(message)));
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package net.justempire.discordverificator.velocity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import net.justempire.discordverificator.utils.PluginConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Reads the same config.yml the Bukkit plugin uses (Velocity has no YAML config API)
+public class VelocityConfig implements PluginConfig {
+    private final Path configPath;
+    // Replaced as a whole by load(), so /dvreload never exposes a half-read file
+    private volatile JsonNode root;
+
+    public VelocityConfig(Path dataDirectory) {
+        this.configPath = dataDirectory.resolve("config.yml");
+    }
+
+    // Creates the default config if it doesn't exist and (re)reads it
+    public void load() throws IOException {
+        if (!Files.exists(configPath)) {
+            Files.createDirectories(configPath.getParent());
+            try (InputStream defaults = getClass().getClassLoader().getResourceAsStream("config.yml")) {
+                if (defaults == null) throw new IOException("Default config.yml is missing from the jar");
+                Files.copy(defaults, configPath);
+            }
+        }
+
+        root = new ObjectMapper(new YAMLFactory()).readTree(configPath.toFile());
+    }
+
+    @Override
+    public String getString(String path, String defaultValue) {
+        JsonNode node = find(path);
+        return node.isMissingNode() || node.isNull() ? defaultValue : node.asText();
+    }
+
+    @Override
+    public long getLong(String path, long defaultValue) {
+        JsonNode node = find(path);
+        return node.isMissingNode() || node.isNull() ? defaultValue : node.asLong(defaultValue);
+    }
+
+    @Override
+    public double getDouble(String path, double defaultValue) {
+        JsonNode node = find(path);
+        return node.isMissingNode() || node.isNull() ? defaultValue : node.asDouble(defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String path, boolean defaultValue) {
+        JsonNode node = find(path);
+        return node.isMissingNode() || node.isNull() ? defaultValue : node.asBoolean(defaultValue);
+    }
+
+    public Map<String, String> getMessages() {
+        Map<String, String> messages = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = find("messages").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            messages.put(field.getKey(), field.getValue().asText());
+        }
+        return messages;
+    }
+
+    private JsonNode find(String path) {
+        JsonNode node = root;
+        for (String part : path.split("\\.")) node = node.path(part);
+        return node;
+    }
+}
@@ -0,0 +1,30 @@
+package net.justempire.discordverificator.velocity;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.justempire.discordverificator.services.PlatformScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+// Tasks of the proxy scheduler, which always runs them asynchronously
+public class VelocityScheduler implements PlatformScheduler {
+    private final ProxyServer server;
+    private final Object plugin;
+
+    public VelocityScheduler(ProxyServer server, Object plugin) {
+        this.server = server;
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        server.getScheduler().buildTask(plugin, task).schedule();
+    }
+
+    @Override
+    public void repeatAsync(Runnable task, long delayMillis, long periodMillis) {
+        server.getScheduler().buildTask(plugin, task)
+                .delay(delayMillis, TimeUnit.MILLISECONDS)
+                .repeat(periodMillis, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+}
@@ -0,0 +1,34 @@
+package net.justempire.discordverificator.velocity;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.utils.MojangProfiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.UUID;
+
+// Online players are resolved directly; the proxy has no profile cache, so absent players are looked up at Mojang.
+// In offline mode absent players can't be resolved, and their links are claimed on join.
+public class VelocityUuidResolver implements UuidResolver {
+    private final ProxyServer server;
+
+    public VelocityUuidResolver(ProxyServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public Optional<UUID> resolve(String minecraftUsername) {
+        Optional<Player> online = server.getPlayer(minecraftUsername);
+        if (online.isPresent()) return Optional.of(online.get().getUniqueId());
+        if (!server.getConfiguration().isOnlineMode()) return Optional.empty();
+
+        try {
+            return MojangProfiles.findUuid(minecraftUsername);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.exceptions.StorageUnavailableException;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class InfoCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+
+    public InfoCommand(DiscordVerificatorVelocity plugin, UserManager userManager, LinkCompletionIndex completionIndex) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.completionIndex = completionIndex;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length != 1) {
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&cUsage: /info <player>"));
+            return;
+        }
+
+        String targetPlayer = arguments[0];
+
+        plugin.runAsync(() -> {
+            Optional<Map<String, String>> info;
+            try {
+                info = userManager.findPlayerInfo(targetPlayer);
+            } catch (StorageUnavailableException e) {
+                // Not knowing is different from not being linked
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("database-unavailable"));
+                return;
+            }
+            if (!info.isPresent()) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("player-was-not-linked"));
+                return;
+            }
+
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&8&m-----------------------------"));
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&6&l Info for: &f" + targetPlayer));
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&7 Discord ID: &f" + info.get().get("discord_id")));
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&7 Allowed IP: &f" + info.get().get("current_ip")));
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&7 Last Login: &f" + info.get().get("last_login")));
+            source.sendMessage(DiscordVerificatorVelocity.colorize("&8&m-----------------------------"));
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        String[] arguments = invocation.arguments();
+        if (arguments.length <= 1) return completionIndex.completeUsername(arguments.length == 0 ? "" : arguments[0]);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.info");
+    }
+}
@@ -0,0 +1,49 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.reports.IpReport;
+import net.justempire.discordverificator.utils.IpAddresses;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+public class IpCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final IpReport report;
+
+    public IpCommand(DiscordVerificatorVelocity plugin, IpReport report) {
+        this.plugin = plugin;
+        this.report = report;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length < 1 || arguments.length > 2) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-ip-format"));
+            return;
+        }
+
+        String query = arguments[0];
+        int page;
+        try {
+            IpAddresses.toKeyRange(query); // Validates the IP before going async
+            page = arguments.length == 2 ? Integer.parseInt(arguments[1]) : 1;
+            if (page < 1) throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-ip-format"));
+            return;
+        }
+
+        int targetPage = page;
+        plugin.runAsync(() -> {
+            for (String line : report.lines(query, targetPage)) source.sendMessage(DiscordVerificatorVelocity.colorize(line));
+        });
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.ip");
+    }
+}
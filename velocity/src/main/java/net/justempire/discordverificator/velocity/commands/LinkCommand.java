@@ -0,0 +1,75 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.exceptions.MinecraftUsernameAlreadyLinkedException;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class LinkCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+    private final UuidResolver uuidResolver;
+
+    public LinkCommand(DiscordVerificatorVelocity plugin, UserManager userManager, UuidResolver uuidResolver, LinkCompletionIndex completionIndex) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.uuidResolver = uuidResolver;
+        this.completionIndex = completionIndex;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length != 2) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-link-format"));
+            return;
+        }
+
+        String playerName = arguments[0];
+        String discordUserId = arguments[1];
+
+        if (discordUserId.length() < 17) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-user-id-format"));
+            return;
+        }
+
+        // Run database operation asynchronously
+        plugin.runAsync(() -> {
+            try {
+                // Links are keyed by UUID; without one the link is claimed on the first join
+                UUID uuid = uuidResolver.resolveOrNull(playerName);
+                userManager.linkUser(discordUserId, uuid, playerName);
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("successfully-linked"));
+            } catch (MinecraftUsernameAlreadyLinkedException e) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("player-already-linked"));
+            } catch (Exception e) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("error-occurred"));
+                ErrorReporter.report("Failed to run /link", e);
+            }
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        String[] arguments = invocation.arguments();
+        // The player isn't linked yet, so only the Discord ID is suggested
+        if (arguments.length == 2) return completionIndex.completeDiscordId(arguments[1]);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.link");
+    }
+}
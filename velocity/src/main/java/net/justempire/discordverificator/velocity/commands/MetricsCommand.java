@@ -0,0 +1,25 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.reports.MetricsReport;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+public class MetricsCommand implements SimpleCommand {
+    private final MetricsReport report;
+
+    public MetricsCommand(MetricsReport report) {
+        this.report = report;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        for (String line : report.lines()) source.sendMessage(DiscordVerificatorVelocity.colorize(line));
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.metrics");
+    }
+}
@@ -0,0 +1,72 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.services.UuidResolver;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class RelinkCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+    private final UuidResolver uuidResolver;
+
+    public RelinkCommand(DiscordVerificatorVelocity plugin, UserManager userManager, UuidResolver uuidResolver, LinkCompletionIndex completionIndex) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.uuidResolver = uuidResolver;
+        this.completionIndex = completionIndex;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length != 2) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-relink-format"));
+            return;
+        }
+
+        String playerName = arguments[0];
+        String discordUserId = arguments[1];
+
+        if (discordUserId.length() < 17) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-user-id-format"));
+            return;
+        }
+
+        // Run database operation asynchronously (the old link is replaced in the same transaction)
+        plugin.runAsync(() -> {
+            try {
+                // Links are keyed by UUID; without one the link is claimed on the first join
+                UUID uuid = uuidResolver.resolveOrNull(playerName);
+                userManager.relinkUser(discordUserId, uuid, playerName);
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("successfully-relinked"));
+            } catch (Exception e) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("error-occurred"));
+                ErrorReporter.report("Failed to run /relink", e);
+            }
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        String[] arguments = invocation.arguments();
+        if (arguments.length <= 1) return completionIndex.completeUsername(arguments.length == 0 ? "" : arguments[0]);
+        if (arguments.length == 2) return completionIndex.completeDiscordId(arguments[1]);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.link");
+    }
+}
@@ -0,0 +1,23 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+public class ReloadCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+
+    public ReloadCommand(DiscordVerificatorVelocity plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        plugin.reload();
+        invocation.source().sendMessage(DiscordVerificatorVelocity.getMessage("reloaded"));
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.reload");
+    }
+}
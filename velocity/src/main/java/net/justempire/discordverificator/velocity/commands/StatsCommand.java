@@ -0,0 +1,61 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.reports.StatsReport;
+import net.justempire.discordverificator.services.StatisticsService.Period;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StatsCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final StatsReport report;
+
+    public StatsCommand(DiscordVerificatorVelocity plugin, StatsReport report) {
+        this.plugin = plugin;
+        this.report = report;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length > 2) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-stats-format"));
+            return;
+        }
+
+        Period period = Period.DAY;
+        int offset = 0;
+        try {
+            if (arguments.length >= 1) period = Period.valueOf(arguments[0].toUpperCase());
+            if (arguments.length == 2) offset = Integer.parseInt(arguments[1]);
+            if (offset < 0) throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-stats-format"));
+            return;
+        }
+
+        Period targetPeriod = period;
+        long bucketStart = period.bucketsAgo(offset);
+
+        plugin.runAsync(() -> {
+            for (String line : report.lines(targetPeriod, bucketStart)) source.sendMessage(DiscordVerificatorVelocity.colorize(line));
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        if (invocation.arguments().length <= 1) return Arrays.asList("hour", "day");
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.stats");
+    }
+}
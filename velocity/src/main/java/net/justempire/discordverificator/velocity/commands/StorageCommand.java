@@ -0,0 +1,61 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.storage.SqliteUserStore;
+import net.justempire.discordverificator.storage.StorageDump;
+import net.justempire.discordverificator.storage.UserStore;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Collections;
+import java.util.List;
+
+// Copies the data of the journal engine back into database.db, so the plugin can be switched back to SQLite
+public class StorageCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final SqliteUserStore sqliteUserStore;
+    private final UserStore activeUserStore;
+
+    public StorageCommand(DiscordVerificatorVelocity plugin, SqliteUserStore sqliteUserStore, UserStore activeUserStore) {
+        this.plugin = plugin;
+        this.sqliteUserStore = sqliteUserStore;
+        this.activeUserStore = activeUserStore;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length != 1 || !arguments[0].equalsIgnoreCase("export")) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-storage-format"));
+            return;
+        }
+
+        if (activeUserStore == sqliteUserStore) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("storage-already-sqlite"));
+            return;
+        }
+
+        plugin.runAsync(() -> {
+            StorageDump dump = activeUserStore.exportAll();
+            if (sqliteUserStore.importAll(dump, true)) {
+                source.sendMessage(DiscordVerificatorVelocity.colorize(String.format(DiscordVerificatorVelocity.getRawMessage("storage-exported"),
+                        dump.users.size(), dump.links.size())));
+            } else {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("error-occurred"));
+            }
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        if (invocation.arguments().length <= 1) return Collections.singletonList("export");
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.storage");
+    }
+}
@@ -0,0 +1,62 @@
+package net.justempire.discordverificator.velocity.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.justempire.discordverificator.exceptions.NotFoundException;
+import net.justempire.discordverificator.services.LinkCompletionIndex;
+import net.justempire.discordverificator.services.UserManager;
+import net.justempire.discordverificator.utils.ErrorReporter;
+import net.justempire.discordverificator.velocity.DiscordVerificatorVelocity;
+
+import java.util.Collections;
+import java.util.List;
+
+public class UnlinkCommand implements SimpleCommand {
+    private final DiscordVerificatorVelocity plugin;
+    private final UserManager userManager;
+    private final LinkCompletionIndex completionIndex;
+
+    public UnlinkCommand(DiscordVerificatorVelocity plugin, UserManager userManager, LinkCompletionIndex completionIndex) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.completionIndex = completionIndex;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        String[] arguments = invocation.arguments();
+
+        if (arguments.length != 1) {
+            source.sendMessage(DiscordVerificatorVelocity.getMessage("invalid-unlink-format"));
+            return;
+        }
+
+        String targetPlayer = arguments[0];
+
+        // Run database operation asynchronously
+        plugin.runAsync(() -> {
+            try {
+                userManager.unlinkUser(targetPlayer);
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("successfully-unlinked"));
+            } catch (NotFoundException e) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("player-was-not-linked"));
+            } catch (Exception e) {
+                source.sendMessage(DiscordVerificatorVelocity.getMessage("error-occurred"));
+                ErrorReporter.report("Failed to run /unlink", e);
+            }
+        });
+    }
+
+    @Override
+    public List<String> suggest(Invocation invocation) {
+        String[] arguments = invocation.arguments();
+        if (arguments.length <= 1) return completionIndex.completeUsername(arguments.length == 0 ? "" : arguments[0]);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("discordVerificator.unlink");
+    }
+}